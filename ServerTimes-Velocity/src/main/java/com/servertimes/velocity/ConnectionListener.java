@@ -0,0 +1,73 @@
+package com.servertimes.velocity;
+
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.util.Optional;
+
+/**
+ * Stops connections to closed backends on the proxy, before a backend handshake is made.
+ * Players are rerouted to the fallback server if it is reachable, otherwise denied.
+ */
+public class ConnectionListener {
+    private static final String BYPASS_PERMISSION = "servertimes.bypass";
+
+    private final ProxyServer server;
+    private final ProxyConfig config;
+
+    public ConnectionListener(ProxyServer server, ProxyConfig config) {
+        this.server = server;
+        this.config = config;
+    }
+
+    @Subscribe(order = PostOrder.EARLY)
+    public void onServerPreConnect(ServerPreConnectEvent event) {
+        if (!event.getResult().isAllowed()) {
+            return;
+        }
+
+        RegisteredServer target = event.getResult().getServer().orElse(event.getOriginalServer());
+        if (!isClosed(target.getServerInfo().getName())) {
+            return;
+        }
+
+        Player player = event.getPlayer();
+        if (player.hasPermission(BYPASS_PERMISSION)) {
+            return;
+        }
+
+        Optional<RegisteredServer> fallback = getOpenFallback(target);
+        if (fallback.isPresent()) {
+            event.setResult(ServerPreConnectEvent.ServerResult.allowed(fallback.get()));
+            player.sendMessage(LegacyComponentSerializer.legacySection()
+                .deserialize(config.getReroutedMessage(fallback.get().getServerInfo().getName())));
+            return;
+        }
+
+        event.setResult(ServerPreConnectEvent.ServerResult.denied());
+        if (player.getCurrentServer().isPresent()) {
+            player.sendMessage(LegacyComponentSerializer.legacySection().deserialize(config.getClosedMessage()));
+        } else {
+            // Initial connection: there is nowhere to keep the player
+            player.disconnect(LegacyComponentSerializer.legacySection().deserialize(config.getClosedMessage()));
+        }
+    }
+
+    private boolean isClosed(String serverName) {
+        return config.isGated(serverName) && !config.isOpenNow();
+    }
+
+    private Optional<RegisteredServer> getOpenFallback(RegisteredServer target) {
+        String fallbackName = config.getFallbackServer();
+        if (fallbackName.isEmpty() || fallbackName.equalsIgnoreCase(target.getServerInfo().getName())
+                || isClosed(fallbackName)) {
+            return Optional.empty();
+        }
+        return server.getServer(fallbackName);
+    }
+}
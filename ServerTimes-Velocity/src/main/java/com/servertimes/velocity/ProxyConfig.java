@@ -0,0 +1,173 @@
+package com.servertimes.velocity;
+
+import com.servertimes.model.ScheduleNormalizer;
+import com.servertimes.model.ScheduleSnapshot;
+import com.servertimes.model.TimeSession;
+import com.servertimes.utils.TimeParser;
+import com.servertimes.utils.TimezoneUtil;
+import org.slf4j.Logger;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Proxy-side configuration. The schedule section uses the same format as the backend
+ * plugin's config.yml and is compiled into the same {@link ScheduleSnapshot}.
+ */
+public class ProxyConfig {
+    private static final String CONFIG_FILE_NAME = "config.yml";
+
+    private final Path dataDirectory;
+    private final Logger logger;
+
+    private volatile ScheduleSnapshot snapshot = ScheduleSnapshot.empty();
+    private volatile ZoneId zone = ZoneId.systemDefault();
+    private volatile Set<String> gatedServers = Collections.emptySet();
+    private volatile String fallbackServer = "";
+    private volatile String closedMessage = "§cThat server is currently closed. Please check the schedule and come back during open hours!";
+    private volatile String reroutedMessage = "§eThat server is currently closed, sending you to {server} instead.";
+
+    public ProxyConfig(Path dataDirectory, Logger logger) {
+        this.dataDirectory = dataDirectory;
+        this.logger = logger;
+    }
+
+    /**
+     * Load config.yml, creating it from the bundled default first if needed.
+     * Returns false and keeps the previous settings if the file cannot be read.
+     */
+    public boolean load() {
+        Path configFile = dataDirectory.resolve(CONFIG_FILE_NAME);
+        try {
+            if (!Files.exists(configFile)) {
+                Files.createDirectories(dataDirectory);
+                try (InputStream defaults = ProxyConfig.class.getResourceAsStream("/" + CONFIG_FILE_NAME)) {
+                    if (defaults == null) {
+                        logger.error("Default config.yml is missing from the plugin jar");
+                        return false;
+                    }
+                    Files.copy(defaults, configFile);
+                }
+            }
+
+            ConfigurationNode root = YamlConfigurationLoader.builder().path(configFile).build().load();
+
+            Map<DayOfWeek, List<TimeSession>> days = parseSchedule(root.node("schedule"));
+            ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(days,
+                root.node("settings", "max_sessions_per_day").getInt(10));
+            for (String conflict : normalized.getConflicts()) {
+                logger.warn("Schedule conflict: {}", conflict);
+            }
+
+            Set<String> servers = new HashSet<>();
+            for (String server : root.node("gated_servers").getList(String.class, Collections.emptyList())) {
+                if (server != null && !server.trim().isEmpty()) {
+                    servers.add(server.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+
+            snapshot = ScheduleSnapshot.of(normalized.getDays(), snapshot.getVersion() + 1);
+            zone = resolveZone(root.node("settings", "server_timezone").getString(""));
+            gatedServers = Collections.unmodifiableSet(servers);
+            fallbackServer = root.node("fallback_server").getString("").trim();
+            closedMessage = root.node("messages", "server_closed").getString(closedMessage);
+            reroutedMessage = root.node("messages", "rerouted").getString(reroutedMessage);
+            return true;
+        } catch (ConfigurateException e) {
+            logger.error("Cannot load {}: {}", configFile, e.getMessage());
+            return false;
+        } catch (IOException e) {
+            logger.error("Could not create {}: {}", configFile, e.getMessage());
+            return false;
+        }
+    }
+
+    // Resolved the same way as the backend plugin's settings.server_timezone
+    private ZoneId resolveZone(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return ZoneId.systemDefault();
+        }
+
+        id = id.trim();
+        if (TimezoneUtil.isValidTimezone(id)) {
+            return TimezoneUtil.getZoneId(id);
+        }
+        try {
+            return ZoneId.of(id);
+        } catch (DateTimeException e) {
+            logger.warn("Unknown server_timezone '{}', using the system default", id);
+            return ZoneId.systemDefault();
+        }
+    }
+
+    private List<TimeSession> parseDay(ConfigurationNode dayNode, String dayName) throws ConfigurateException {
+        List<TimeSession> sessions = new ArrayList<>();
+        for (String sessionStr : dayNode.getList(String.class, Collections.emptyList())) {
+            if (sessionStr == null || sessionStr.trim().isEmpty()) {
+                continue;
+            }
+
+            int packed = TimeParser.parseSession(sessionStr);
+            if (packed == TimeParser.INVALID) {
+                logger.warn("Invalid session in config for {}: {} (expected format: start-end)", dayName, sessionStr);
+                continue;
+            }
+            sessions.add(TimeSession.ofMinutes(TimeParser.sessionStart(packed), TimeParser.sessionEnd(packed)));
+        }
+        return sessions;
+    }
+
+    private Map<DayOfWeek, List<TimeSession>> parseSchedule(ConfigurationNode scheduleNode) throws ConfigurateException {
+        Map<DayOfWeek, List<TimeSession>> days = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            String dayName = day.name().toLowerCase(Locale.ROOT);
+            days.put(day, parseDay(scheduleNode.node(dayName), dayName));
+        }
+        return days;
+    }
+
+    /**
+     * Whether connections to a backend are subject to the schedule
+     */
+    public boolean isGated(String serverName) {
+        return serverName != null && gatedServers.contains(serverName.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean isOpenNow() {
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        return snapshot.isOpenAt(now.getDayOfWeek(), now.getHour() * 60 + now.getMinute());
+    }
+
+    public ScheduleSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public String getFallbackServer() {
+        return fallbackServer;
+    }
+
+    public String getClosedMessage() {
+        return closedMessage;
+    }
+
+    public String getReroutedMessage(String serverName) {
+        return reroutedMessage.replace("{server}", serverName);
+    }
+}
@@ -0,0 +1,79 @@
+package com.servertimes.velocity;
+
+import com.google.inject.Inject;
+import com.velocitypowered.api.command.CommandMeta;
+import com.velocitypowered.api.command.SimpleCommand;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.plugin.Plugin;
+import com.velocitypowered.api.plugin.annotation.DataDirectory;
+import com.velocitypowered.api.proxy.ProxyServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+
+@Plugin(
+    id = "servertimes",
+    name = "ServerTimes",
+    version = "1.0.0",
+    description = "Gates backend servers by the ServerTimes schedule on the proxy",
+    authors = {"ServerTimes Team"}
+)
+public class ServerTimesVelocity {
+    private static final String ADMIN_PERMISSION = "servertimes.admin";
+
+    private final ProxyServer server;
+    private final Logger logger;
+    private final ProxyConfig config;
+
+    @Inject
+    public ServerTimesVelocity(ProxyServer server, Logger logger, @DataDirectory Path dataDirectory) {
+        this.server = server;
+        this.logger = logger;
+        this.config = new ProxyConfig(dataDirectory, logger);
+    }
+
+    @Subscribe
+    public void onProxyInitialization(ProxyInitializeEvent event) {
+        if (!config.load()) {
+            logger.error("ServerTimes could not load its configuration; no servers are gated");
+        }
+
+        server.getEventManager().register(this, new ConnectionListener(server, config));
+
+        CommandMeta meta = server.getCommandManager().metaBuilder("servertimesproxy")
+            .aliases("stproxy")
+            .plugin(this)
+            .build();
+        server.getCommandManager().register(meta, new ReloadCommand());
+
+        logger.info("ServerTimes proxy gating has been enabled!");
+    }
+
+    /**
+     * /servertimesproxy reload
+     */
+    private final class ReloadCommand implements SimpleCommand {
+        @Override
+        public void execute(Invocation invocation) {
+            String[] args = invocation.arguments();
+            if (args.length != 1 || !args[0].equalsIgnoreCase("reload")) {
+                invocation.source().sendMessage(Component.text("Usage: /servertimesproxy reload", NamedTextColor.RED));
+                return;
+            }
+
+            if (config.load()) {
+                invocation.source().sendMessage(Component.text("ServerTimes proxy configuration reloaded!", NamedTextColor.GREEN));
+            } else {
+                invocation.source().sendMessage(Component.text("Failed to reload configuration, check the console", NamedTextColor.RED));
+            }
+        }
+
+        @Override
+        public boolean hasPermission(Invocation invocation) {
+            return invocation.source().hasPermission(ADMIN_PERMISSION);
+        }
+    }
+}
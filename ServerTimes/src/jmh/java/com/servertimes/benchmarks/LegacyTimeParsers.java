@@ -0,0 +1,201 @@
+package com.servertimes.benchmarks;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Verbatim copies of the two time parsers that {@link com.servertimes.utils.TimeParser}
+ * replaced, kept only as the baseline for {@link TimeParserBenchmark}.
+ */
+final class LegacyTimeParsers {
+
+    private LegacyTimeParsers() {
+    }
+
+    /**
+     * TimeSession.parseTime
+     */
+    static LocalTime timeSessionParseTime(String timeStr) throws DateTimeParseException {
+        try {
+            // Support multiple time formats: HH:mm, H:mm, HHam/pm, H:am/pm
+            if (timeStr == null || timeStr.trim().isEmpty()) {
+                throw new DateTimeParseException("Time string is empty", timeStr != null ? timeStr : "null", 0);
+            }
+            
+            timeStr = timeStr.toLowerCase().trim();
+            
+            // Additional validation for extremely long strings
+            if (timeStr.length() > 20) {
+                throw new DateTimeParseException("Time string too long", timeStr, 0);
+            }
+            
+            if (timeStr.contains("am") || timeStr.contains("pm")) {
+                boolean isPM = timeStr.contains("pm");
+                timeStr = timeStr.replace("am", "").replace("pm", "").trim();
+                
+                String[] parts = timeStr.split(":");
+                if (parts.length == 0 || parts.length > 2) {
+                    throw new DateTimeParseException("Invalid AM/PM time format", timeStr, 0);
+                }
+                
+                try {
+                    int hour = Integer.parseInt(parts[0]);
+                    int minute = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+                    
+                    // Validate ranges
+                    if (hour < 1 || hour > 12 || minute < 0 || minute > 59) {
+                        throw new DateTimeParseException("Invalid time values for AM/PM format", timeStr, 0);
+                    }
+                    
+                    // Convert to 24-hour format
+                    if (isPM && hour != 12) {
+                        hour += 12;
+                    } else if (!isPM && hour == 12) {
+                        hour = 0;
+                    }
+                    
+                    return LocalTime.of(hour, minute);
+                } catch (NumberFormatException e) {
+                    throw new DateTimeParseException("Invalid number format in AM/PM time", timeStr, 0);
+                }
+            } else {
+                try {
+                    // Try parsing as H:mm format first
+                    return LocalTime.parse(timeStr, DateTimeFormatter.ofPattern("H:mm"));
+                } catch (Exception e) {
+                    try {
+                        // Try parsing as HH:mm format
+                        return LocalTime.parse(timeStr, DateTimeFormatter.ofPattern("HH:mm"));
+                    } catch (Exception e2) {
+                        throw new DateTimeParseException("Invalid 24-hour time format", timeStr, 0);
+                    }
+                }
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time format: " + timeStr, e);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unexpected error parsing time: " + timeStr, e);
+        }
+    }
+
+    /**
+     * Parse and validate a time string
+     */
+    static LocalTime validationUtilParseTime(String timeStr) {
+        try {
+            if (timeStr == null || timeStr.trim().isEmpty()) {
+                throw new IllegalArgumentException("Time cannot be null or empty");
+            }
+            
+            timeStr = timeStr.trim().toLowerCase();
+            
+            // Additional validation for extremely long strings
+            if (timeStr.length() > 20) {
+                throw new IllegalArgumentException("Time string too long: " + timeStr);
+            }
+            
+            // Handle AM/PM format
+            if (timeStr.contains("am") || timeStr.contains("pm")) {
+                return parseAmPmTime(timeStr);
+            }
+            
+            // Handle 24-hour format
+            if (timeStr.contains(":")) {
+                return parse24HourTime(timeStr);
+            }
+            
+            // Handle compact format (e.g., "1430" for 14:30)
+            if (timeStr.matches("\\d{3,4}")) {
+                return parseCompactTime(timeStr);
+            }
+            
+            throw new IllegalArgumentException("Invalid time format: " + timeStr);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid time format: " + timeStr, e);
+        }
+    }
+    
+    /**
+     * Parse AM/PM time format
+     */
+    private static LocalTime parseAmPmTime(String timeStr) {
+        try {
+            boolean isPM = timeStr.contains("pm");
+            timeStr = timeStr.replace("am", "").replace("pm", "").trim();
+            
+            String[] parts = timeStr.split(":");
+            if (parts.length == 0 || parts.length > 2) {
+                throw new IllegalArgumentException("Invalid AM/PM time format");
+            }
+            
+            int hour = Integer.parseInt(parts[0]);
+            int minute = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            
+            // Validate ranges
+            if (hour < 1 || hour > 12 || minute < 0 || minute > 59) {
+                throw new IllegalArgumentException("Invalid time values for AM/PM format");
+            }
+            
+            // Convert to 24-hour format
+            if (isPM && hour != 12) {
+                hour += 12;
+            } else if (!isPM && hour == 12) {
+                hour = 0;
+            }
+            
+            return LocalTime.of(hour, minute);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number format in AM/PM time");
+        }
+    }
+    
+    /**
+     * Parse 24-hour time format
+     */
+    private static LocalTime parse24HourTime(String timeStr) {
+        try {
+            String[] parts = timeStr.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid 24-hour time format");
+            }
+            
+            int hour = Integer.parseInt(parts[0]);
+            int minute = Integer.parseInt(parts[1]);
+            
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+                throw new IllegalArgumentException("Invalid time values for 24-hour format");
+            }
+            
+            return LocalTime.of(hour, minute);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number format in 24-hour time");
+        }
+    }
+    
+    /**
+     * Parse compact time format (e.g., "1430" for 14:30)
+     */
+    private static LocalTime parseCompactTime(String timeStr) {
+        try {
+            int hour, minute;
+            if (timeStr.length() == 3) {
+                // Format: HMM (e.g., 930 for 9:30)
+                hour = Integer.parseInt(timeStr.substring(0, 1));
+                minute = Integer.parseInt(timeStr.substring(1, 3));
+            } else {
+                // Format: HHMM (e.g., 1430 for 14:30)
+                hour = Integer.parseInt(timeStr.substring(0, 2));
+                minute = Integer.parseInt(timeStr.substring(2, 4));
+            }
+            
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+                throw new IllegalArgumentException("Invalid time values for compact format");
+            }
+            
+            return LocalTime.of(hour, minute);
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid compact time format");
+        }
+    }
+}
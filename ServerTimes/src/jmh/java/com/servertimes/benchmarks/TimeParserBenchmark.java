@@ -0,0 +1,71 @@
+package com.servertimes.benchmarks;
+
+import com.servertimes.utils.TimeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TimeParser} with the parsers it replaced, per input format.
+ * The old TimeSession parser rejects compact times, so that case measures its failure path.
+ * <p>
+ * Run with {@code mvn -P jmh compile exec:exec} (add {@code -Djmh.args="-prof gc"} for allocation rates).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeParserBenchmark {
+
+    @Param({"21:00", "9:30", "9pm", "9:30pm", "2130"})
+    public String input;
+
+    @Benchmark
+    public int timeParser() {
+        return TimeParser.parseMinuteOfDay(input);
+    }
+
+    @Benchmark
+    public LocalTime legacyTimeSession() {
+        try {
+            return LegacyTimeParsers.timeSessionParseTime(input);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public LocalTime legacyValidationUtil() {
+        try {
+            return LegacyTimeParsers.validationUtilParseTime(input);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TimeParserBenchmark.class.getSimpleName())
+            .build();
+        if (args.length == 2 && "-prof".equals(args[0])) {
+            options = new OptionsBuilder().parent(options).addProfiler(args[1]).build();
+        }
+        new Runner(options).run();
+    }
+}
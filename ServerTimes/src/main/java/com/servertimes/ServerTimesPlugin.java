@@ -3,53 +3,114 @@ package com.servertimes;
 import com.servertimes.commands.ServerTimesCommand;
 import com.servertimes.commands.TimezoneCommand;
 import com.servertimes.config.ConfigManager;
+import com.servertimes.config.ConfigWatcher;
+import com.servertimes.config.ScheduleCache;
+import com.servertimes.data.AttendanceRecorder;
+import com.servertimes.data.GroupMembershipManager;
 import com.servertimes.data.PlayerDataManager;
+import com.servertimes.listeners.AttendanceListener;
+import com.servertimes.listeners.GroupListener;
+import com.servertimes.listeners.PlayerDataListener;
 import com.servertimes.listeners.PlayerJoinListener;
+import com.servertimes.listeners.TabCompleteListener;
+import com.servertimes.listeners.WorldListener;
+import com.servertimes.metrics.MetricsExporter;
+import com.servertimes.metrics.PluginMetrics;
 import com.servertimes.scheduler.ServerScheduler;
+import com.servertimes.scheduler.WorldScheduler;
+import com.servertimes.scheduler.ZoneBroadcaster;
+import io.papermc.paper.command.brigadier.Commands;
+import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 public class ServerTimesPlugin extends JavaPlugin {
+    private static final List<String> SERVERTIMES_ALIASES = List.of("st", "schedule");
+    private static final List<String> TIMEZONE_ALIASES = List.of("tz");
     
     private ConfigManager configManager;
     private ServerScheduler serverScheduler;
+    private WorldScheduler worldScheduler;
     private PlayerDataManager playerDataManager;
+    private GroupMembershipManager groupMembership;
+    private AttendanceRecorder attendanceRecorder;
+    private ConfigWatcher configWatcher;
+    private MetricsExporter metricsExporter;
+    private final PluginMetrics metrics = new PluginMetrics();
     
     @Override
     public void onEnable() {
         try {
-            // Initialize configuration
+            // Initialize configuration, from the compiled cache when config.yml is unchanged
             configManager = new ConfigManager(this);
-            configManager.loadConfig();
+            boolean cachedStart = configManager.loadCachedSchedule();
+            if (!cachedStart) {
+                configManager.loadConfig();
+            }
             
-            // Initialize player data manager
+            // Initialize player data manager; nobody can look up a timezone before the first tick.
+            // Storage and attendance depend on settings, which a cached start only has after loadDeferred.
             playerDataManager = new PlayerDataManager(this);
-            playerDataManager.loadPlayerData();
+            attendanceRecorder = new AttendanceRecorder(this, configManager);
+            if (!cachedStart) {
+                startPlayerServices();
+            }
             
             // Initialize scheduler
-            serverScheduler = new ServerScheduler(this, configManager);
-            
-            // Register commands
-            if (getCommand("servertimes") != null) {
-                getCommand("servertimes").setExecutor(new ServerTimesCommand(this, configManager, serverScheduler, playerDataManager));
-            } else {
-                getLogger().severe("Failed to register 'servertimes' command - check plugin.yml!");
-                getServer().getPluginManager().disablePlugin(this);
-                return;
-            }
+            groupMembership = new GroupMembershipManager(this, configManager);
+            groupMembership.hookLuckPerms();
+            ZoneBroadcaster broadcaster = new ZoneBroadcaster(configManager, playerDataManager);
+            serverScheduler = new ServerScheduler(this, configManager, groupMembership, broadcaster);
+            worldScheduler = new WorldScheduler(this, configManager);
+            serverScheduler.setWorldScheduler(worldScheduler);
             
-            if (getCommand("timezone") != null) {
-                getCommand("timezone").setExecutor(new TimezoneCommand(this, playerDataManager));
-            } else {
-                getLogger().severe("Failed to register 'timezone' command - check plugin.yml!");
-                getServer().getPluginManager().disablePlugin(this);
-                return;
-            }
+            // Register commands as Brigadier trees; their tab completion is answered off the main thread
+            ServerTimesCommand serverTimesCommand = new ServerTimesCommand(this, configManager, serverScheduler, playerDataManager, attendanceRecorder);
+            TimezoneCommand timezoneCommand = new TimezoneCommand(this, playerDataManager);
+            getLifecycleManager().registerEventHandler(LifecycleEvents.COMMANDS, event -> {
+                Commands commands = event.registrar();
+                commands.register(serverTimesCommand.createNode(), "Manage server opening and closing times", SERVERTIMES_ALIASES);
+                commands.register(timezoneCommand.createNode(), "Set your personal timezone for server times", TIMEZONE_ALIASES);
+            });
+            TabCompleteListener tabCompleteListener = new TabCompleteListener(this);
+            tabCompleteListener.register("servertimes", SERVERTIMES_ALIASES, serverTimesCommand::complete);
+            tabCompleteListener.register("timezone", TIMEZONE_ALIASES, timezoneCommand::complete);
             
             // Register listeners
-            getServer().getPluginManager().registerEvents(new PlayerJoinListener(serverScheduler, this), this);
+            getServer().getPluginManager().registerEvents(new PlayerJoinListener(serverScheduler, this, metrics), this);
+            getServer().getPluginManager().registerEvents(new WorldListener(worldScheduler, configManager, metrics), this);
+            getServer().getPluginManager().registerEvents(new GroupListener(groupMembership), this);
+            getServer().getPluginManager().registerEvents(new PlayerDataListener(playerDataManager), this);
+            getServer().getPluginManager().registerEvents(new AttendanceListener(attendanceRecorder), this);
+            getServer().getPluginManager().registerEvents(tabCompleteListener, this);
             
             // Start the scheduler
             serverScheduler.start();
+            worldScheduler.start();
+            
+            if (cachedStart) {
+                getLogger().info("Loaded compiled schedule from " + ScheduleCache.FILE_NAME);
+                configManager.loadDeferred(changedDays -> {
+                    if (serverScheduler == null) {
+                        return;
+                    }
+                    startPlayerServices();
+                    serverScheduler.onScheduleChanged(changedDays);
+                    // World schedules are not part of the cache
+                    serverScheduler.refreshWorlds();
+                    startConfigWatcher();
+                    startMetricsExporter();
+                });
+            } else {
+                startConfigWatcher();
+                startMetricsExporter();
+            }
             
             getLogger().info("ServerTimes plugin has been enabled!");
         } catch (Exception e) {
@@ -59,26 +120,91 @@ public class ServerTimesPlugin extends JavaPlugin {
         }
     }
     
+    private void startPlayerServices() {
+        if (configManager.isAttendanceEnabled()) {
+            List<UUID> online = new ArrayList<>();
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                online.add(player.getUniqueId());
+            }
+            attendanceRecorder.start(online);
+        }
+        
+        PlayerDataManager manager = playerDataManager;
+        String storage = configManager.getPlayerDataStorage();
+        CompletableFuture.runAsync(() -> manager.loadPlayerData(storage))
+            .thenRun(() -> Bukkit.getScheduler().runTask(this, () -> {
+                // Players already online (after a reload) never went through pre-login
+                List<UUID> online = new ArrayList<>();
+                for (Player player : Bukkit.getOnlinePlayers()) {
+                    online.add(player.getUniqueId());
+                }
+                if (online.isEmpty()) {
+                    return;
+                }
+                CompletableFuture.runAsync(() -> online.forEach(manager::loadAtPreLogin))
+                    .thenRun(() -> Bukkit.getScheduler().runTask(this, () -> {
+                        online.removeIf(playerId -> Bukkit.getPlayer(playerId) == null);
+                        manager.onJoin(online);
+                    }));
+            }));
+    }
+    
+    private void startConfigWatcher() {
+        // Hot-reload config.yml edits
+        if (isEnabled() && configManager.isConfigWatchEnabled()) {
+            configWatcher = new ConfigWatcher(this, configManager, serverScheduler);
+            configWatcher.start();
+        }
+    }
+    
+    private void startMetricsExporter() {
+        // Opt-in Prometheus endpoint on localhost
+        if (isEnabled() && configManager.isMetricsEnabled()) {
+            metricsExporter = new MetricsExporter(this, configManager, serverScheduler, metrics);
+            if (!metricsExporter.start(configManager.getMetricsPort())) {
+                metricsExporter = null;
+            }
+        }
+    }
+    
     @Override
     public void onDisable() {
         try {
+            if (metricsExporter != null) {
+                metricsExporter.stop();
+                metricsExporter = null;
+            }
+            
+            // Stop watching before our own saves below touch config.yml
+            if (configWatcher != null) {
+                configWatcher.stop();
+                configWatcher = null;
+            }
+            
+            if (worldScheduler != null) {
+                worldScheduler.stop();
+                worldScheduler = null;
+            }
+            
             // Stop scheduler first to prevent new tasks
             if (serverScheduler != null) {
                 serverScheduler.stop();
                 serverScheduler = null;
             }
             
-            // Save player data
+            if (attendanceRecorder != null) {
+                attendanceRecorder.stop();
+                attendanceRecorder = null;
+            }
+            
+            // Sync and close the player data journal
             if (playerDataManager != null) {
-                playerDataManager.savePlayerData();
+                playerDataManager.close();
                 playerDataManager = null;
             }
             
-            // Save configuration if needed
-            if (configManager != null) {
-                configManager.saveConfig();
-                configManager = null;
-            }
+            // Every change is saved when it is made, so config.yml is not written here
+            configManager = null;
             
             getLogger().info("ServerTimes plugin has been disabled!");
         } catch (Exception e) {
@@ -87,6 +213,10 @@ public class ServerTimesPlugin extends JavaPlugin {
         }
     }
     
+    public PluginMetrics getMetrics() {
+        return metrics;
+    }
+    
     public ConfigManager getConfigManager() {
         return configManager;
     }
@@ -95,6 +225,14 @@ public class ServerTimesPlugin extends JavaPlugin {
         return serverScheduler;
     }
     
+    public WorldScheduler getWorldScheduler() {
+        return worldScheduler;
+    }
+    
+    public AttendanceRecorder getAttendanceRecorder() {
+        return attendanceRecorder;
+    }
+    
     public PlayerDataManager getPlayerDataManager() {
         return playerDataManager;
     }
@@ -0,0 +1,268 @@
+package com.servertimes.commands;
+
+import com.mojang.brigadier.LiteralMessage;
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.arguments.ArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.DynamicCommandExceptionType;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import com.servertimes.config.ConfigManager;
+import com.servertimes.model.ScheduleSnapshot;
+import com.servertimes.model.TimeSession;
+import com.servertimes.utils.PrefixIndex;
+import com.servertimes.utils.TimeParser;
+import com.servertimes.utils.TimezoneUtil;
+import com.servertimes.utils.ValidationUtil;
+import io.papermc.paper.command.brigadier.argument.ArgumentTypes;
+import io.papermc.paper.command.brigadier.argument.CustomArgumentType;
+import net.kyori.adventure.key.Key;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Typed Brigadier arguments for the plugin's commands: day, time of day and timezone.
+ * <p>
+ * Each one is sent to the client as a native argument whose shape it can check (a word, a
+ * string, or for times a namespaced key, which is the one that takes "21:00"), and is
+ * converted on the server with the same parsers config loading uses. Suggestions come from prebuilt {@link PrefixIndex} tries; time
+ * suggestions are rebuilt once per schedule version from its session boundaries.
+ */
+public final class CommandArguments {
+    private static final PrefixIndex<Boolean> DAYS = index(Arrays.asList("monday", "tuesday", "wednesday",
+        "thursday", "friday", "saturday", "sunday"));
+    // Offered while the schedule has no sessions to take times from
+    private static final TimeCompletions DEFAULT_TIMES = new TimeCompletions(-1L,
+        index(Arrays.asList("9am", "10am", "12pm", "1pm", "6pm", "7pm", "8pm", "9pm", "10pm")),
+        index(Arrays.asList("10am", "11am", "1pm", "2pm", "7pm", "8pm", "9pm", "10pm", "11pm", "12am")));
+
+    private static final DynamicCommandExceptionType INVALID_DAY = new DynamicCommandExceptionType(
+        day -> new LiteralMessage("Invalid day '" + day + "'. Valid days: monday to sunday"));
+    private static final DynamicCommandExceptionType INVALID_TIME = new DynamicCommandExceptionType(
+        time -> new LiteralMessage("Invalid time '" + time + "'. Use 21:00, 2130, 9pm or 9:30pm"));
+    private static final DynamicCommandExceptionType INVALID_ZONE = new DynamicCommandExceptionType(
+        zone -> new LiteralMessage("Unknown timezone '" + zone + "'. Use an abbreviation like EST or a region like Europe/Berlin"));
+
+    private final ConfigManager configManager;
+    private volatile TimeCompletions timeCompletions = DEFAULT_TIMES;
+
+    public CommandArguments(ConfigManager configManager) {
+        this.configManager = configManager;
+    }
+
+    public static ArgumentType<DayOfWeek> day() {
+        return new DayArgument();
+    }
+
+    /**
+     * A time of day as the minute of the day, suggesting the schedule's start times
+     */
+    public ArgumentType<Integer> startTime() {
+        return new TimeArgument(true);
+    }
+
+    /**
+     * A time of day as the minute of the day, suggesting the schedule's end times
+     */
+    public ArgumentType<Integer> endTime() {
+        return new TimeArgument(false);
+    }
+
+    /**
+     * A supported timezone, converted to the spelling it is stored under. Takes the rest of
+     * the input, since region ids contain slashes.
+     */
+    public static ArgumentType<String> zone() {
+        return new ZoneArgument();
+    }
+
+    public static List<String> completeDay(String typed) {
+        return DAYS.complete(typed);
+    }
+
+    /**
+     * Time suggestions matching what was typed; a complete valid time is offered as is
+     */
+    public List<String> completeTime(String typed, boolean start) {
+        TimeCompletions completions = getTimeCompletions();
+        List<String> matches = (start ? completions.starts : completions.ends).complete(typed);
+        if (matches.isEmpty() && TimeParser.parseMinuteOfDay(typed) != TimeParser.INVALID) {
+            return List.of(typed);
+        }
+        return matches;
+    }
+
+    // Rebuilt once per schedule version, by whichever completion sees the new version first
+    private TimeCompletions getTimeCompletions() {
+        ScheduleSnapshot snapshot = configManager.getSnapshot();
+        TimeCompletions current = timeCompletions;
+        if (current.version != snapshot.getVersion()) {
+            current = TimeCompletions.of(snapshot);
+            timeCompletions = current;
+        }
+        return current;
+    }
+
+    private static CompletableFuture<Suggestions> suggest(SuggestionsBuilder builder, List<String> candidates) {
+        for (String candidate : candidates) {
+            builder.suggest(candidate);
+        }
+        return builder.buildFuture();
+    }
+
+    private static PrefixIndex<Boolean> index(Collection<String> names) {
+        Map<String, Boolean> entries = new HashMap<>();
+        for (String name : names) {
+            entries.put(name, Boolean.TRUE);
+        }
+        return PrefixIndex.build(entries);
+    }
+
+    private static final class DayArgument implements CustomArgumentType.Converted<DayOfWeek, String> {
+        @Override
+        public DayOfWeek convert(String value) throws CommandSyntaxException {
+            DayOfWeek day = ValidationUtil.parseDayOfWeek(value);
+            if (day == null) {
+                throw INVALID_DAY.create(value);
+            }
+            return day;
+        }
+
+        @Override
+        public ArgumentType<String> getNativeType() {
+            return StringArgumentType.word();
+        }
+
+        @Override
+        public <S> CompletableFuture<Suggestions> listSuggestions(CommandContext<S> context, SuggestionsBuilder builder) {
+            return suggest(builder, DAYS.complete(builder.getRemaining()));
+        }
+    }
+
+    private final class TimeArgument implements CustomArgumentType.Converted<Integer, Key> {
+        private final boolean start;
+
+        private TimeArgument(boolean start) {
+            this.start = start;
+        }
+
+        // Reads up to the next space with the plugin's own parser; the key only shapes what
+        // the client accepts
+        @Override
+        public Integer parse(StringReader reader) throws CommandSyntaxException {
+            int from = reader.getCursor();
+            while (reader.canRead() && reader.peek() != ' ') {
+                reader.skip();
+            }
+            String value = reader.getString().substring(from, reader.getCursor());
+            int minute = toMinute(value);
+            if (minute == TimeParser.INVALID) {
+                reader.setCursor(from);
+                throw INVALID_TIME.createWithContext(reader, value);
+            }
+            return minute;
+        }
+
+        @Override
+        public Integer convert(Key value) throws CommandSyntaxException {
+            // A time without a colon reads as a key in the default namespace
+            String text = value.namespace().equals(Key.MINECRAFT_NAMESPACE) ? value.value() : value.asString();
+            int minute = toMinute(text);
+            if (minute == TimeParser.INVALID) {
+                throw INVALID_TIME.create(text);
+            }
+            return minute;
+        }
+
+        private int toMinute(String value) {
+            if (value.length() > configManager.getMaxTimeStringLength()) {
+                return TimeParser.INVALID;
+            }
+            return TimeParser.parseMinuteOfDay(value);
+        }
+
+        // The client reads 21:00 and 9:30pm as namespace and path; a word would stop at the colon
+        @Override
+        public ArgumentType<Key> getNativeType() {
+            return ArgumentTypes.key();
+        }
+
+        @Override
+        public <S> CompletableFuture<Suggestions> listSuggestions(CommandContext<S> context, SuggestionsBuilder builder) {
+            return suggest(builder, completeTime(builder.getRemaining(), start));
+        }
+    }
+
+    private static final class ZoneArgument implements CustomArgumentType.Converted<String, String> {
+        @Override
+        public String convert(String value) throws CommandSyntaxException {
+            String trimmed = value.trim();
+            String canonical = trimmed.length() <= 50 ? TimezoneUtil.getCanonicalName(trimmed) : null;
+            if (canonical == null) {
+                throw INVALID_ZONE.create(trimmed);
+            }
+            return canonical;
+        }
+
+        @Override
+        public ArgumentType<String> getNativeType() {
+            return StringArgumentType.greedyString();
+        }
+
+        @Override
+        public <S> CompletableFuture<Suggestions> listSuggestions(CommandContext<S> context, SuggestionsBuilder builder) {
+            return suggest(builder, TimezoneUtil.completeTimezone(builder.getRemaining()));
+        }
+    }
+
+    /**
+     * The start and end times used in one version of the schedule. Times on the hour are
+     * offered as "9pm" and every time in the compact 24-hour form ("2100", "2130"), which
+     * the client accepts as a single word.
+     */
+    private static final class TimeCompletions {
+        private final long version;
+        private final PrefixIndex<Boolean> starts;
+        private final PrefixIndex<Boolean> ends;
+
+        private TimeCompletions(long version, PrefixIndex<Boolean> starts, PrefixIndex<Boolean> ends) {
+            this.version = version;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        private static TimeCompletions of(ScheduleSnapshot snapshot) {
+            Set<String> starts = new HashSet<>();
+            Set<String> ends = new HashSet<>();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                for (TimeSession session : snapshot.getSessions(day)) {
+                    addTime(starts, session.getStartMinute());
+                    addTime(ends, session.getEndMinute());
+                }
+            }
+            if (starts.isEmpty()) {
+                return new TimeCompletions(snapshot.getVersion(), DEFAULT_TIMES.starts, DEFAULT_TIMES.ends);
+            }
+            return new TimeCompletions(snapshot.getVersion(), index(starts), index(ends));
+        }
+
+        private static void addTime(Set<String> times, int minuteOfDay) {
+            int hour = minuteOfDay / 60;
+            int minute = minuteOfDay % 60;
+            times.add(String.format("%02d%02d", hour, minute));
+            if (minute == 0) {
+                times.add((hour % 12 == 0 ? 12 : hour % 12) + (hour < 12 ? "am" : "pm"));
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.servertimes.commands;
+
+import com.servertimes.model.ScheduleEvaluation;
+import com.servertimes.model.ScheduleSnapshot;
+import com.servertimes.model.TimeSession;
+import com.servertimes.scheduler.ServerScheduler;
+import com.servertimes.utils.ResolvedZone;
+
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rendered text of /servertimes list and status, kept until it can change.
+ * <p>
+ * The schedule listing only depends on the schedule version. The status report also
+ * depends on the current state (open, today's active sessions, the next transition) and
+ * on the viewer's zone, so it is cached per zone and dropped as soon as the schedule is
+ * edited or the next transition passes. Lines that show the current clock are not cached.
+ */
+public final class ScheduleRenderCache {
+    private static final String[] DAY_NAMES = new String[7];
+
+    static {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            String name = day.name().toLowerCase();
+            DAY_NAMES[day.getValue() - 1] = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    private ScheduleSnapshot listedSnapshot;
+    private String[] scheduleLines;
+    private final Map<DayOfWeek, String[]> dayLines = new EnumMap<>(DayOfWeek.class);
+
+    private ScheduleSnapshot statusSnapshot;
+    private ZonedDateTime statusTransition;
+    private final Map<StatusKey, StatusLines> statusLines = new HashMap<>();
+
+    /**
+     * Lines of the full weekly schedule
+     */
+    public synchronized String[] getScheduleLines(ScheduleSnapshot snapshot) {
+        checkSchedule(snapshot);
+        if (scheduleLines == null) {
+            scheduleLines = new String[7];
+            for (DayOfWeek day : DayOfWeek.values()) {
+                List<TimeSession> sessions = snapshot.getSessions(day);
+                String dayName = DAY_NAMES[day.getValue() - 1];
+                if (sessions.isEmpty()) {
+                    scheduleLines[day.getValue() - 1] = "§7" + dayName + ": §cClosed";
+                } else {
+                    StringBuilder sb = new StringBuilder();
+                    sb.append("§a").append(dayName).append(": §f");
+                    for (int i = 0; i < sessions.size(); i++) {
+                        if (i > 0) {
+                            sb.append(", ");
+                        }
+                        sb.append(sessions.get(i).toString());
+                    }
+                    scheduleLines[day.getValue() - 1] = sb.toString();
+                }
+            }
+        }
+        return scheduleLines;
+    }
+
+    /**
+     * Lines of one day's schedule, header included
+     */
+    public synchronized String[] getDayLines(ScheduleSnapshot snapshot, DayOfWeek day) {
+        checkSchedule(snapshot);
+        return dayLines.computeIfAbsent(day, key -> {
+            List<TimeSession> sessions = snapshot.getSessions(key);
+            String dayName = DAY_NAMES[key.getValue() - 1];
+            if (sessions.isEmpty()) {
+                return new String[] {"§6=== " + dayName + " Schedule ===", "§cNo sessions scheduled for " + dayName};
+            }
+            String[] lines = new String[sessions.size() + 1];
+            lines[0] = "§6=== " + dayName + " Schedule ===";
+            for (int i = 0; i < sessions.size(); i++) {
+                lines[i + 1] = "§a" + (i + 1) + ". §f" + sessions.get(i).toString();
+            }
+            return lines;
+        });
+    }
+
+    /**
+     * Status report lines for an evaluation, seen from a player's zone (null for the server's)
+     */
+    public synchronized StatusLines getStatusLines(ScheduleEvaluation evaluation, ResolvedZone viewerZone) {
+        // Edits replace the snapshot; a passed transition changes the next one
+        if (evaluation.getSnapshot() != statusSnapshot || !Objects.equals(evaluation.getNextTransition(), statusTransition)) {
+            statusLines.clear();
+            statusSnapshot = evaluation.getSnapshot();
+            statusTransition = evaluation.getNextTransition();
+        }
+
+        long localDay = viewerZone != null
+            ? viewerZone.at(evaluation.getInstant()).getLocalEpochDay(evaluation.getInstant().getEpochSecond()) : 0L;
+        StatusKey key = new StatusKey(viewerZone != null ? viewerZone.getZone() : null, localDay,
+            evaluation.getDay(), activeMask(evaluation));
+        StatusLines lines = statusLines.get(key);
+        if (lines == null) {
+            lines = renderStatus(evaluation, viewerZone);
+            statusLines.put(key, lines);
+        }
+        return lines;
+    }
+
+    private void checkSchedule(ScheduleSnapshot snapshot) {
+        if (snapshot != listedSnapshot) {
+            listedSnapshot = snapshot;
+            scheduleLines = null;
+            dayLines.clear();
+        }
+    }
+
+    private static long activeMask(ScheduleEvaluation evaluation) {
+        long mask = 0L;
+        int count = Math.min(evaluation.getTodaySessions().size(), 64);
+        for (int i = 0; i < count; i++) {
+            if (evaluation.isSessionActive(i)) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private static StatusLines renderStatus(ScheduleEvaluation evaluation, ResolvedZone viewerZone) {
+        String nextChange = ServerScheduler.describeNextChange(evaluation);
+        ZonedDateTime next = evaluation.getNextTransition();
+        if (next != null && viewerZone != null) {
+            ResolvedZone atNext = viewerZone.at(next.toInstant());
+            if (!atNext.getOffset().equals(next.getOffset())) {
+                nextChange += " (" + atNext.formatTime(next.toEpochSecond()) + " your time)";
+            }
+        }
+
+        String[] head = {
+            "§6=== Server Status ===",
+            "§fCurrent status: " + (evaluation.isOpen() ? "§aOPEN" : "§cCLOSED"),
+            "§fToday is: §a" + evaluation.getDay().name().toLowerCase(),
+            "§fNext change: §e" + nextChange
+        };
+
+        List<TimeSession> todaySessions = evaluation.getTodaySessions();
+        String[] sessions;
+        if (todaySessions.isEmpty()) {
+            sessions = new String[] {"§fToday's schedule: §cNo sessions"};
+        } else {
+            sessions = new String[todaySessions.size() + 1];
+            sessions[0] = "§fToday's schedule:";
+            for (int i = 0; i < todaySessions.size(); i++) {
+                String status = evaluation.isSessionActive(i) ? "§a[ACTIVE]" : "§7[INACTIVE]";
+                sessions[i + 1] = "  §f" + (i + 1) + ". " + todaySessions.get(i).toString() + " " + status;
+            }
+        }
+        return new StatusLines(head, sessions);
+    }
+
+    /**
+     * The cached parts of a status report: the summary and today's sessions
+     */
+    public static final class StatusLines {
+        private final String[] head;
+        private final String[] sessions;
+
+        private StatusLines(String[] head, String[] sessions) {
+            this.head = head;
+            this.sessions = sessions;
+        }
+
+        public String[] getHead() {
+            return head;
+        }
+
+        public String[] getSessions() {
+            return sessions;
+        }
+    }
+
+    private static final class StatusKey {
+        private final ZoneId zone;
+        private final long localDay;
+        private final DayOfWeek day;
+        private final long activeMask;
+
+        private StatusKey(ZoneId zone, long localDay, DayOfWeek day, long activeMask) {
+            this.zone = zone;
+            this.localDay = localDay;
+            this.day = day;
+            this.activeMask = activeMask;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatusKey)) {
+                return false;
+            }
+            StatusKey other = (StatusKey) o;
+            return localDay == other.localDay && activeMask == other.activeMask && day == other.day
+                && Objects.equals(zone, other.zone);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(zone, localDay, day, activeMask);
+        }
+    }
+}
@@ -1,407 +1,724 @@
 package com.servertimes.commands;
 
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import com.mojang.brigadier.tree.LiteralCommandNode;
 import com.servertimes.ServerTimesPlugin;
 import com.servertimes.config.ConfigManager;
+import com.servertimes.config.ScheduleDraft;
+import com.servertimes.config.ScheduleImporter;
+import com.servertimes.data.AttendanceRecorder;
+import com.servertimes.data.AttendanceStats;
 import com.servertimes.data.PlayerDataManager;
+import com.servertimes.model.ScheduleEvaluation;
+import com.servertimes.model.ScheduleSnapshot;
+import com.servertimes.model.ScheduleTimeline;
 import com.servertimes.model.TimeSession;
 import com.servertimes.scheduler.ServerScheduler;
 import com.servertimes.utils.PermissionUtil;
+import com.servertimes.utils.PrefixIndex;
+import com.servertimes.utils.ResolvedZone;
 import com.servertimes.utils.TimezoneUtil;
 import com.servertimes.utils.ValidationUtil;
-import org.bukkit.command.Command;
-import org.bukkit.command.CommandExecutor;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.Commands;
+import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
-import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.format.DateTimeParseException;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
-public class ServerTimesCommand implements CommandExecutor, TabCompleter {
+public class ServerTimesCommand {
+    // Bars for the attendance heatmap, lowest to highest
+    private static final char[] LEVELS = {'▁', '▂', '▃', '▄', '▅', '▆', '▇', '█'};
+    private static final int MAX_PREVIEW_WEEKS = 52;
+    // Longer previews are cut off, as chat only scrolls back so far
+    private static final int MAX_PREVIEW_LINES = 100;
+    
+    // Needed for the whole command, as the old plugin.yml entry did; admin subcommands also need op
+    private static final String PERMISSION = "servertimes.admin";
+    
+    // Subcommands for completion, built once; the value says which arguments follow
+    private static final PrefixIndex<Arguments> PLAYER_SUBCOMMANDS = subcommands("status");
+    private static final PrefixIndex<Arguments> ADMIN_SUBCOMMANDS = subcommands("status", "set", "add", "remove",
+        "list", "reload", "import", "stats", "preview", "batch", "help");
+    private static final PrefixIndex<Arguments> BATCH_ACTIONS = subcommands("begin", "commit", "abort");
+    
     private final ServerTimesPlugin plugin;
     private final ConfigManager configManager;
     private final ServerScheduler serverScheduler;
     private final PlayerDataManager playerDataManager;
+    private final AttendanceRecorder attendanceRecorder;
+    private final ScheduleImporter scheduleImporter;
+    private final ScheduleRenderCache renderCache = new ScheduleRenderCache();
+    private final CommandArguments arguments;
+    // Open batches, one per sender
+    private final Map<String, ScheduleDraft> drafts = new ConcurrentHashMap<>();
     
-    public ServerTimesCommand(ServerTimesPlugin plugin, ConfigManager configManager, ServerScheduler serverScheduler, PlayerDataManager playerDataManager) {
+    public ServerTimesCommand(ServerTimesPlugin plugin, ConfigManager configManager, ServerScheduler serverScheduler,
+                              PlayerDataManager playerDataManager, AttendanceRecorder attendanceRecorder) {
         this.plugin = plugin;
         this.configManager = configManager;
         this.serverScheduler = serverScheduler;
         this.playerDataManager = playerDataManager;
+        this.attendanceRecorder = attendanceRecorder;
+        this.scheduleImporter = new ScheduleImporter(plugin, configManager, serverScheduler);
+        this.arguments = new CommandArguments(configManager);
     }
     
-    @Override
-    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-        // Validate sender
-        if (sender == null) {
-            return false;
-        }
-        
-        if (args == null || args.length == 0) {
-            sendHelpMessage(sender);
-            return true;
-        }
-        
-        // Validate first argument
-        if (args[0] == null || args[0].trim().isEmpty()) {
-            sendHelpMessage(sender);
-            return true;
-        }
-        
-        String subCommand = args[0].toLowerCase().trim();
-        
-        // Allow status command for all players
-        if (subCommand.equals("status")) {
-            return handleStatusCommand(sender);
-        }
-        
-        // All other commands require operator permissions
-        if (!PermissionUtil.checkAdminPermission(sender)) {
-            return true;
-        }
-        
-        switch (subCommand) {
-            case "set":
-                return handleSetCommand(sender, args);
-            case "add":
-                return handleAddCommand(sender, args);
-            case "remove":
-                return handleRemoveCommand(sender, args);
-            case "list":
-                return handleListCommand(sender, args);
-            case "reload":
-                return handleReloadCommand(sender, args);
-            case "help":
-            default:
-                sendHelpMessage(sender);
-                return true;
-        }
+    /**
+     * The /servertimes command tree. The whole command needs servertimes.admin and the admin
+     * subcommands are only sent to operators, and arguments arrive parsed, so the handlers
+     * below do no argument checking of their own.
+     */
+    public LiteralCommandNode<CommandSourceStack> createNode() {
+        return Commands.literal("servertimes")
+            .requires(source -> source.getSender().hasPermission(PERMISSION))
+            .executes(context -> sendHelpMessage(sender(context)))
+            .then(Commands.literal("status")
+                .executes(context -> handleStatusCommand(sender(context))))
+            .then(admin("set")
+                .then(Commands.argument("day", CommandArguments.day())
+                    .then(Commands.argument("start", arguments.startTime())
+                        .then(Commands.argument("end", arguments.endTime())
+                            .executes(context -> handleSetCommand(sender(context), day(context),
+                                context.getArgument("start", Integer.class), context.getArgument("end", Integer.class)))))))
+            .then(admin("add")
+                .then(Commands.argument("day", CommandArguments.day())
+                    .then(Commands.argument("start", arguments.startTime())
+                        .then(Commands.argument("end", arguments.endTime())
+                            .executes(context -> handleAddCommand(sender(context), day(context),
+                                context.getArgument("start", Integer.class), context.getArgument("end", Integer.class)))))))
+            .then(admin("remove")
+                .then(Commands.argument("day", CommandArguments.day())
+                    .executes(context -> handleRemoveCommand(sender(context), day(context), 0))
+                    .then(Commands.argument("session", IntegerArgumentType.integer(1))
+                        .suggests(this::suggestSessions)
+                        .executes(context -> handleRemoveCommand(sender(context), day(context),
+                            IntegerArgumentType.getInteger(context, "session"))))))
+            .then(admin("list")
+                .executes(context -> handleListCommand(sender(context), null))
+                .then(Commands.argument("day", CommandArguments.day())
+                    .executes(context -> handleListCommand(sender(context), day(context)))))
+            .then(admin("reload")
+                .executes(context -> handleReloadCommand(sender(context))))
+            .then(admin("import")
+                .then(Commands.argument("file", StringArgumentType.string())
+                    .executes(context -> handleImportCommand(sender(context),
+                        StringArgumentType.getString(context, "file"), false))
+                    .then(Commands.literal("merge")
+                        .executes(context -> handleImportCommand(sender(context),
+                            StringArgumentType.getString(context, "file"), true)))))
+            .then(admin("stats")
+                .executes(context -> handleStatsCommand(sender(context), 0))
+                .then(Commands.argument("weeks-ago", IntegerArgumentType.integer(0, 52))
+                    .executes(context -> handleStatsCommand(sender(context),
+                        IntegerArgumentType.getInteger(context, "weeks-ago")))))
+            .then(admin("preview")
+                .executes(context -> handlePreviewCommand(sender(context), 1))
+                .then(Commands.argument("weeks", IntegerArgumentType.integer(1, MAX_PREVIEW_WEEKS))
+                    .executes(context -> handlePreviewCommand(sender(context),
+                        IntegerArgumentType.getInteger(context, "weeks")))))
+            .then(admin("batch")
+                .executes(context -> handleBatchStatus(sender(context)))
+                .then(Commands.literal("begin")
+                    .executes(context -> handleBatchBegin(sender(context))))
+                .then(Commands.literal("commit")
+                    .executes(context -> handleBatchCommit(sender(context))))
+                .then(Commands.literal("abort")
+                    .executes(context -> handleBatchAbort(sender(context)))))
+            .then(admin("help")
+                .executes(context -> sendHelpMessage(sender(context))))
+            .build();
     }
     
-    private boolean handleSetCommand(CommandSender sender, String[] args) {
-        if (args.length != 4) {
-            sender.sendMessage("§cUsage: /servertimes set <day> <start-time> <end-time>");
-            sender.sendMessage("§cExample: /servertimes set monday 9pm 10pm");
-            return true;
-        }
-        
-        // Validate arguments are not null or empty
-        for (int i = 1; i < args.length; i++) {
-            if (args[i] == null || args[i].trim().isEmpty()) {
-                sender.sendMessage("§cInvalid argument at position " + (i + 1) + ". Arguments cannot be empty.");
-                return true;
-            }
-        }
-        
-        DayOfWeek day = ValidationUtil.parseDayOfWeek(args[1].trim());
-        if (day == null) {
-            sender.sendMessage(ValidationUtil.getDayFormatErrorMessage());
-            return true;
+    // All other commands require operator permissions
+    private static LiteralArgumentBuilder<CommandSourceStack> admin(String name) {
+        return Commands.literal(name).requires(source -> PermissionUtil.hasAdminPermission(source.getSender()));
+    }
+    
+    private static CommandSender sender(CommandContext<CommandSourceStack> context) {
+        return context.getSource().getSender();
+    }
+    
+    private static DayOfWeek day(CommandContext<CommandSourceStack> context) {
+        return context.getArgument("day", DayOfWeek.class);
+    }
+    
+    // Session numbers of the day before it, from the current schedule
+    private CompletableFuture<Suggestions> suggestSessions(CommandContext<CommandSourceStack> context,
+                                                           SuggestionsBuilder builder) {
+        for (String number : completeSession(sender(context), day(context), builder.getRemaining())) {
+            builder.suggest(number);
         }
-        
+        return builder.buildFuture();
+    }
+    
+    private int handleSetCommand(CommandSender sender, DayOfWeek day, int startMinute, int endMinute) {
         try {
-            TimeSession session = new TimeSession(args[2].trim(), args[3].trim());
+            TimeSession session = TimeSession.ofMinutes(startMinute, endMinute);
             List<TimeSession> sessions = new ArrayList<>();
             sessions.add(session);
-            configManager.setSessionsForDay(day, sessions);
+            ScheduleDraft draft = drafts.get(draftKey(sender));
+            List<String> conflicts = draft != null ? draft.setSessions(day, sessions) : configManager.setSessionsForDay(day, sessions);
             
-            sender.sendMessage("§aSet server times for " + day.name().toLowerCase() + ": " + session.toString());
-            serverScheduler.updateSchedule();
-        } catch (DateTimeParseException e) {
-            sender.sendMessage(ValidationUtil.getTimeFormatErrorMessage());
+            sender.sendMessage((draft != null ? "§aStaged: set " : "§aSet server times for ") + day.name().toLowerCase() + ": " + session.toString());
+            sendConflicts(sender, conflicts);
+            if (draft == null) {
+                serverScheduler.updateSchedule();
+            }
         } catch (Exception e) {
             sender.sendMessage("§cError setting server times: " + e.getMessage());
             plugin.getLogger().warning("Error in handleSetCommand: " + e.getMessage());
         }
         
-        return true;
+        return Command.SINGLE_SUCCESS;
     }
     
-    private boolean handleAddCommand(CommandSender sender, String[] args) {
-        if (args.length != 4) {
-            sender.sendMessage("§cUsage: /servertimes add <day> <start-time> <end-time>");
-            sender.sendMessage("§cExample: /servertimes add sunday 7pm 8pm");
-            return true;
-        }
-        
-        // Validate arguments are not null or empty
-        for (int i = 1; i < args.length; i++) {
-            if (args[i] == null || args[i].trim().isEmpty()) {
-                sender.sendMessage("§cInvalid argument at position " + (i + 1) + ". Arguments cannot be empty.");
-                return true;
-            }
-        }
-        
-        DayOfWeek day = ValidationUtil.parseDayOfWeek(args[1].trim());
-        if (day == null) {
-            sender.sendMessage(ValidationUtil.getDayFormatErrorMessage());
-            return true;
-        }
-        
+    private int handleAddCommand(CommandSender sender, DayOfWeek day, int startMinute, int endMinute) {
         try {
-            TimeSession session = new TimeSession(args[2].trim(), args[3].trim());
-            configManager.addSessionForDay(day, session);
+            TimeSession session = TimeSession.ofMinutes(startMinute, endMinute);
+            ScheduleDraft draft = drafts.get(draftKey(sender));
+            List<String> conflicts = draft != null ? draft.addSession(day, session) : configManager.addSessionForDay(day, session);
             
-            sender.sendMessage("§aAdded session for " + day.name().toLowerCase() + ": " + session.toString());
-            serverScheduler.updateSchedule();
-        } catch (DateTimeParseException e) {
-            sender.sendMessage(ValidationUtil.getTimeFormatErrorMessage());
+            sender.sendMessage((draft != null ? "§aStaged: add session for " : "§aAdded session for ") + day.name().toLowerCase() + ": " + session.toString());
+            sendConflicts(sender, conflicts);
+            if (draft == null) {
+                serverScheduler.updateSchedule();
+            }
         } catch (Exception e) {
             sender.sendMessage("§cError adding session: " + e.getMessage());
             plugin.getLogger().warning("Error in handleAddCommand: " + e.getMessage());
         }
         
-        return true;
+        return Command.SINGLE_SUCCESS;
     }
     
-    private boolean handleRemoveCommand(CommandSender sender, String[] args) {
-        if (args.length < 2 || args.length > 3) {
-            sender.sendMessage("§cUsage: /servertimes remove <day> [session-number]");
-            sender.sendMessage("§cExample: /servertimes remove monday 1");
-            sender.sendMessage("§cOmit session number to remove all sessions for the day");
-            return true;
-        }
-        
-        // Validate day argument
-        if (args[1] == null || args[1].trim().isEmpty()) {
-            sender.sendMessage("§cDay argument cannot be empty.");
-            return true;
+    // A session number of 0 removes every session of the day
+    private int handleRemoveCommand(CommandSender sender, DayOfWeek day, int sessionNumber) {
+        ScheduleDraft draft = drafts.get(draftKey(sender));
+        if (draft != null) {
+            return stageRemove(sender, draft, day, sessionNumber);
         }
         
-        // Validate session number argument if provided
-        if (args.length == 3 && (args[2] == null || args[2].trim().isEmpty())) {
-            sender.sendMessage("§cSession number argument cannot be empty.");
-            return true;
-        }
-        
-        DayOfWeek day = ValidationUtil.parseDayOfWeek(args[1].trim());
-        if (day == null) {
-            sender.sendMessage(ValidationUtil.getDayFormatErrorMessage());
-            return true;
-        }
-        
-        if (args.length == 2) {
+        if (sessionNumber == 0) {
             // Remove all sessions for the day
             configManager.clearSessionsForDay(day);
             sender.sendMessage("§aRemoved all sessions for " + day.name().toLowerCase());
         } else {
             // Remove specific session
             try {
-                int sessionNumber = Integer.parseInt(args[2].trim()) - 1; // Convert to 0-based index
+                int index = sessionNumber - 1; // Convert to 0-based index
                 List<TimeSession> sessions = configManager.getSessionsForDay(day);
                 
                 if (sessions == null || sessions.isEmpty()) {
                     sender.sendMessage("§cNo sessions found for " + day.name().toLowerCase() + ".");
-                    return true;
+                    return Command.SINGLE_SUCCESS;
                 }
                 
-                if (sessionNumber < 0 || sessionNumber >= sessions.size()) {
+                if (index >= sessions.size()) {
                     sender.sendMessage("§cInvalid session number. Use /servertimes list " + day.name().toLowerCase() + " to see available sessions.");
-                    return true;
+                    return Command.SINGLE_SUCCESS;
                 }
                 
-                TimeSession removedSession = sessions.get(sessionNumber);
-                configManager.removeSessionForDay(day, sessionNumber);
-                sender.sendMessage("§aRemoved session " + (sessionNumber + 1) + " for " + day.name().toLowerCase() + ": " + removedSession.toString());
-            } catch (NumberFormatException e) {
-                sender.sendMessage("§cInvalid session number. Must be a number.");
-                return true;
+                TimeSession removedSession = sessions.get(index);
+                configManager.removeSessionForDay(day, index);
+                sender.sendMessage("§aRemoved session " + sessionNumber + " for " + day.name().toLowerCase() + ": " + removedSession.toString());
             } catch (Exception e) {
                 sender.sendMessage("§cError removing session: " + e.getMessage());
                 plugin.getLogger().warning("Error in handleRemoveCommand: " + e.getMessage());
-                return true;
+                return Command.SINGLE_SUCCESS;
             }
         }
         
         serverScheduler.updateSchedule();
-        return true;
+        return Command.SINGLE_SUCCESS;
     }
     
-    private boolean handleListCommand(CommandSender sender, String[] args) {
-        try {
-            if (args.length == 1) {
-                // List all days
-                sender.sendMessage("§6=== Server Schedule ===");
-                Map<DayOfWeek, List<TimeSession>> schedule = configManager.getFullSchedule();
-                
-                for (DayOfWeek day : DayOfWeek.values()) {
-                    List<TimeSession> sessions = schedule.get(day);
-                    String dayName = day.name().toLowerCase();
-                    dayName = dayName.substring(0, 1).toUpperCase() + dayName.substring(1);
-                    
-                    if (sessions == null || sessions.isEmpty()) {
-                        sender.sendMessage("§7" + dayName + ": §cClosed");
-                    } else {
-                        StringBuilder sb = new StringBuilder();
-                        sb.append("§a").append(dayName).append(": §f");
-                        for (int i = 0; i < sessions.size(); i++) {
-                            TimeSession session = sessions.get(i);
-                            if (session != null) {
-                                if (i > 0) sb.append(", ");
-                                sb.append(session.toString());
-                            }
-                        }
-                        sender.sendMessage(sb.toString());
-                    }
-                }
-            } else if (args.length == 2) {
-                // List specific day
-                if (args[1] == null || args[1].trim().isEmpty()) {
-                    sender.sendMessage("§cDay argument cannot be empty.");
-                    return true;
+    private int stageRemove(CommandSender sender, ScheduleDraft draft, DayOfWeek day, int sessionNumber) {
+        if (sessionNumber == 0) {
+            draft.clearSessions(day);
+            sender.sendMessage("§aStaged: remove all sessions for " + day.name().toLowerCase());
+            return Command.SINGLE_SUCCESS;
+        }
+        
+        List<TimeSession> sessions = draft.getSessions(day);
+        if (sessionNumber > sessions.size()) {
+            sender.sendMessage("§cInvalid session number. Use /servertimes batch to see the staged sessions.");
+            return Command.SINGLE_SUCCESS;
+        }
+        TimeSession removedSession = sessions.get(sessionNumber - 1);
+        draft.removeSession(day, sessionNumber - 1);
+        sender.sendMessage("§aStaged: remove session " + sessionNumber + " for " + day.name().toLowerCase() + ": " + removedSession);
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    // Previews the sender's open batch if there is one, otherwise the live schedule
+    private int handlePreviewCommand(CommandSender sender, int weeks) {
+        ScheduleDraft draft = drafts.get(draftKey(sender));
+        ScheduleSnapshot snapshot = draft != null
+            ? ScheduleSnapshot.of(draft.getDays(), -1L) : configManager.getSnapshot();
+        ZoneId zone = configManager.getServerZone();
+        Instant now = Instant.now();
+        replyAsync(sender, "handlePreviewCommand", "§cError previewing schedule: ", () -> {
+            Instant until = now.atZone(zone).plusWeeks(weeks).toInstant();
+            List<ScheduleTimeline.Transition> transitions = ScheduleTimeline.between(snapshot, zone, now, until);
+            Deque<ZoneOffsetTransition> clockChanges = new ArrayDeque<>(ScheduleTimeline.clockChanges(zone, now, until));
+            
+            List<String> lines = new ArrayList<>();
+            lines.add("§6=== Preview: " + (draft != null ? "staged batch" : "current schedule") + ", next "
+                + weeks + " week(s), " + zone.getId() + " ===");
+            if (transitions.isEmpty()) {
+                lines.add(ScheduleEvaluation.evaluate(snapshot, now, zone).isOpen()
+                    ? "§aAlways open, no closes in this period" : "§cClosed for the whole period");
+            }
+            
+            Instant lastOpen = now;
+            int shown = 0;
+            for (ScheduleTimeline.Transition transition : transitions) {
+                ZonedDateTime at = transition.getTime();
+                while (!clockChanges.isEmpty() && clockChanges.peek().getInstant().isBefore(at.toInstant())) {
+                    ZoneOffsetTransition change = clockChanges.poll();
+                    lines.add("§d" + describePreviewTime(change.getInstant().atZone(zone)) + " clocks change from "
+                        + change.getOffsetBefore() + " to " + change.getOffsetAfter());
                 }
-                
-                DayOfWeek day = ValidationUtil.parseDayOfWeek(args[1].trim());
-                if (day == null) {
-                    sender.sendMessage(ValidationUtil.getDayFormatErrorMessage());
-                    return true;
+                if (shown == MAX_PREVIEW_LINES) {
+                    lines.add("§7... and " + (transitions.size() - shown) + " more; use fewer weeks to see them");
+                    break;
                 }
                 
-                List<TimeSession> sessions = configManager.getSessionsForDay(day);
-                String dayName = day.name().toLowerCase();
-                dayName = dayName.substring(0, 1).toUpperCase() + dayName.substring(1);
-                
-                sender.sendMessage("§6=== " + dayName + " Schedule ===");
-                if (sessions == null || sessions.isEmpty()) {
-                    sender.sendMessage("§cNo sessions scheduled for " + dayName);
-                } else {
-                    for (int i = 0; i < sessions.size(); i++) {
-                        TimeSession session = sessions.get(i);
-                        if (session != null) {
-                            sender.sendMessage("§a" + (i + 1) + ". §f" + session.toString());
-                        }
+                StringBuilder line = new StringBuilder("§f").append(describePreviewTime(at))
+                    .append(transition.opens() ? " §aopens" : " §ccloses");
+                if (!transition.opens()) {
+                    Instant warnAt = at.toInstant().minusSeconds(ServerScheduler.CLOSING_WARNING_MINUTES * 60L);
+                    if (warnAt.isAfter(lastOpen)) {
+                        line.append(" §7(warning at ").append(warnAt.atZone(zone).toLocalTime()).append(")");
                     }
                 }
-            } else {
-                sender.sendMessage("§cUsage: /servertimes list [day]");
+                if (transition.isShifted()) {
+                    line.append(" §e(moved by the DST change)");
+                } else if (transition.isAmbiguous()) {
+                    line.append(" §e(the first " + at.toLocalTime() + ", DST change)");
+                }
+                if (transition.opens()) {
+                    lastOpen = at.toInstant();
+                }
+                lines.add(line.toString());
+                shown++;
+            }
+            return lines;
+        });
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    private static String describePreviewTime(ZonedDateTime time) {
+        return time.getDayOfWeek().name().substring(0, 3).toLowerCase() + " " + time.toLocalDate() + " " + time.toLocalTime();
+    }
+    
+    private int handleBatchBegin(CommandSender sender) {
+        String key = draftKey(sender);
+        if (drafts.containsKey(key)) {
+            sender.sendMessage("§cA batch is already open. Use /servertimes batch commit or /servertimes batch abort first.");
+            return Command.SINGLE_SUCCESS;
+        }
+        drafts.put(key, configManager.beginDraft());
+        sender.sendMessage("§aBatch started. set, add and remove now edit a draft of the schedule;");
+        sender.sendMessage("§athe server keeps the current schedule until §f/servertimes batch commit§a.");
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    private int handleBatchCommit(CommandSender sender) {
+        String key = draftKey(sender);
+        ScheduleDraft draft = drafts.get(key);
+        if (draft == null) {
+            sender.sendMessage("§cNo batch is open. Start one with /servertimes batch begin.");
+            return Command.SINGLE_SUCCESS;
+        }
+        if (draft.getChangedDays().isEmpty()) {
+            drafts.remove(key);
+            sender.sendMessage("§7Batch closed; it made no changes to the schedule.");
+            return Command.SINGLE_SUCCESS;
+        }
+        
+        try {
+            List<String> conflicts = configManager.commitDraft(draft);
+            if (conflicts == null) {
+                sender.sendMessage("§cA day this batch edits was changed by someone else since it began; nothing was applied.");
+                sender.sendMessage("§cUse /servertimes batch abort and start again.");
+                return Command.SINGLE_SUCCESS;
             }
+            drafts.remove(key);
+            sender.sendMessage("§aCommitted " + draft.getEditCount() + " edit(s), changing " + draft.getChangedDays().size() + " day(s).");
+            sendConflicts(sender, conflicts);
+            serverScheduler.updateSchedule();
+        } catch (IllegalArgumentException e) {
+            // The batch stays open so it can be fixed
+            sender.sendMessage("§cBatch rejected: " + e.getMessage());
         } catch (Exception e) {
-            sender.sendMessage("§cError listing sessions: " + e.getMessage());
-            plugin.getLogger().warning("Error in handleListCommand: " + e.getMessage());
+            sender.sendMessage("§cError committing batch: " + e.getMessage());
+            plugin.getLogger().warning("Error in handleBatchCommit: " + e.getMessage());
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    private int handleBatchAbort(CommandSender sender) {
+        if (drafts.remove(draftKey(sender)) == null) {
+            sender.sendMessage("§cNo batch is open.");
+        } else {
+            sender.sendMessage("§aBatch discarded; the schedule is unchanged.");
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    // Shows the staged version of the days the batch changes
+    private int handleBatchStatus(CommandSender sender) {
+        ScheduleDraft draft = drafts.get(draftKey(sender));
+        if (draft == null) {
+            sender.sendMessage("§7No batch is open. Usage: /servertimes batch <begin|commit|abort>");
+            return Command.SINGLE_SUCCESS;
         }
         
-        return true;
+        Set<DayOfWeek> changedDays = draft.getChangedDays();
+        sender.sendMessage("§6=== Batch: " + draft.getEditCount() + " edit(s), " + changedDays.size() + " day(s) changed ===");
+        for (DayOfWeek day : changedDays) {
+            List<TimeSession> sessions = draft.getSessions(day);
+            StringBuilder line = new StringBuilder("§f").append(day.name().toLowerCase()).append(": ");
+            if (sessions.isEmpty()) {
+                line.append("§cclosed");
+            }
+            for (int i = 0; i < sessions.size(); i++) {
+                line.append(i > 0 ? "§7, " : "").append("§e").append(i + 1).append(". §a").append(sessions.get(i));
+            }
+            sender.sendMessage(line.toString());
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    // Players by id, so a batch survives a rename; the console by name
+    private static String draftKey(CommandSender sender) {
+        return sender instanceof Player ? ((Player) sender).getUniqueId().toString() : sender.getName();
+    }
+    
+    // A null day lists the whole week
+    private int handleListCommand(CommandSender sender, DayOfWeek day) {
+        ScheduleSnapshot snapshot = configManager.getSnapshot();
+        replyAsync(sender, "handleListCommand", "§cError listing sessions: ", () -> {
+            List<String> lines = new ArrayList<>();
+            if (day == null) {
+                // List all days
+                lines.add("§6=== Server Schedule ===");
+                Collections.addAll(lines, renderCache.getScheduleLines(snapshot));
+            } else {
+                Collections.addAll(lines, renderCache.getDayLines(snapshot, day));
+            }
+            return lines;
+        });
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    private int handleReloadCommand(CommandSender sender) {
+        File configFile = new File(plugin.getDataFolder(), "config.yml");
+        if (!configFile.isFile()) {
+            // Nothing to parse; the blocking load writes the default config
+            applyReload(sender, null);
+            return Command.SINGLE_SUCCESS;
+        }
+        
+        // Read and parse off the main thread; only installing the result happens on it
+        sender.sendMessage("§7Reloading configuration...");
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            ConfigManager.ParsedConfig parsed;
+            try {
+                parsed = configManager.parseConfig(Files.readAllBytes(configFile.toPath()));
+            } catch (Exception e) {
+                plugin.getLogger().warning("Error in handleReloadCommand: " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin, () ->
+                    sender.sendMessage("§cError reloading configuration: " + e.getMessage()));
+                return;
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> applyReload(sender, parsed));
+        });
+        return Command.SINGLE_SUCCESS;
     }
     
-    private boolean handleReloadCommand(CommandSender sender, String[] args) {
+    // Main thread only
+    private void applyReload(CommandSender sender, ConfigManager.ParsedConfig parsed) {
         try {
-            configManager.loadConfig();
+            Set<DayOfWeek> changedDays = parsed != null && parsed.isValid() ? configManager.applyParsedConfig(parsed) : null;
+            if (changedDays == null) {
+                // A config with errors, or one saved while it was parsed, gets the full blocking load
+                configManager.loadConfig();
+            }
             serverScheduler.updateSchedule();
             sender.sendMessage("§aConfiguration reloaded successfully!");
+            sendConflicts(sender, configManager.getLastConflicts());
         } catch (Exception e) {
             sender.sendMessage("§cError reloading configuration: " + e.getMessage());
             plugin.getLogger().warning("Error in handleReloadCommand: " + e.getMessage());
         }
-        return true;
     }
     
-    private boolean handleStatusCommand(CommandSender sender) {
-        try {
-            DayOfWeek today = DayOfWeek.from(java.time.LocalDate.now());
-            
-            // Get player's timezone if they are a player
-            String playerTimezone = null;
-            ZoneId timezone = ZoneId.systemDefault();
-            if (sender instanceof Player) {
-                Player player = (Player) sender;
-                playerTimezone = playerDataManager.getPlayerTimezone(player.getUniqueId());
-                if (playerTimezone != null) {
-                    timezone = TimezoneUtil.getZoneId(playerTimezone);
+    private int handleImportCommand(CommandSender sender, String fileName, boolean merge) {
+        if (fileName.trim().isEmpty()) {
+            sender.sendMessage("§cFile argument cannot be empty.");
+            return Command.SINGLE_SUCCESS;
+        }
+        
+        scheduleImporter.importFile(sender, fileName.trim(), merge);
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    private int handleStatsCommand(CommandSender sender, int weeksAgo) {
+        if (!configManager.isAttendanceEnabled()) {
+            sender.sendMessage("§cAttendance recording is turned off (settings.record_attendance).");
+            return Command.SINGLE_SUCCESS;
+        }
+        
+        // Read everything the computation needs here, then stream the file off the main thread
+        Instant now = Instant.now();
+        ZoneId zone = configManager.getServerZone();
+        ScheduleSnapshot snapshot = configManager.getSnapshot();
+        LocalDate weekStart = AttendanceRecorder.weekStart(now, zone).minusWeeks(weeksAgo);
+        
+        sender.sendMessage("§7Computing attendance for the week of " + weekStart + "...");
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<String> lines;
+            try {
+                lines = renderStats(AttendanceStats.compute(attendanceRecorder, weekStart, snapshot, zone, now), weekStart);
+            } catch (IOException e) {
+                lines = Collections.singletonList("§cError reading attendance: " + e.getMessage());
+                plugin.getLogger().warning("Error in handleStatsCommand: " + e.getMessage());
+            }
+            List<String> result = lines;
+            Bukkit.getScheduler().runTask(plugin, () -> result.forEach(sender::sendMessage));
+        });
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    private static List<String> renderStats(AttendanceStats stats, LocalDate weekStart) {
+        List<String> lines = new ArrayList<>();
+        if (stats == null) {
+            lines.add("§cNo attendance was recorded in the week of " + weekStart + ".");
+            return lines;
+        }
+        
+        lines.add("§6=== Attendance, week of " + weekStart + " ===");
+        if (stats.getSessions().isEmpty()) {
+            lines.add("§7No sessions are scheduled.");
+        } else {
+            lines.add("§fSessions §7(peak online, different players):");
+            for (AttendanceStats.SessionAttendance attendance : stats.getSessions()) {
+                String label = shortDay(attendance.getDay()) + " " + attendance.getSession();
+                if (attendance.hasStarted()) {
+                    lines.add("  §a" + label + " §f- peak §e" + attendance.getPeak()
+                        + "§f, §e" + attendance.getPlayerCount() + " §fplayers");
+                } else {
+                    lines.add("  §7" + label + " - not yet");
                 }
             }
+        }
+        
+        int[][] hourly = stats.getHourlyPeak();
+        int max = 0;
+        for (int[] day : hourly) {
+            for (int count : day) {
+                max = Math.max(max, count);
+            }
+        }
+        lines.add("§fPeak online by hour §7(00:00 to 23:00):");
+        for (DayOfWeek day : DayOfWeek.values()) {
+            StringBuilder sb = new StringBuilder("  §7").append(shortDay(day)).append(' ');
+            String colour = null;
+            for (int count : hourly[day.getValue() - 1]) {
+                // Only switch colour where the row goes from empty to busy hours or back
+                String next = count == 0 ? "§8" : "§a";
+                if (!next.equals(colour)) {
+                    sb.append(next);
+                    colour = next;
+                }
+                sb.append(count == 0 ? '·' : LEVELS[(count * LEVELS.length - 1) / max]);
+            }
+            lines.add(sb.toString());
+        }
+        lines.add("§7Scale: " + LEVELS[LEVELS.length - 1] + " = " + max + " player(s) online; "
+            + stats.getRecordCount() + " joins and quits recorded");
+        return lines;
+    }
+    
+    private static String shortDay(DayOfWeek day) {
+        String name = day.name();
+        return name.charAt(0) + name.substring(1, 3).toLowerCase();
+    }
+    
+    private int handleStatusCommand(CommandSender sender) {
+        // One clock read and one set of schedules for the whole report, taken here and
+        // evaluated off the main thread
+        Instant now = Instant.now();
+        ScheduleSnapshot snapshot = configManager.getSnapshot();
+        ZoneId serverZone = configManager.getServerZone();
+        Map<String, ScheduleSnapshot> worlds = configManager.getWorldSnapshots();
+        UUID playerId = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
+        
+        replyAsync(sender, "handleStatusCommand", "§cError retrieving server status: ", () -> {
+            List<String> lines = new ArrayList<>();
+            ScheduleEvaluation evaluation = ScheduleEvaluation.evaluate(snapshot, now, serverZone);
             
-            // Check if server is open in the player's timezone
-            List<TimeSession> todaySessions = configManager.getSessionsForDay(today);
-            final String finalPlayerTimezone = playerTimezone; // Make effectively final for lambda
-            boolean isOpen = todaySessions.stream().anyMatch(session -> 
-                finalPlayerTimezone != null ? session.isCurrentlyActive(finalPlayerTimezone) : session.isCurrentlyActive());
+            // Get player's timezone if they are a player
+            ResolvedZone playerZone = playerId != null ? playerDataManager.getResolvedZone(playerId, now) : null;
             
-            sender.sendMessage("§6=== Server Status ===");
-            sender.sendMessage("§fCurrent status: " + (isOpen ? "§aOPEN" : "§cCLOSED"));
-            sender.sendMessage("§fToday is: §a" + today.name().toLowerCase());
+            ScheduleRenderCache.StatusLines status = renderCache.getStatusLines(evaluation, playerZone);
+            Collections.addAll(lines, status.getHead());
             
-            if (finalPlayerTimezone != null) {
-                sender.sendMessage("§fYour timezone: §e" + TimezoneUtil.formatTimezoneDisplay(finalPlayerTimezone));
+            if (playerZone != null) {
+                lines.add("§fYour timezone: §e" + TimezoneUtil.formatTimezoneDisplay(playerZone, now));
             } else {
-                sender.sendMessage("§fTimezone: §7Server Default (use §f/timezone§7 to set yours)");
+                lines.add("§fTimezone: §7Server Default (use §f/timezone§7 to set yours)");
             }
             
-            if (todaySessions.isEmpty()) {
-                sender.sendMessage("§fToday's schedule: §cNo sessions");
-            } else {
-                sender.sendMessage("§fToday's schedule:");
-                for (int i = 0; i < todaySessions.size(); i++) {
-                    TimeSession session = todaySessions.get(i);
-                    boolean sessionActive = finalPlayerTimezone != null ? 
-                        session.isCurrentlyActive(finalPlayerTimezone) : session.isCurrentlyActive();
-                    String status = sessionActive ? "§a[ACTIVE]" : "§7[INACTIVE]";
-                    sender.sendMessage("  §f" + (i + 1) + ". " + session.toString() + " " + status);
+            Collections.addAll(lines, status.getSessions());
+            
+            if (!worlds.isEmpty()) {
+                lines.add("§fWorld schedules:");
+                for (Map.Entry<String, ScheduleSnapshot> world : worlds.entrySet()) {
+                    boolean open = ScheduleEvaluation.evaluate(world.getValue(), now, serverZone).isOpen();
+                    lines.add("  §f" + world.getKey() + ": " + (open ? "§aOPEN" : "§cCLOSED"));
                 }
             }
-        } catch (Exception e) {
-            sender.sendMessage("§cError retrieving server status: " + e.getMessage());
-            plugin.getLogger().warning("Error in handleStatusCommand: " + e.getMessage());
+            return lines;
+        });
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    // Build a reply off the main thread from values the caller captured, then send it on the main thread
+    private void replyAsync(CommandSender sender, String handler, String errorPrefix, Supplier<List<String>> reply) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<String> lines;
+            try {
+                lines = reply.get();
+            } catch (Exception e) {
+                lines = Collections.singletonList(errorPrefix + e.getMessage());
+                plugin.getLogger().warning("Error in " + handler + ": " + e.getMessage());
+            }
+            List<String> result = lines;
+            Bukkit.getScheduler().runTask(plugin, () -> result.forEach(sender::sendMessage));
+        });
+    }
+    
+    private void sendConflicts(CommandSender sender, List<String> conflicts) {
+        if (conflicts == null) {
+            return;
+        }
+        for (String conflict : conflicts) {
+            sender.sendMessage("§e" + conflict);
         }
-        
-        return true;
     }
     
-    private void sendHelpMessage(CommandSender sender) {
+    private int sendHelpMessage(CommandSender sender) {
         sender.sendMessage("§6=== ServerTimes Commands ===");
         sender.sendMessage("§a/servertimes set <day> <start> <end> §7- Set server times for a day");
         sender.sendMessage("§a/servertimes add <day> <start> <end> §7- Add additional session for a day");
         sender.sendMessage("§a/servertimes remove <day> [session#] §7- Remove session(s) for a day");
+        sender.sendMessage("§a/servertimes preview [weeks] §7- Show upcoming opens and closes");
+        sender.sendMessage("§a/servertimes batch <begin|commit|abort> §7- Stage several edits and apply them at once");
         sender.sendMessage("§a/servertimes list [day] §7- List current schedule");
         sender.sendMessage("§a/servertimes status §7- Check current server status");
         sender.sendMessage("§a/servertimes reload §7- Reload configuration");
+        sender.sendMessage("§a/servertimes import <file> [merge] §7- Import a .csv or .ics schedule");
+        sender.sendMessage("§a/servertimes stats [weeks-ago] §7- Show attendance per session and hour");
         sender.sendMessage("§7Time formats: 21:00, 9pm, 9:30pm");
         sender.sendMessage("§7Days: monday, tuesday, wednesday, thursday, friday, saturday, sunday");
+        return Command.SINGLE_SUCCESS;
     }
     
-
-    
-    @Override
-    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
-        List<String> completions = new ArrayList<>();
-        
+    /**
+     * Completes from prebuilt indexes without touching server state, for the async
+     * tab-complete event
+     */
+    public List<String> complete(CommandSender sender, String[] args) {
+        if (!sender.hasPermission(PERMISSION)) {
+            return Collections.emptyList();
+        }
+        boolean admin = PermissionUtil.hasAdminPermission(sender);
         if (args.length == 1) {
-            // All players can see status command
-            List<String> subCommands = new ArrayList<>();
-            subCommands.add("status");
-            
-            // Only operators can see admin commands
-            if (PermissionUtil.hasAdminPermission(sender)) {
-                subCommands.addAll(Arrays.asList("set", "add", "remove", "list", "reload", "help"));
-            }
-            
-            return subCommands.stream()
-                    .filter(cmd -> cmd.toLowerCase().startsWith(args[0].toLowerCase()))
-                    .collect(Collectors.toList());
+            // Holders of the permission see status; only operators see the admin commands
+            return (admin ? ADMIN_SUBCOMMANDS : PLAYER_SUBCOMMANDS).complete(args[0]);
         }
         
         // Only operators can tab complete admin commands
-        if (!PermissionUtil.hasAdminPermission(sender)) {
-            return completions;
+        Arguments following = admin ? ADMIN_SUBCOMMANDS.get(args[0]) : null;
+        if (following == null || following == Arguments.NONE) {
+            return Collections.emptyList();
         }
         
-        if (args.length == 2 && (args[0].equalsIgnoreCase("set") || args[0].equalsIgnoreCase("add") || 
-                                       args[0].equalsIgnoreCase("remove") || args[0].equalsIgnoreCase("list"))) {
-            // Days of week
-            List<String> days = Arrays.asList("monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday");
-            return days.stream()
-                    .filter(day -> day.toLowerCase().startsWith(args[1].toLowerCase()))
-                    .collect(Collectors.toList());
-        } else if (args.length == 3 && (args[0].equalsIgnoreCase("set") || args[0].equalsIgnoreCase("add"))) {
-            // Time suggestions for start time
-            return Arrays.asList("9am", "10am", "12pm", "1pm", "6pm", "7pm", "8pm", "9pm", "10pm");
-        } else if (args.length == 4 && (args[0].equalsIgnoreCase("set") || args[0].equalsIgnoreCase("add"))) {
-            // Time suggestions for end time
-            return Arrays.asList("10am", "11am", "1pm", "2pm", "7pm", "8pm", "9pm", "10pm", "11pm", "12am");
+        if (following == Arguments.BATCH_ACTION) {
+            return args.length == 2 ? BATCH_ACTIONS.complete(args[1]) : Collections.emptyList();
+        } else if (args.length == 2) {
+            return CommandArguments.completeDay(args[1]);
+        } else if (following == Arguments.DAY_AND_TIMES && args.length == 3) {
+            return arguments.completeTime(args[2], true);
+        } else if (following == Arguments.DAY_AND_TIMES && args.length == 4) {
+            return arguments.completeTime(args[3], false);
+        } else if (following == Arguments.DAY_AND_SESSION && args.length == 3) {
+            DayOfWeek day = ValidationUtil.parseDayOfWeek(args[1]);
+            return day != null ? completeSession(sender, day, args[2]) : Collections.emptyList();
         }
-        
-        return completions;
+        return Collections.emptyList();
+    }
+    
+    // Numbers the sender's open batch, if any, since that is what remove edits
+    private List<String> completeSession(CommandSender sender, DayOfWeek day, String typed) {
+        List<String> numbers = new ArrayList<>();
+        ScheduleDraft draft = drafts.get(draftKey(sender));
+        int count = (draft != null ? draft.getSessions(day) : configManager.getSnapshot().getSessions(day)).size();
+        for (int i = 1; i <= count; i++) {
+            String number = Integer.toString(i);
+            if (number.startsWith(typed)) {
+                numbers.add(number);
+            }
+        }
+        return numbers;
+    }
+    
+    private static PrefixIndex<Arguments> subcommands(String... names) {
+        Map<String, Arguments> entries = new HashMap<>();
+        for (String name : names) {
+            Arguments following = Arguments.NONE;
+            if (name.equals("set") || name.equals("add")) {
+                following = Arguments.DAY_AND_TIMES;
+            } else if (name.equals("remove")) {
+                following = Arguments.DAY_AND_SESSION;
+            } else if (name.equals("list")) {
+                following = Arguments.DAY;
+            } else if (name.equals("batch")) {
+                following = Arguments.BATCH_ACTION;
+            }
+            entries.put(name, following);
+        }
+        return PrefixIndex.build(entries);
+    }
+    
+    private enum Arguments {
+        NONE,
+        DAY,
+        DAY_AND_TIMES,
+        DAY_AND_SESSION,
+        BATCH_ACTION
     }
-}
\ No newline at end of file
+}
@@ -1,20 +1,25 @@
 package com.servertimes.commands;
 
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.tree.LiteralCommandNode;
 import com.servertimes.ServerTimesPlugin;
 import com.servertimes.data.PlayerDataManager;
+import com.servertimes.utils.PrefixIndex;
 import com.servertimes.utils.TimezoneUtil;
-import org.bukkit.command.Command;
-import org.bukkit.command.CommandExecutor;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.Commands;
 import org.bukkit.command.CommandSender;
-import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
 
-public class TimezoneCommand implements CommandExecutor, TabCompleter {
+public class TimezoneCommand {
+    // Built once; completing a prefix returns a pre-sorted slice of it
+    private static final PrefixIndex<Boolean> COMPLETIONS = buildCompletions();
+    
     private final ServerTimesPlugin plugin;
     private final PlayerDataManager playerDataManager;
     
@@ -23,109 +28,86 @@ public class TimezoneCommand implements CommandExecutor, TabCompleter {
         this.playerDataManager = playerDataManager;
     }
     
-    @Override
-    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-        // Validate input parameters
-        if (sender == null) {
-            plugin.getLogger().warning("TimezoneCommand received null sender");
-            return true;
-        }
-        
-        if (args == null) {
-            sender.sendMessage("§cInvalid command arguments.");
-            return true;
-        }
-        
+    /**
+     * The /timezone command tree. Unknown timezones are rejected by the argument, before
+     * anything here runs.
+     */
+    public LiteralCommandNode<CommandSourceStack> createNode() {
+        return Commands.literal("timezone")
+            .requires(source -> source.getSender().hasPermission("servertimes.timezone"))
+            .executes(context -> showTimezone(context.getSource().getSender()))
+            .then(Commands.literal("reset")
+                .executes(context -> resetTimezone(context.getSource().getSender())))
+            .then(Commands.literal("clear")
+                .executes(context -> resetTimezone(context.getSource().getSender())))
+            .then(Commands.argument("timezone", CommandArguments.zone())
+                .executes(context -> setTimezone(context.getSource().getSender(),
+                    context.getArgument("timezone", String.class))))
+            .build();
+    }
+    
+    // Null if the sender is not a player, who has been told so
+    private Player asPlayer(CommandSender sender) {
         if (!(sender instanceof Player)) {
             sender.sendMessage("§cThis command can only be used by players!");
-            return true;
+            return null;
         }
-        
-        Player player = (Player) sender;
-        
-        // Additional safety check for player
-        if (player.getUniqueId() == null) {
-            sender.sendMessage("§cError: Unable to identify player.");
-            plugin.getLogger().warning("Player with null UUID attempted to use timezone command");
-            return true;
+        return (Player) sender;
+    }
+    
+    private int showTimezone(CommandSender sender) {
+        Player player = asPlayer(sender);
+        if (player == null) {
+            return Command.SINGLE_SUCCESS;
         }
         
-        if (args.length == 0) {
-            // Show current timezone
-            try {
-                String currentTimezone = playerDataManager.getPlayerTimezone(player.getUniqueId());
-                if (currentTimezone != null && !currentTimezone.trim().isEmpty()) {
-                    sender.sendMessage("§aYour current timezone: " + TimezoneUtil.formatTimezoneDisplay(currentTimezone));
-                } else {
-                    sender.sendMessage("§eYou haven't set a timezone yet. Use §f/timezone <timezone>§e to set one.");
-                    sender.sendMessage("§eExample: §f/timezone EST");
-                }
-                showAvailableTimezones(sender);
-            } catch (Exception e) {
-                sender.sendMessage("§cError retrieving your timezone information.");
-                plugin.getLogger().warning("Error retrieving timezone for player " + player.getName() + ": " + e.getMessage());
+        try {
+            String currentTimezone = playerDataManager.getPlayerTimezone(player.getUniqueId());
+            if (currentTimezone != null && !currentTimezone.trim().isEmpty()) {
+                sender.sendMessage("§aYour current timezone: " + TimezoneUtil.formatTimezoneDisplay(currentTimezone));
+            } else {
+                sender.sendMessage("§eYou haven't set a timezone yet. Use §f/timezone <timezone>§e to set one.");
+                sender.sendMessage("§eExample: §f/timezone EST");
             }
-            return true;
+            showAvailableTimezones(sender);
+        } catch (Exception e) {
+            sender.sendMessage("§cError retrieving your timezone information.");
+            plugin.getLogger().warning("Error retrieving timezone for player " + player.getName() + ": " + e.getMessage());
         }
-        
-        if (args.length == 1) {
-            // Validate the timezone argument
-            if (args[0] == null || args[0].trim().isEmpty()) {
-                sender.sendMessage("§cTimezone argument cannot be empty.");
-                sender.sendMessage("§cUsage: /timezone [timezone|reset]");
-                showAvailableTimezones(sender);
-                return true;
-            }
-            
-            String timezone = args[0].trim();
-            
-            // Check for excessively long input (potential security issue)
-            if (timezone.length() > 50) {
-                sender.sendMessage("§cTimezone name is too long. Please use a valid timezone identifier.");
-                showAvailableTimezones(sender);
-                return true;
-            }
-            
-            // Check for invalid characters that could cause issues
-            if (!timezone.matches("^[a-zA-Z0-9_/-]+$")) {
-                sender.sendMessage("§cInvalid characters in timezone name. Use only letters, numbers, underscores, hyphens, and forward slashes.");
-                showAvailableTimezones(sender);
-                return true;
-            }
-            
-            try {
-                if (timezone.equalsIgnoreCase("reset") || timezone.equalsIgnoreCase("clear")) {
-                    playerDataManager.removePlayerTimezone(player.getUniqueId());
-                    sender.sendMessage("§aYour timezone has been reset to server default.");
-                    return true;
-                }
-                
-                if (TimezoneUtil.isValidTimezone(timezone)) {
-                    playerDataManager.setPlayerTimezone(player.getUniqueId(), timezone.toUpperCase());
-                    sender.sendMessage("§aTimezone set to: " + TimezoneUtil.formatTimezoneDisplay(timezone));
-                } else {
-                    sender.sendMessage(TimezoneUtil.getTimezoneErrorMessage());
-                    showAvailableTimezones(sender);
-                }
-            } catch (Exception e) {
-                sender.sendMessage("§cError setting timezone: " + e.getMessage());
-                plugin.getLogger().warning("Error setting timezone for player " + player.getName() + ": " + e.getMessage());
-            }
-            return true;
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    private int resetTimezone(CommandSender sender) {
+        Player player = asPlayer(sender);
+        if (player == null) {
+            return Command.SINGLE_SUCCESS;
         }
         
-        if (args.length > 1) {
-            sender.sendMessage("§cToo many arguments! Timezone should be a single word.");
-            sender.sendMessage("§cUsage: /timezone [timezone|reset]");
-            sender.sendMessage("§eExample: §f/timezone EST");
-            showAvailableTimezones(sender);
-            return true;
+        try {
+            playerDataManager.removePlayerTimezone(player.getUniqueId());
+            sender.sendMessage("§aYour timezone has been reset to server default.");
+        } catch (Exception e) {
+            sender.sendMessage("§cError setting timezone: " + e.getMessage());
+            plugin.getLogger().warning("Error setting timezone for player " + player.getName() + ": " + e.getMessage());
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    // The timezone argument has already resolved the canonical name
+    private int setTimezone(CommandSender sender, String canonical) {
+        Player player = asPlayer(sender);
+        if (player == null) {
+            return Command.SINGLE_SUCCESS;
         }
         
-        sender.sendMessage("§cUsage: /timezone [timezone|reset]");
-        sender.sendMessage("§eExample: §f/timezone EST");
-        showAvailableTimezones(sender);
-        return true;
+        try {
+            playerDataManager.setPlayerTimezone(player.getUniqueId(), canonical);
+            sender.sendMessage("§aTimezone set to: " + TimezoneUtil.formatTimezoneDisplay(canonical));
+        } catch (Exception e) {
+            sender.sendMessage("§cError setting timezone: " + e.getMessage());
+            plugin.getLogger().warning("Error setting timezone for player " + player.getName() + ": " + e.getMessage());
+        }
+        return Command.SINGLE_SUCCESS;
     }
     
     private void showAvailableTimezones(CommandSender sender) {
@@ -134,43 +116,27 @@ public class TimezoneCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("§eEurope: §fGMT, UTC, CET, EET, BST");
         sender.sendMessage("§eAsia: §fJST, KST, IST, CST_CHINA");
         sender.sendMessage("§eAustralia: §fAEST, AWST, ACST");
+        sender.sendMessage("§7Any region id works too, e.g. §fEurope/Berlin§7 (press tab to browse).");
         sender.sendMessage("§7Use §f/timezone reset§7 to clear your timezone setting.");
     }
     
-    @Override
-    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
-        try {
-            // Validate input parameters
-            if (sender == null || args == null) {
-                return new ArrayList<>();
-            }
-            
-            if (args.length == 1) {
-                Set<String> supportedTimezones = TimezoneUtil.getSupportedTimezones();
-                if (supportedTimezones == null) {
-                    return new ArrayList<>();
-                }
-                
-                List<String> completions = new ArrayList<>(supportedTimezones);
-                completions.add("reset");
-                completions.add("clear");
-                
-                // Validate the input argument
-                if (args[0] == null) {
-                    return completions;
-                }
-                
-                String input = args[0].toLowerCase().trim();
-                
-                // Filter completions based on input
-                return completions.stream()
-                        .filter(tz -> tz != null && tz.toLowerCase().startsWith(input))
-                        .collect(Collectors.toList());
-            }
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error in TimezoneCommand tab completion: " + e.getMessage());
+    /**
+     * Completes from the prebuilt index, for the async tab-complete event
+     */
+    public List<String> complete(CommandSender sender, String[] args) {
+        if (args.length != 1) {
+            return Collections.emptyList();
         }
-        
-        return new ArrayList<>();
+        return COMPLETIONS.complete(args[0]);
+    }
+    
+    private static PrefixIndex<Boolean> buildCompletions() {
+        Map<String, Boolean> names = new HashMap<>();
+        for (String name : TimezoneUtil.getTimezoneNames()) {
+            names.put(name, Boolean.TRUE);
+        }
+        names.put("reset", Boolean.TRUE);
+        names.put("clear", Boolean.TRUE);
+        return PrefixIndex.build(names);
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,47 @@
 package com.servertimes.config;
 
 import com.servertimes.ServerTimesPlugin;
+import com.servertimes.metrics.PluginMetrics;
+import com.servertimes.model.ScheduleEvaluation;
+import com.servertimes.model.ScheduleGroup;
+import com.servertimes.model.ScheduleNormalizer;
+import com.servertimes.model.ScheduleSnapshot;
 import com.servertimes.model.TimeSession;
+import com.servertimes.utils.ResolvedZone;
+import com.servertimes.utils.TimeParser;
+import com.servertimes.utils.TimezoneUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DateTimeException;
 import java.time.DayOfWeek;
-import java.time.format.DateTimeParseException;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class ConfigManager {
     private final ServerTimesPlugin plugin;
     private volatile FileConfiguration config;
     private File configFile;
-    private final Map<DayOfWeek, List<TimeSession>> schedule;
+    private volatile ScheduleSnapshot snapshot = ScheduleSnapshot.empty();
+    private volatile Map<String, ScheduleSnapshot> worldSnapshots = Collections.emptyMap();
+    private volatile List<ScheduleGroup> groups = Collections.emptyList();
+    private volatile byte[] lastKnownDigest;
+    private volatile List<String> lastConflicts = Collections.emptyList();
+    private volatile byte[] deferredContents;
+    private volatile ZoneId serverZone = ZoneId.systemDefault();
+    private volatile ResolvedZone serverResolvedZone;
     private final Object configLock = new Object();
     private final Object scheduleLock = new Object();
     
@@ -23,17 +49,92 @@ public class ConfigManager {
     private static final String SCHEDULE_PATH = "schedule";
     private static final String MESSAGES_PATH = "messages";
     private static final String SETTINGS_PATH = "settings";
+    private static final String SECURITY_PATH = "security";
+    private static final String WORLDS_PATH = "worlds";
+    private static final String GROUPS_PATH = "groups";
+    
+    // Group membership is kept as a bit mask per player
+    public static final int MAX_GROUPS = 31;
     
     public ConfigManager(ServerTimesPlugin plugin) {
         this.plugin = plugin;
-        this.schedule = new EnumMap<>(DayOfWeek.class);
-        
-        // Initialize empty schedule for all days
-        for (DayOfWeek day : DayOfWeek.values()) {
-            schedule.put(day, new ArrayList<>());
+    }
+    
+    /**
+     * Startup fast path: install the compiled schedule from schedule.bin if it was built from
+     * the current config.yml. Returns false if the YAML has to be loaded with {@link #loadConfig()}.
+     * On success, messages and settings stay at their defaults until {@link #loadDeferred} completes.
+     */
+    public boolean loadCachedSchedule() {
+        synchronized (configLock) {
+            try {
+                configFile = new File(plugin.getDataFolder(), "config.yml");
+                if (!configFile.isFile() || !configFile.canRead()) {
+                    return false;
+                }
+                
+                byte[] contents = Files.readAllBytes(configFile.toPath());
+                byte[] contentsDigest = digest(contents);
+                ScheduleCache.Contents cached = ScheduleCache.read(getCacheFile(), contentsDigest, snapshot.getVersion() + 1);
+                if (cached == null) {
+                    return false;
+                }
+                
+                // The schedule is checked and logins are gated before loadDeferred, so the zone
+                // has to be right from the start
+                serverZone = resolveServerZone(cached.getServerTimezone());
+                synchronized (scheduleLock) {
+                    snapshot = cached.getSnapshot();
+                    lastKnownDigest = contentsDigest;
+                }
+                deferredContents = contents;
+                return true;
+            } catch (Exception e) {
+                plugin.getLogger().warning("Could not read " + ScheduleCache.FILE_NAME + ", loading config.yml instead: " + e.getMessage());
+                return false;
+            }
         }
     }
     
+    /**
+     * Finish a cached startup: parse the YAML for messages and settings on a background
+     * thread, then install it on the main thread and pass the days whose sessions differ
+     * from the cache (normally none) to {@code whenLoaded}.
+     */
+    public void loadDeferred(Consumer<Set<DayOfWeek>> whenLoaded) {
+        byte[] contents = deferredContents;
+        deferredContents = null;
+        if (contents == null) {
+            whenLoaded.accept(EnumSet.noneOf(DayOfWeek.class));
+            return;
+        }
+        
+        // Not a Bukkit async task: those only start with the first tick, after worlds are loaded
+        CompletableFuture.supplyAsync(() -> parseConfig(contents))
+            .whenComplete((parsed, error) -> Bukkit.getScheduler().runTask(plugin, () -> {
+                Set<DayOfWeek> changedDays = null;
+                try {
+                    if (error != null) {
+                        plugin.getLogger().warning("Error parsing config.yml: " + error.getMessage());
+                    } else if (parsed.isValid()) {
+                        changedDays = applyParsedConfig(parsed);
+                    }
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Error applying config.yml: " + e.getMessage());
+                }
+                
+                if (changedDays == null && config == null) {
+                    // The cache matched but the YAML did not parse cleanly; take the normal path
+                    loadConfig();
+                    changedDays = EnumSet.allOf(DayOfWeek.class);
+                } else if (changedDays == null) {
+                    // Reloaded meanwhile, which already installed a config
+                    changedDays = EnumSet.noneOf(DayOfWeek.class);
+                }
+                whenLoaded.accept(changedDays);
+            }));
+    }
+    
     public void loadConfig() {
         synchronized (configLock) {
             try {
@@ -54,8 +155,21 @@ public class ConfigManager {
                     return;
                 }
                 
-                config = YamlConfiguration.loadConfiguration(configFile);
-                loadScheduleFromConfig();
+                byte[] contents = Files.readAllBytes(configFile.toPath());
+                YamlConfiguration loaded = new YamlConfiguration();
+                try {
+                    loaded.loadFromString(new String(contents, StandardCharsets.UTF_8));
+                } catch (InvalidConfigurationException e) {
+                    plugin.getLogger().severe("Cannot load " + configFile.getAbsolutePath() + ": " + e.getMessage());
+                }
+                config = loaded;
+                serverZone = resolveServerZone(loaded);
+                lastKnownDigest = digest(contents);
+                deferredContents = null;
+                if (loadScheduleFromConfig()) {
+                    // Persist the canonical form so the file matches what is enforced
+                    saveConfig();
+                }
             } catch (Exception e) {
                 plugin.getLogger().severe("Error loading configuration: " + e.getMessage());
                 e.printStackTrace();
@@ -63,56 +177,314 @@ public class ConfigManager {
         }
     }
     
-    private void loadScheduleFromConfig() {
+    /**
+     * Load and normalize the schedule from the current config.
+     * Returns true if sessions were only merged, so the file can be rewritten without losing
+     * anything. A day over the session limit keeps the previous schedule, as on reload.
+     */
+    private boolean loadScheduleFromConfig() {
         synchronized (scheduleLock) {
             try {
                 if (config == null) {
                     plugin.getLogger().warning("Config is null, cannot load schedule");
-                    return;
+                    return false;
                 }
                 
-                for (DayOfWeek day : DayOfWeek.values()) {
-                    String dayName = day.name().toLowerCase();
-                    List<String> sessions = config.getStringList(SCHEDULE_PATH + "." + dayName);
-                    
-                    if (sessions == null) {
-                        sessions = new ArrayList<>();
-                    }
-                    
-                    List<TimeSession> daySessions = new ArrayList<>();
-                    for (String sessionStr : sessions) {
-                        if (sessionStr == null || sessionStr.trim().isEmpty()) {
-                            continue;
-                        }
-                        
-                        try {
-                            String[] times = sessionStr.split("-");
-                            if (times.length == 2) {
-                                String startTime = times[0].trim();
-                                String endTime = times[1].trim();
-                                
-                                if (!startTime.isEmpty() && !endTime.isEmpty()) {
-                                    TimeSession session = new TimeSession(startTime, endTime);
-                                    daySessions.add(session);
-                                }
-                            } else {
-                                plugin.getLogger().warning("Invalid session format in config for " + dayName + ": " + sessionStr + " (expected format: start-end)");
-                            }
-                        } catch (DateTimeParseException e) {
-                            plugin.getLogger().warning("Invalid time format in config for " + dayName + ": " + sessionStr + " - " + e.getMessage());
-                        } catch (Exception e) {
-                            plugin.getLogger().warning("Error parsing session for " + dayName + ": " + sessionStr + " - " + e.getMessage());
-                        }
+                List<String> errors = new ArrayList<>();
+                Map<DayOfWeek, List<TimeSession>> days = parseSchedule(config, errors);
+                
+                ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(days,
+                    isValidationEnabled(config) ? getMaxSessionsPerDay(config) : 0);
+                if (normalized.isLimitExceeded()) {
+                    errors.addAll(normalized.getConflicts());
+                    errors.add("Too many sessions on one day, keeping the previous schedule until config.yml is fixed");
+                } else {
+                    for (String conflict : normalized.getConflicts()) {
+                        plugin.getLogger().warning("Schedule conflict: " + conflict);
                     }
-                    schedule.put(day, daySessions);
+                    lastConflicts = normalized.getConflicts();
+                    snapshot = ScheduleSnapshot.of(normalized.getDays(), snapshot.getVersion() + 1);
+                }
+                
+                List<String> worldConflicts = new ArrayList<>();
+                Map<String, Map<DayOfWeek, List<TimeSession>>> worlds = parseWorldSchedules(config, errors, worldConflicts);
+                for (String conflict : worldConflicts) {
+                    plugin.getLogger().warning("Schedule conflict: " + conflict);
+                }
+                installWorlds(worlds);
+                
+                List<String> groupConflicts = new ArrayList<>();
+                groups = parseGroups(config, errors, groupConflicts);
+                for (String conflict : groupConflicts) {
+                    plugin.getLogger().warning("Schedule conflict: " + conflict);
+                }
+                for (String error : errors) {
+                    plugin.getLogger().warning(error);
+                }
+                
+                if (!errors.isEmpty()) {
+                    // Rewriting would drop the skipped sessions, and caching would mask the fix
+                    return false;
+                }
+                if (!normalized.isChanged()) {
+                    writeCache();
                 }
+                return normalized.isChanged();
             } catch (Exception e) {
                 plugin.getLogger().severe("Error loading schedule from config: " + e.getMessage());
                 e.printStackTrace();
+                return false;
             }
         }
     }
     
+    /**
+     * Parse the schedule section of a configuration. Problems are collected into
+     * {@code errors} and the offending sessions are skipped.
+     */
+    private static Map<DayOfWeek, List<TimeSession>> parseSchedule(FileConfiguration source, List<String> errors) {
+        int maxLength = isValidationEnabled(source) ? getMaxTimeStringLength(source) : Integer.MAX_VALUE;
+        return parseDays(source, SCHEDULE_PATH, "", maxLength, errors);
+    }
+    
+    /**
+     * Parse and normalize the per-world schedules under worlds.schedules, keyed by world name
+     */
+    private static Map<String, Map<DayOfWeek, List<TimeSession>>> parseWorldSchedules(FileConfiguration source,
+                                                                                    List<String> errors,
+                                                                                    List<String> conflicts) {
+        Map<String, Map<DayOfWeek, List<TimeSession>>> worlds = new LinkedHashMap<>();
+        ConfigurationSection section = source.getConfigurationSection(WORLDS_PATH + ".schedules");
+        if (section == null) {
+            return worlds;
+        }
+        
+        boolean validate = isValidationEnabled(source);
+        int maxLength = validate ? getMaxTimeStringLength(source) : Integer.MAX_VALUE;
+        for (String worldName : section.getKeys(false)) {
+            if (!section.isConfigurationSection(worldName)) {
+                errors.add("Schedule for world " + worldName + " must list sessions per day");
+                continue;
+            }
+            
+            String label = " in world " + worldName;
+            Map<DayOfWeek, List<TimeSession>> days = parseDays(section, worldName, label, maxLength, errors);
+            ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(days, validate ? getMaxSessionsPerDay(source) : 0);
+            for (String conflict : normalized.getConflicts()) {
+                conflicts.add(conflict + label);
+            }
+            if (normalized.isLimitExceeded()) {
+                errors.add("Too many sessions on one day" + label);
+            }
+            worlds.put(worldName, normalized.getDays());
+        }
+        return worlds;
+    }
+    
+    /**
+     * Parse the schedule groups under groups.<name>, each compiled into its own index
+     */
+    private static List<ScheduleGroup> parseGroups(FileConfiguration source, List<String> errors, List<String> conflicts) {
+        List<ScheduleGroup> parsed = new ArrayList<>();
+        ConfigurationSection section = source.getConfigurationSection(GROUPS_PATH);
+        if (section == null) {
+            return Collections.unmodifiableList(parsed);
+        }
+        
+        boolean validate = isValidationEnabled(source);
+        int maxLength = validate ? getMaxTimeStringLength(source) : Integer.MAX_VALUE;
+        for (String groupName : section.getKeys(false)) {
+            ConfigurationSection groupSection = section.getConfigurationSection(groupName);
+            if (groupSection == null) {
+                errors.add("Group " + groupName + " must be a section with a permission or luckperms_group and a schedule");
+                continue;
+            }
+            if (parsed.size() == MAX_GROUPS) {
+                errors.add("More than " + MAX_GROUPS + " schedule groups, ignoring " + groupName);
+                continue;
+            }
+            
+            String permission = trimToNull(groupSection.getString("permission"));
+            String luckPermsGroup = trimToNull(groupSection.getString("luckperms_group"));
+            if (permission == null && luckPermsGroup == null) {
+                errors.add("Group " + groupName + " needs a permission or luckperms_group");
+                continue;
+            }
+            
+            String label = " in group " + groupName;
+            Map<DayOfWeek, List<TimeSession>> days = parseDays(groupSection, SCHEDULE_PATH, label, maxLength, errors);
+            ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(days, validate ? getMaxSessionsPerDay(source) : 0);
+            for (String conflict : normalized.getConflicts()) {
+                conflicts.add(conflict + label);
+            }
+            if (normalized.isLimitExceeded()) {
+                errors.add("Too many sessions on one day" + label);
+            }
+            parsed.add(new ScheduleGroup(groupName, permission, luckPermsGroup, ScheduleSnapshot.of(normalized.getDays(), 1L)));
+        }
+        return Collections.unmodifiableList(parsed);
+    }
+    
+    private static String trimToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+    
+    private static Map<DayOfWeek, List<TimeSession>> parseDays(ConfigurationSection source, String path, String label,
+                                                               int maxLength, List<String> errors) {
+        Map<DayOfWeek, List<TimeSession>> days = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            String dayName = day.name().toLowerCase();
+            List<String> sessions = source.getStringList(path + "." + dayName);
+            
+            if (sessions == null) {
+                sessions = new ArrayList<>();
+            }
+            
+            List<TimeSession> daySessions = new ArrayList<>();
+            for (String sessionStr : sessions) {
+                if (sessionStr == null || sessionStr.trim().isEmpty()) {
+                    continue;
+                }
+                
+                if (sessionStr.length() > maxLength) {
+                    errors.add("Session for " + dayName + label + " is longer than " + maxLength + " characters, ignoring it");
+                    continue;
+                }
+                
+                int packed = TimeParser.parseSession(sessionStr);
+                if (packed == TimeParser.INVALID) {
+                    errors.add("Invalid session in config for " + dayName + label + ": " + sessionStr
+                        + " (expected format: start-end, e.g. 21:00-23:00 or 9pm-11pm)");
+                    continue;
+                }
+                daySessions.add(TimeSession.ofMinutes(TimeParser.sessionStart(packed), TimeParser.sessionEnd(packed)));
+            }
+            days.put(day, daySessions);
+        }
+        return days;
+    }
+    
+    // Every world gets its own compiled index
+    private void installWorlds(Map<String, Map<DayOfWeek, List<TimeSession>>> worlds) {
+        Map<String, ScheduleSnapshot> compiled = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<DayOfWeek, List<TimeSession>>> entry : worlds.entrySet()) {
+            ScheduleSnapshot previous = worldSnapshots.get(entry.getKey().toLowerCase(Locale.ROOT));
+            long version = previous != null ? previous.getVersion() + 1 : 1L;
+            compiled.put(entry.getKey().toLowerCase(Locale.ROOT), ScheduleSnapshot.of(entry.getValue(), version));
+        }
+        worldSnapshots = Collections.unmodifiableMap(compiled);
+    }
+    
+    /**
+     * Parse raw config.yml contents without touching the live configuration.
+     * Safe to call off the main thread.
+     */
+    public ParsedConfig parseConfig(byte[] contents) {
+        byte[] base = lastKnownDigest;
+        List<String> errors = new ArrayList<>();
+        YamlConfiguration parsed = new YamlConfiguration();
+        try {
+            parsed.loadFromString(new String(contents, StandardCharsets.UTF_8));
+        } catch (InvalidConfigurationException e) {
+            errors.add("Invalid YAML: " + e.getMessage());
+            return new ParsedConfig(null, null, null, null, digest(contents), base, errors, Collections.emptyList(), false);
+        }
+        
+        Map<DayOfWeek, List<TimeSession>> days = parseSchedule(parsed, errors);
+        boolean validate = isValidationEnabled(parsed);
+        ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(days, validate ? getMaxSessionsPerDay(parsed) : 0);
+        if (normalized.isLimitExceeded()) {
+            errors.addAll(normalized.getConflicts());
+        }
+        
+        List<String> conflicts = new ArrayList<>(normalized.getConflicts());
+        Map<String, Map<DayOfWeek, List<TimeSession>>> worlds = parseWorldSchedules(parsed, errors, conflicts);
+        List<ScheduleGroup> parsedGroups = parseGroups(parsed, errors, conflicts);
+        return new ParsedConfig(parsed, normalized.getDays(), worlds, parsedGroups, digest(contents), base, errors,
+            conflicts, normalized.isChanged());
+    }
+    
+    /**
+     * Install a previously parsed configuration, replacing only the days whose sessions
+     * actually changed. Returns the set of changed days, or {@code null} if the live
+     * configuration was loaded or saved after {@code parsed} was produced.
+     */
+    public Set<DayOfWeek> applyParsedConfig(ParsedConfig parsed) {
+        if (parsed == null || !parsed.isValid()) {
+            throw new IllegalArgumentException("Cannot apply an invalid configuration");
+        }
+        
+        synchronized (configLock) {
+            synchronized (scheduleLock) {
+                if (parsed.baseDigest != lastKnownDigest) {
+                    return null;
+                }
+                config = parsed.getConfig();
+                serverZone = resolveServerZone(config);
+                lastKnownDigest = parsed.getDigest();
+                installWorlds(parsed.getWorlds());
+                groups = parsed.getGroups();
+                
+                Map<DayOfWeek, List<TimeSession>> changedDays = new EnumMap<>(DayOfWeek.class);
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    List<TimeSession> sessions = parsed.getDays().get(day);
+                    if (sessions == null) {
+                        sessions = Collections.emptyList();
+                    }
+                    if (!snapshot.getSessions(day).equals(sessions)) {
+                        changedDays.put(day, sessions);
+                    }
+                }
+                
+                if (!changedDays.isEmpty()) {
+                    snapshot = snapshot.withDays(changedDays, snapshot.getVersion() + 1);
+                }
+                lastConflicts = parsed.getConflicts();
+                if (parsed.isNormalized()) {
+                    saveConfig();
+                } else {
+                    writeCache();
+                }
+                return changedDays.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(changedDays.keySet());
+            }
+        }
+    }
+    
+    /**
+     * Check whether the given file contents are what the plugin last loaded or wrote
+     */
+    public boolean isCurrentContent(byte[] contents) {
+        byte[] known = lastKnownDigest;
+        return known != null && MessageDigest.isEqual(known, digest(contents));
+    }
+    
+    private File getCacheFile() {
+        return new File(plugin.getDataFolder(), ScheduleCache.FILE_NAME);
+    }
+    
+    // Must be called while holding scheduleLock
+    private void writeCache() {
+        byte[] known = lastKnownDigest;
+        if (known == null) {
+            return;
+        }
+        try {
+            FileConfiguration current = config;
+            ScheduleCache.write(getCacheFile(), known, snapshot,
+                current != null ? current.getString(SETTINGS_PATH + ".server_timezone", "") : "");
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not write " + ScheduleCache.FILE_NAME + ": " + e.getMessage());
+        }
+    }
+    
+    private static byte[] digest(byte[] contents) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(contents);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
     public void saveConfig() {
         synchronized (configLock) {
             synchronized (scheduleLock) {
@@ -127,12 +499,21 @@ public class ConfigManager {
                         return;
                     }
                     
+                    // An edit the watcher rejected or has not applied yet must not be overwritten
+                    byte[] known = lastKnownDigest;
+                    if (known != null && configFile.isFile()
+                            && !MessageDigest.isEqual(known, digest(Files.readAllBytes(configFile.toPath())))) {
+                        plugin.getLogger().warning("config.yml was changed on disk since it was last loaded, not overwriting it;"
+                            + " use /servertimes reload to load it");
+                        return;
+                    }
+                    
                     // Save schedule to config
                     for (DayOfWeek day : DayOfWeek.values()) {
                         String dayName = day.name().toLowerCase();
                         List<String> sessionStrings = new ArrayList<>();
                         
-                        List<TimeSession> daySessions = schedule.get(day);
+                        List<TimeSession> daySessions = snapshot.getSessions(day);
                         if (daySessions != null) {
                             for (TimeSession session : daySessions) {
                                 if (session != null) {
@@ -157,7 +538,12 @@ public class ConfigManager {
                         return;
                     }
                     
-                    config.save(configFile);
+                    long started = System.nanoTime();
+                    byte[] contents = config.saveToString().getBytes(StandardCharsets.UTF_8);
+                    Files.write(configFile.toPath(), contents);
+                    lastKnownDigest = digest(contents);
+                    writeCache();
+                    plugin.getMetrics().recordSave(PluginMetrics.Save.CONFIG, System.nanoTime() - started);
                 } catch (IOException e) {
                     plugin.getLogger().severe("Could not save config file: " + e.getMessage());
                     e.printStackTrace();
@@ -174,37 +560,47 @@ public class ConfigManager {
             if (day == null) {
                 return new ArrayList<>();
             }
-            List<TimeSession> sessions = schedule.get(day);
-            return sessions != null ? new ArrayList<>(sessions) : new ArrayList<>();
+            return new ArrayList<>(snapshot.getSessions(day));
         }
     }
     
-    public void setSessionsForDay(DayOfWeek day, List<TimeSession> sessions) {
+    /**
+     * Replace all sessions of a day. Returns notes about sessions that were merged while
+     * normalizing; throws {@link IllegalArgumentException} if the day would exceed the
+     * configured session limit.
+     */
+    public List<String> setSessionsForDay(DayOfWeek day, List<TimeSession> sessions) {
         if (day == null) {
             plugin.getLogger().warning("Cannot set sessions for null day");
-            return;
+            return Collections.emptyList();
         }
         
+        List<String> conflicts;
         synchronized (scheduleLock) {
             List<TimeSession> sessionsCopy = sessions != null ? new ArrayList<>(sessions) : new ArrayList<>();
-            schedule.put(day, sessionsCopy);
+            conflicts = replaceDay(day, sessionsCopy);
         }
         saveConfig();
+        return conflicts;
     }
     
-    public void addSessionForDay(DayOfWeek day, TimeSession session) {
+    /**
+     * Add a session to a day. See {@link #setSessionsForDay} for the return value.
+     */
+    public List<String> addSessionForDay(DayOfWeek day, TimeSession session) {
         if (day == null || session == null) {
             plugin.getLogger().warning("Cannot add null session or session for null day");
-            return;
+            return Collections.emptyList();
         }
         
+        List<String> conflicts;
         synchronized (scheduleLock) {
-            List<TimeSession> sessions = schedule.get(day);
-            if (sessions != null) {
-                sessions.add(session);
-            }
+            List<TimeSession> sessions = new ArrayList<>(snapshot.getSessions(day));
+            sessions.add(session);
+            conflicts = replaceDay(day, sessions);
         }
         saveConfig();
+        return conflicts;
     }
     
     public void removeSessionForDay(DayOfWeek day, int sessionIndex) {
@@ -214,9 +610,10 @@ public class ConfigManager {
         }
         
         synchronized (scheduleLock) {
-            List<TimeSession> sessions = schedule.get(day);
-            if (sessions != null && sessionIndex >= 0 && sessionIndex < sessions.size()) {
+            List<TimeSession> sessions = new ArrayList<>(snapshot.getSessions(day));
+            if (sessionIndex >= 0 && sessionIndex < sessions.size()) {
                 sessions.remove(sessionIndex);
+                replaceDay(day, sessions);
             }
         }
         saveConfig();
@@ -229,69 +626,197 @@ public class ConfigManager {
         }
         
         synchronized (scheduleLock) {
-            List<TimeSession> sessions = schedule.get(day);
-            if (sessions != null) {
-                sessions.clear();
+            replaceDay(day, new ArrayList<>());
+        }
+        saveConfig();
+    }
+    
+    /**
+     * Replace the whole weekly schedule in one swap with a single save.
+     * See {@link #setSessionsForDay} for the return value.
+     */
+    public List<String> replaceSchedule(Map<DayOfWeek, List<TimeSession>> schedule) {
+        List<String> conflicts;
+        synchronized (scheduleLock) {
+            ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(schedule, getMaxSessionsPerDay(config));
+            if (normalized.isLimitExceeded()) {
+                throw new IllegalArgumentException("Too many sessions on one day (maximum " + getMaxSessionsPerDay(config) + ")");
             }
+            installNormalized(normalized);
+            conflicts = normalized.getConflicts();
         }
         saveConfig();
+        return conflicts;
+    }
+
+    /**
+     * Start staging edits on a private copy of the current schedule
+     */
+    public ScheduleDraft beginDraft() {
+        return new ScheduleDraft(snapshot.getDays());
+    }
+    
+    /**
+     * Publish the days a draft changed in one swap with a single save, validating them
+     * together. Returns notes about merged sessions, or {@code null} if one of those days
+     * was changed by something else since the draft began; throws
+     * {@link IllegalArgumentException} if a day would exceed the session limit.
+     */
+    public List<String> commitDraft(ScheduleDraft draft) {
+        List<String> conflicts;
+        synchronized (scheduleLock) {
+            Map<DayOfWeek, List<TimeSession>> proposed = new EnumMap<>(DayOfWeek.class);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                proposed.put(day, snapshot.getSessions(day));
+            }
+            for (DayOfWeek day : draft.getChangedDays()) {
+                if (!snapshot.getSessions(day).equals(draft.getBaseSessions(day))) {
+                    return null;
+                }
+                proposed.put(day, draft.getSessions(day));
+            }
+    
+            ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(proposed, getMaxSessionsPerDay(config));
+            if (normalized.isLimitExceeded()) {
+                throw new IllegalArgumentException("Too many sessions on one day (maximum " + getMaxSessionsPerDay(config) + ")");
+            }
+            installNormalized(normalized);
+            conflicts = normalized.getConflicts();
+        }
+        saveConfig();
+        return conflicts;
+    }
+    
+    // Must be called while holding scheduleLock
+    private List<String> replaceDay(DayOfWeek day, List<TimeSession> sessions) {
+        Map<DayOfWeek, List<TimeSession>> proposed = new EnumMap<>(snapshot.getDays());
+        proposed.put(day, sessions);
+        
+        ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(proposed, getMaxSessionsPerDay(config));
+        if (normalized.isLimitExceeded()) {
+            throw new IllegalArgumentException("Too many sessions for " + day.name().toLowerCase()
+                + " (maximum " + getMaxSessionsPerDay(config) + ")");
+        }
+        
+        installNormalized(normalized);
+        return normalized.getConflicts();
+    }
+    
+    // Must be called while holding scheduleLock
+    private void installNormalized(ScheduleNormalizer.Result normalized) {
+        // Merging across midnight can touch neighbouring days too
+        Map<DayOfWeek, List<TimeSession>> changed = new EnumMap<>(DayOfWeek.class);
+        for (Map.Entry<DayOfWeek, List<TimeSession>> entry : normalized.getDays().entrySet()) {
+            if (!snapshot.getSessions(entry.getKey()).equals(entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        snapshot = snapshot.withDays(changed, snapshot.getVersion() + 1);
     }
     
     public boolean isServerOpen(DayOfWeek day) {
-        List<TimeSession> sessions = schedule.get(day);
-        return sessions.stream().anyMatch(TimeSession::isCurrentlyActive);
+        List<TimeSession> sessions = snapshot.getSessions(day);
+        ZoneId zone = serverZone;
+        return sessions.stream().anyMatch(session -> session.isCurrentlyActive(zone));
     }
     
     public boolean isServerOpen() {
         try {
-            DayOfWeek currentDay = java.time.LocalDateTime.now().getDayOfWeek();
-            java.time.LocalTime currentTime = java.time.LocalTime.now();
-            
-            synchronized (scheduleLock) {
-                List<TimeSession> sessions = schedule.get(currentDay);
-                if (sessions != null) {
-                    for (TimeSession session : sessions) {
-                        if (session != null && session.isCurrentlyActive()) {
-                            return true;
-                        }
-                    }
-                }
-            }
-            
-            return false;
+            return evaluate(Instant.now()).isOpen();
         } catch (Exception e) {
             plugin.getLogger().warning("Error checking if server is open: " + e.getMessage());
             return false; // Default to closed on error
         }
     }
     
+    /**
+     * Evaluate the global schedule at one instant in the server's timezone
+     */
+    public ScheduleEvaluation evaluate(Instant instant) {
+        return ScheduleEvaluation.evaluate(snapshot, instant, serverZone);
+    }
+    
+    /**
+     * Timezone the schedule's times are read in (settings.server_timezone, else the system default)
+     */
+    public ZoneId getServerZone() {
+        return serverZone;
+    }
+    
+    /**
+     * The server's timezone resolved for an instant, cached until its next DST transition
+     */
+    public ResolvedZone getServerResolvedZone(Instant now) {
+        ZoneId zone = serverZone;
+        ResolvedZone cached = serverResolvedZone;
+        if (cached == null || !cached.getZone().equals(zone)) {
+            cached = ResolvedZone.resolve(zone.getId(), zone, now);
+        } else if (!cached.isValidAt(now.getEpochSecond())) {
+            cached = cached.at(now);
+        } else {
+            return cached;
+        }
+        serverResolvedZone = cached;
+        return cached;
+    }
+    
+    private ZoneId resolveServerZone(FileConfiguration source) {
+        return resolveServerZone(source != null ? source.getString(SETTINGS_PATH + ".server_timezone", "") : "");
+    }
+    
+    private ZoneId resolveServerZone(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return ZoneId.systemDefault();
+        }
+        
+        id = id.trim();
+        if (TimezoneUtil.isValidTimezone(id)) {
+            return TimezoneUtil.getZoneId(id);
+        }
+        try {
+            return ZoneId.of(id);
+        } catch (DateTimeException e) {
+            plugin.getLogger().warning("Unknown server_timezone '" + id + "', using the system default");
+            return ZoneId.systemDefault();
+        }
+    }
+    
     public String getKickMessage() {
-        return config.getString(MESSAGES_PATH + ".server_closed", 
-            "§cThe server is currently closed. Please check the schedule and come back during open hours!");
+        FileConfiguration current = config;
+        String fallback = "§cThe server is currently closed. Please check the schedule and come back during open hours!";
+        return current != null ? current.getString(MESSAGES_PATH + ".server_closed", fallback) : fallback;
     }
     
     public String getJoinDeniedMessage() {
-        return config.getString(MESSAGES_PATH + ".join_denied", 
-            "§cThe server is currently closed. Please check the schedule and come back during open hours!");
+        FileConfiguration current = config;
+        String fallback = "§cThe server is currently closed. Please check the schedule and come back during open hours!";
+        return current != null ? current.getString(MESSAGES_PATH + ".join_denied", fallback) : fallback;
     }
     
     public String getServerOpeningMessage() {
-        return config.getString(MESSAGES_PATH + ".server_opening", 
-            "§aThe server is now open! Welcome!");
+        FileConfiguration current = config;
+        String fallback = "§aThe server is now open! Welcome!";
+        return current != null ? current.getString(MESSAGES_PATH + ".server_opening", fallback) : fallback;
     }
     
-    public String getServerClosingWarning(int minutes) {
-        return config.getString(MESSAGES_PATH + ".server_closing_warning", 
-            "§eThe server will close in " + minutes + " minute(s)!")
-            .replace("{minutes}", String.valueOf(minutes));
+    /**
+     * Closing warning with {minutes} and the local closing {time} filled in
+     */
+    public String getServerClosingWarning(int minutes, String time) {
+        FileConfiguration current = config;
+        String fallback = "§eThe server will close in " + minutes + " minute(s), at {time}!";
+        String message = current != null ? current.getString(MESSAGES_PATH + ".server_closing_warning", fallback) : fallback;
+        return message.replace("{minutes}", String.valueOf(minutes)).replace("{time}", time);
     }
     
     public int getWarningTime() {
-        return config.getInt(SETTINGS_PATH + ".warning_minutes", 5);
+        FileConfiguration current = config;
+        return current != null ? current.getInt(SETTINGS_PATH + ".warning_minutes", 5) : 5;
     }
     
     public boolean isGracefulShutdown() {
-        return config.getBoolean(SETTINGS_PATH + ".graceful_shutdown", true);
+        FileConfiguration current = config;
+        return current == null || current.getBoolean(SETTINGS_PATH + ".graceful_shutdown", true);
     }
     
     public String getServerClosedMessage() {
@@ -304,11 +829,18 @@ public class ConfigManager {
     }
     
     public String getServerOpenMessage() {
+        return getServerOpenMessage("");
+    }
+    
+    /**
+     * Open message with the local closing {time} filled in
+     */
+    public String getServerOpenMessage(String time) {
         synchronized (configLock) {
             if (config == null) {
                 return "&aThe server is currently open.";
             }
-            return config.getString("messages.server-open", "&aThe server is currently open.");
+            return config.getString("messages.server-open", "&aThe server is currently open.").replace("{time}", time);
         }
     }
     
@@ -342,11 +874,236 @@ public class ConfigManager {
     public Map<DayOfWeek, List<TimeSession>> getFullSchedule() {
         synchronized (scheduleLock) {
             Map<DayOfWeek, List<TimeSession>> scheduleCopy = new HashMap<>();
-            for (Map.Entry<DayOfWeek, List<TimeSession>> entry : schedule.entrySet()) {
+            for (Map.Entry<DayOfWeek, List<TimeSession>> entry : snapshot.getDays().entrySet()) {
                 List<TimeSession> sessions = entry.getValue();
                 scheduleCopy.put(entry.getKey(), sessions != null ? new ArrayList<>(sessions) : new ArrayList<>());
             }
             return scheduleCopy;
         }
     }
+    
+    /**
+     * Get the current immutable schedule snapshot
+     */
+    public ScheduleSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Conflicts found the last time the schedule was loaded from disk
+     */
+    public List<String> getLastConflicts() {
+        return lastConflicts;
+    }
+    
+    public int getMaxSessionsPerDay() {
+        return getMaxSessionsPerDay(config);
+    }
+    
+    public int getMaxTimeStringLength() {
+        return getMaxTimeStringLength(config);
+    }
+    
+    private static int getMaxSessionsPerDay(FileConfiguration source) {
+        int max = source != null ? source.getInt(SETTINGS_PATH + ".max_sessions_per_day", 10) : 10;
+        return Math.max(1, Math.min(max, 100));
+    }
+    
+    private static int getMaxTimeStringLength(FileConfiguration source) {
+        int max = source != null ? source.getInt(SECURITY_PATH + ".max_time_string_length", 50) : 50;
+        return Math.max(5, Math.min(max, 200));
+    }
+    
+    private static boolean isValidationEnabled(FileConfiguration source) {
+        return source == null || source.getBoolean(SECURITY_PATH + ".validate_config", true);
+    }
+    
+    /**
+     * Schedule groups in configuration order; a player's membership mask uses the same indexes.
+     * The list is replaced, never modified, when the configuration is reloaded.
+     */
+    public List<ScheduleGroup> getGroups() {
+        return groups;
+    }
+    
+    /**
+     * Get the compiled schedule of a world, or {@code null} if the world follows the global schedule
+     */
+    public ScheduleSnapshot getWorldSnapshot(String worldName) {
+        return worldName != null ? worldSnapshots.get(worldName.toLowerCase(Locale.ROOT)) : null;
+    }
+    
+    /**
+     * Names (lower case) of the worlds that have their own schedule
+     */
+    public Set<String> getScheduledWorlds() {
+        return worldSnapshots.keySet();
+    }
+    
+    /**
+     * Every world's compiled schedule by lower-case name, as one immutable map
+     */
+    public Map<String, ScheduleSnapshot> getWorldSnapshots() {
+        return worldSnapshots;
+    }
+    
+    /**
+     * Check whether a world is open right now. Worlds without their own schedule are always open;
+     * access to the server as a whole is governed by the global schedule.
+     */
+    public boolean isWorldOpen(String worldName) {
+        ScheduleSnapshot worldSnapshot = getWorldSnapshot(worldName);
+        if (worldSnapshot == null) {
+            return true;
+        }
+        return ScheduleEvaluation.evaluate(worldSnapshot, Instant.now(), serverZone).isOpen();
+    }
+    
+    /**
+     * World that players are moved to when their world closes; empty for the server's main world
+     */
+    public String getFallbackWorld() {
+        FileConfiguration current = config;
+        return current != null ? current.getString(WORLDS_PATH + ".fallback_world", "").trim() : "";
+    }
+    
+    /**
+     * How many players may be moved out of a closing world per tick
+     */
+    public int getWorldMovesPerTick() {
+        FileConfiguration current = config;
+        int moves = current != null ? current.getInt(WORLDS_PATH + ".moves_per_tick", 5) : 5;
+        return Math.max(1, Math.min(moves, 100));
+    }
+    
+    public boolean isUnloadClosedWorlds() {
+        FileConfiguration current = config;
+        return current != null && current.getBoolean(WORLDS_PATH + ".unload_when_closed", false);
+    }
+    
+    public String getWorldClosedMessage(String worldName, String fallbackName) {
+        FileConfiguration current = config;
+        String fallback = "§cThe world {world} is now closed, you have been moved to {fallback}.";
+        String message = current != null ? current.getString(MESSAGES_PATH + ".world_closed", fallback) : fallback;
+        return message.replace("{world}", worldName).replace("{fallback}", fallbackName);
+    }
+    
+    public String getWorldEnterDeniedMessage(String worldName) {
+        FileConfiguration current = config;
+        String fallback = "§cThe world {world} is currently closed.";
+        String message = current != null ? current.getString(MESSAGES_PATH + ".world_enter_denied", fallback) : fallback;
+        return message.replace("{world}", worldName);
+    }
+    
+    public boolean isDebugMode() {
+        return config != null && config.getBoolean(SETTINGS_PATH + ".debug_mode", false);
+    }
+    
+    public boolean isConfigWatchEnabled() {
+        return config != null && config.getBoolean(SETTINGS_PATH + ".watch_config", true);
+    }
+    
+    /**
+     * Where player timezones are stored: "yaml" or "sqlite". Read once at startup.
+     */
+    public String getPlayerDataStorage() {
+        String storage = config != null ? config.getString(SETTINGS_PATH + ".player_data_storage", "yaml") : "yaml";
+        return storage != null ? storage.trim().toLowerCase() : "yaml";
+    }
+    
+    public boolean isAttendanceEnabled() {
+        return config == null || config.getBoolean(SETTINGS_PATH + ".record_attendance", true);
+    }
+    
+    /**
+     * Whether to serve Prometheus metrics on localhost. Read once at startup.
+     */
+    public boolean isMetricsEnabled() {
+        return config != null && config.getBoolean(SETTINGS_PATH + ".metrics_enabled", false);
+    }
+    
+    public int getMetricsPort() {
+        int port = config != null ? config.getInt(SETTINGS_PATH + ".metrics_port", 9941) : 9941;
+        return Math.max(1, Math.min(port, 65535));
+    }
+    
+    public long getWatchDebounceMillis() {
+        long debounce = config != null ? config.getLong(SETTINGS_PATH + ".watch_debounce_ms", 1000L) : 1000L;
+        return Math.max(100L, Math.min(debounce, 30000L));
+    }
+    
+    /**
+     * Result of parsing config.yml contents off the main thread
+     */
+    public static final class ParsedConfig {
+        private final FileConfiguration config;
+        private final Map<DayOfWeek, List<TimeSession>> days;
+        private final Map<String, Map<DayOfWeek, List<TimeSession>>> worlds;
+        private final List<ScheduleGroup> groups;
+        private final byte[] digest;
+        private final byte[] baseDigest;
+        private final List<String> errors;
+        private final List<String> conflicts;
+        private final boolean normalized;
+        
+        private ParsedConfig(FileConfiguration config, Map<DayOfWeek, List<TimeSession>> days,
+                             Map<String, Map<DayOfWeek, List<TimeSession>>> worlds, List<ScheduleGroup> groups,
+                             byte[] digest, byte[] baseDigest, List<String> errors, List<String> conflicts,
+                             boolean normalized) {
+            this.config = config;
+            this.days = days;
+            this.worlds = worlds;
+            this.groups = groups;
+            this.digest = digest;
+            this.baseDigest = baseDigest;
+            this.errors = Collections.unmodifiableList(errors);
+            this.conflicts = conflicts;
+            this.normalized = normalized;
+        }
+        
+        public boolean isValid() {
+            return config != null && errors.isEmpty();
+        }
+        
+        public FileConfiguration getConfig() {
+            return config;
+        }
+        
+        public Map<DayOfWeek, List<TimeSession>> getDays() {
+            return days;
+        }
+        
+        /**
+         * Normalized per-world schedules, keyed by world name
+         */
+        public Map<String, Map<DayOfWeek, List<TimeSession>>> getWorlds() {
+            return worlds;
+        }
+        
+        public List<ScheduleGroup> getGroups() {
+            return groups;
+        }
+        
+        public byte[] getDigest() {
+            return digest;
+        }
+        
+        public List<String> getErrors() {
+            return errors;
+        }
+        
+        /**
+         * Overlaps that were merged while normalizing the schedule
+         */
+        public List<String> getConflicts() {
+            return conflicts;
+        }
+        
+        /**
+         * Whether the file's schedule was not already in canonical form
+         */
+        public boolean isNormalized() {
+            return normalized;
+        }
+    }
 }
\ No newline at end of file
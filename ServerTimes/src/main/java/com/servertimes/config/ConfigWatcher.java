@@ -0,0 +1,231 @@
+package com.servertimes.config;
+
+import com.servertimes.ServerTimesPlugin;
+import com.servertimes.scheduler.ServerScheduler;
+import com.servertimes.utils.PermissionUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Watches config.yml and hot-reloads the schedule when it is edited on disk.
+ * <p>
+ * Bursts of file events are debounced, the file is parsed off the main thread and only
+ * a fully valid edit is swapped in (on the main thread). Broken edits are logged and the
+ * live schedule is left untouched.
+ */
+public class ConfigWatcher {
+    private static final String CONFIG_FILE_NAME = "config.yml";
+
+    private final ServerTimesPlugin plugin;
+    private final ConfigManager configManager;
+    private final ServerScheduler serverScheduler;
+    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private final Object debounceLock = new Object();
+
+    private volatile WatchService watchService;
+    private volatile Thread watchThread;
+    private BukkitTask pendingReload;
+
+    public ConfigWatcher(ServerTimesPlugin plugin, ConfigManager configManager, ServerScheduler serverScheduler) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.serverScheduler = serverScheduler;
+    }
+
+    public void start() {
+        if (!isRunning.compareAndSet(false, true)) {
+            plugin.getLogger().warning("ConfigWatcher is already running");
+            return;
+        }
+
+        try {
+            Path dataFolder = plugin.getDataFolder().toPath();
+            watchService = FileSystems.getDefault().newWatchService();
+            dataFolder.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+            watchThread = new Thread(this::watchLoop, "ServerTimes-ConfigWatcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+
+            if (configManager.isDebugMode()) {
+                plugin.getLogger().info("Watching " + dataFolder.resolve(CONFIG_FILE_NAME) + " for changes");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not watch config.yml for changes: " + e.getMessage());
+            stop();
+        }
+    }
+
+    public void stop() {
+        isRunning.set(false);
+
+        synchronized (debounceLock) {
+            if (pendingReload != null) {
+                pendingReload.cancel();
+                pendingReload = null;
+            }
+        }
+
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Error closing config watch service: " + e.getMessage());
+            }
+        }
+
+        Thread thread = watchThread;
+        watchThread = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void watchLoop() {
+        while (isRunning.get()) {
+            WatchService service = watchService;
+            if (service == null) {
+                return;
+            }
+
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean configTouched = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                Object context = event.context();
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || (context instanceof Path && CONFIG_FILE_NAME.equals(context.toString()))) {
+                    configTouched = true;
+                }
+            }
+
+            if (configTouched) {
+                scheduleReload();
+            }
+
+            if (!key.reset()) {
+                plugin.getLogger().warning("Plugin data folder is no longer accessible, stopped watching config.yml");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Restart the debounce window; the reload runs once events stop arriving
+     */
+    private void scheduleReload() {
+        long debounceTicks = Math.max(1L, configManager.getWatchDebounceMillis() / 50L);
+        synchronized (debounceLock) {
+            if (!isRunning.get()) {
+                return;
+            }
+            if (pendingReload != null) {
+                pendingReload.cancel();
+            }
+            pendingReload = Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, this::reloadFromDisk, debounceTicks);
+        }
+    }
+
+    // Must run on the main thread
+    private void reportConflicts(List<String> conflicts) {
+        if (conflicts.isEmpty()) {
+            return;
+        }
+        
+        for (String conflict : conflicts) {
+            plugin.getLogger().warning("Schedule conflict: " + conflict);
+        }
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (PermissionUtil.hasAdminPermission(player)) {
+                player.sendMessage("§e[ServerTimes] config.yml was normalized:");
+                for (String conflict : conflicts) {
+                    player.sendMessage("§e- " + conflict);
+                }
+            }
+        }
+    }
+
+    // Runs asynchronously
+    private void reloadFromDisk() {
+        synchronized (debounceLock) {
+            pendingReload = null;
+        }
+
+        File configFile = new File(plugin.getDataFolder(), CONFIG_FILE_NAME);
+        if (!configFile.exists()) {
+            return;
+        }
+
+        byte[] contents;
+        try {
+            contents = Files.readAllBytes(configFile.toPath());
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not read edited config.yml: " + e.getMessage());
+            return;
+        }
+
+        // Our own saves and no-op touches end up here too
+        if (configManager.isCurrentContent(contents)) {
+            return;
+        }
+
+        ConfigManager.ParsedConfig parsed = configManager.parseConfig(contents);
+        if (!parsed.isValid()) {
+            plugin.getLogger().warning("Rejected config.yml edit, keeping the current schedule:");
+            for (String error : parsed.getErrors()) {
+                plugin.getLogger().warning("  " + error);
+            }
+            return;
+        }
+
+        if (!isRunning.get()) {
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            try {
+                Set<DayOfWeek> changedDays = configManager.applyParsedConfig(parsed);
+                if (changedDays == null) {
+                    // The plugin saved or reloaded meanwhile; the resulting file event re-reads it
+                    scheduleReload();
+                    return;
+                } else if (changedDays.isEmpty()) {
+                    plugin.getLogger().info("Reloaded config.yml (schedule unchanged)");
+                } else {
+                    plugin.getLogger().info("Reloaded config.yml, schedule changed for: " + changedDays);
+                    serverScheduler.onScheduleChanged(changedDays);
+                }
+                serverScheduler.refreshWorlds();
+                reportConflicts(parsed.getConflicts());
+            } catch (Exception e) {
+                plugin.getLogger().severe("Error applying edited config.yml: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+}
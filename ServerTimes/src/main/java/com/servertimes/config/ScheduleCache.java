@@ -0,0 +1,216 @@
+package com.servertimes.config;
+
+import com.servertimes.model.ScheduleSnapshot;
+import com.servertimes.model.TimeSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compiled schedule persisted next to config.yml so startup can skip YAML parsing.
+ * <p>
+ * Layout (big-endian): magic, format version, SHA-256 of the config.yml it was compiled
+ * from, the settings.server_timezone value it was read in, the open-minute index words, the transition table, the sessions of each day as
+ * start minute/length pairs, and a CRC32 of everything before it. The file is only trusted
+ * when the magic, format version, config hash and checksum all match.
+ */
+public final class ScheduleCache {
+    public static final String FILE_NAME = "schedule.bin";
+
+    private static final int MAGIC = 0x53545343; // "STSC"
+    private static final int FORMAT_VERSION = 2;
+    private static final int DIGEST_LENGTH = 32;
+    private static final int MAX_WORDS = (ScheduleSnapshot.MINUTES_PER_WEEK + 63) / 64;
+    private static final int MAX_SESSIONS_PER_DAY = 1000;
+    private static final int MAX_TIMEZONE_LENGTH = 200;
+
+    private ScheduleCache() {
+    }
+
+    /**
+     * Read the cache file and rebuild the snapshot from it. Returns {@code null} if the file
+     * is missing, corrupt, from another format version or compiled from other config contents.
+     */
+    public static Contents read(File file, byte[] configDigest, long version) throws IOException {
+        if (file == null || !file.isFile() || configDigest == null || configDigest.length != DIGEST_LENGTH) {
+            return null;
+        }
+
+        // Read rather than mapped: a live mapping would keep Windows from replacing the file
+        long size = file.length();
+        if (size < 16 + DIGEST_LENGTH || size > 1024 * 1024) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            // Verify the trailing checksum before trusting any counts
+            int payloadLength = buffer.limit() - 4;
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(0).limit(payloadLength);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(payloadLength)) {
+                return null;
+            }
+
+            byte[] digest = new byte[DIGEST_LENGTH];
+            buffer.get(digest);
+            if (!MessageDigest.isEqual(digest, configDigest)) {
+                return null;
+            }
+
+            int timezoneLength = buffer.getShort() & 0xFFFF;
+            if (timezoneLength > MAX_TIMEZONE_LENGTH) {
+                return null;
+            }
+            byte[] timezone = new byte[timezoneLength];
+            buffer.get(timezone);
+
+            int wordCount = buffer.getInt();
+            if (wordCount < 0 || wordCount > MAX_WORDS) {
+                return null;
+            }
+            long[] words = new long[wordCount];
+            buffer.asLongBuffer().get(words);
+            buffer.position(buffer.position() + wordCount * 8);
+
+            int transitionCount = buffer.getInt();
+            if (transitionCount < 0 || transitionCount > ScheduleSnapshot.MINUTES_PER_WEEK) {
+                return null;
+            }
+            int[] transitions = new int[transitionCount];
+            buffer.asIntBuffer().get(transitions);
+            buffer.position(buffer.position() + transitionCount * 4);
+
+            Map<DayOfWeek, List<TimeSession>> days = new EnumMap<>(DayOfWeek.class);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                int count = buffer.getInt();
+                if (count < 0 || count > MAX_SESSIONS_PER_DAY) {
+                    return null;
+                }
+                List<TimeSession> sessions = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int start = buffer.getShort();
+                    int length = buffer.getShort();
+                    if (start < 0 || start >= ScheduleSnapshot.MINUTES_PER_DAY
+                            || length <= 0 || length > ScheduleSnapshot.MINUTES_PER_DAY) {
+                        return null;
+                    }
+                    int end = (start + length) % ScheduleSnapshot.MINUTES_PER_DAY;
+                    sessions.add(TimeSession.ofMinutes(start, end));
+                }
+                days.put(day, sessions);
+            }
+
+            if (buffer.position() != payloadLength) {
+                return null;
+            }
+            return new Contents(ScheduleSnapshot.fromCompiled(days, words, transitions, version),
+                new String(timezone, StandardCharsets.UTF_8));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the compiled form of a snapshot and the server_timezone setting it is read in,
+     * replacing the previous cache file atomically where the file system allows it
+     */
+    public static void write(File file, byte[] configDigest, ScheduleSnapshot snapshot, String serverTimezone)
+            throws IOException {
+        if (configDigest == null || configDigest.length != DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Config digest must be a SHA-256 hash");
+        }
+        byte[] timezone = (serverTimezone != null ? serverTimezone : "").getBytes(StandardCharsets.UTF_8);
+        if (timezone.length > MAX_TIMEZONE_LENGTH) {
+            throw new IllegalArgumentException("server_timezone is too long to cache");
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(2048);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.write(configDigest);
+        out.writeShort(timezone.length);
+        out.write(timezone);
+
+        long[] words = snapshot.getOpenWords();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+
+        int[] transitions = snapshot.getTransitions();
+        out.writeInt(transitions.length);
+        for (int transition : transitions) {
+            out.writeInt(transition);
+        }
+
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<TimeSession> sessions = snapshot.getSessions(day);
+            out.writeInt(sessions.size());
+            for (TimeSession session : sessions) {
+                out.writeShort(session.getStartMinute());
+                out.writeShort(session.getLengthMinutes());
+            }
+        }
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(FILE_NAME + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A cached schedule and the raw settings.server_timezone value it is read in. The zone
+     * is resolved by the caller, exactly as a full load would resolve it.
+     */
+    public static final class Contents {
+        private final ScheduleSnapshot snapshot;
+        private final String serverTimezone;
+
+        private Contents(ScheduleSnapshot snapshot, String serverTimezone) {
+            this.snapshot = snapshot;
+            this.serverTimezone = serverTimezone;
+        }
+
+        public ScheduleSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public String getServerTimezone() {
+            return serverTimezone;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.servertimes.config;
+
+import com.servertimes.model.ScheduleNormalizer;
+import com.servertimes.model.TimeSession;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A private copy of the weekly schedule that edits are staged on, published as a whole
+ * with {@link ConfigManager#commitDraft}.
+ * <p>
+ * Every edit normalizes the draft the way the live schedule would be, so session numbers
+ * match what will be published. The session limit is only checked on commit, so a batch
+ * may pass through a day with too many sessions on its way to a valid week. Edits are
+ * not thread-safe, as a draft belongs to one command sender, but it may be read from the
+ * tab-complete thread.
+ */
+public final class ScheduleDraft {
+    private final Map<DayOfWeek, List<TimeSession>> base;
+    private volatile Map<DayOfWeek, List<TimeSession>> days;
+    private int editCount;
+
+    ScheduleDraft(Map<DayOfWeek, List<TimeSession>> current) {
+        this.base = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<TimeSession> sessions = current.get(day);
+            base.put(day, sessions != null ? sessions : Collections.emptyList());
+        }
+        this.days = base;
+    }
+
+    /**
+     * Replace all sessions of a day. Returns notes about sessions that were merged.
+     */
+    public List<String> setSessions(DayOfWeek day, List<TimeSession> sessions) {
+        return apply(day, new ArrayList<>(sessions));
+    }
+
+    public List<String> addSession(DayOfWeek day, TimeSession session) {
+        List<TimeSession> sessions = new ArrayList<>(getSessions(day));
+        sessions.add(session);
+        return apply(day, sessions);
+    }
+
+    /**
+     * Remove a session by its 0-based index. Returns false if there is no such session.
+     */
+    public boolean removeSession(DayOfWeek day, int sessionIndex) {
+        List<TimeSession> sessions = new ArrayList<>(getSessions(day));
+        if (sessionIndex < 0 || sessionIndex >= sessions.size()) {
+            return false;
+        }
+        sessions.remove(sessionIndex);
+        apply(day, sessions);
+        return true;
+    }
+
+    public void clearSessions(DayOfWeek day) {
+        apply(day, new ArrayList<>());
+    }
+
+    private List<String> apply(DayOfWeek day, List<TimeSession> sessions) {
+        Map<DayOfWeek, List<TimeSession>> proposed = new EnumMap<>(days);
+        proposed.put(day, sessions);
+        ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(proposed, 0);
+        Map<DayOfWeek, List<TimeSession>> result = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek each : DayOfWeek.values()) {
+            List<TimeSession> normalizedSessions = normalized.getDays().get(each);
+            result.put(each, normalizedSessions != null ? normalizedSessions : Collections.emptyList());
+        }
+        days = result;
+        editCount++;
+        return normalized.getConflicts();
+    }
+
+    public List<TimeSession> getSessions(DayOfWeek day) {
+        return days.get(day);
+    }
+
+    /**
+     * The staged week; not modified by later edits
+     */
+    public Map<DayOfWeek, List<TimeSession>> getDays() {
+        return Collections.unmodifiableMap(days);
+    }
+
+    /**
+     * The sessions a day had when the draft began
+     */
+    public List<TimeSession> getBaseSessions(DayOfWeek day) {
+        return base.get(day);
+    }
+
+    /**
+     * Days whose sessions differ from when the draft began; merging across midnight can
+     * change a neighbouring day too
+     */
+    public Set<DayOfWeek> getChangedDays() {
+        Set<DayOfWeek> changed = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (!days.get(day).equals(base.get(day))) {
+                changed.add(day);
+            }
+        }
+        return changed;
+    }
+
+    public int getEditCount() {
+        return editCount;
+    }
+}
@@ -0,0 +1,476 @@
+package com.servertimes.config;
+
+import com.servertimes.ServerTimesPlugin;
+import com.servertimes.model.ScheduleNormalizer;
+import com.servertimes.model.TimeSession;
+import com.servertimes.scheduler.ServerScheduler;
+import com.servertimes.utils.ValidationUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bulk-imports a schedule from a CSV or iCalendar (.ics) file in the plugin folder.
+ * <p>
+ * The file is streamed line by line on a background thread, every entry goes through the
+ * same parser as {@code /servertimes add}, and the result is normalized before anything
+ * is touched. The live schedule is then replaced in one snapshot swap with a single save.
+ * <p>
+ * CSV rows are {@code day,start,end} (or {@code day,start-end}); a header row and lines
+ * starting with {@code #} are skipped. Calendar events use DTSTART/DTEND (or DURATION),
+ * and a weekly or daily RRULE spreads an event over the listed days. Only rules that
+ * repeat every week forever map onto a weekly schedule, so one-off events and rules with
+ * another frequency, an INTERVAL, COUNT or UNTIL are rejected.
+ */
+public class ScheduleImporter {
+    private static final int MAX_REPORTED_ERRORS = 10;
+    private static final DateTimeFormatter ICS_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter ICS_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final ServerTimesPlugin plugin;
+    private final ConfigManager configManager;
+    private final ServerScheduler serverScheduler;
+    private final AtomicBoolean importRunning = new AtomicBoolean(false);
+
+    public ScheduleImporter(ServerTimesPlugin plugin, ConfigManager configManager, ServerScheduler serverScheduler) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.serverScheduler = serverScheduler;
+    }
+
+    /**
+     * Start importing a file. With {@code merge} the imported sessions are added to the
+     * current schedule, otherwise they replace it.
+     */
+    public void importFile(CommandSender sender, String fileName, boolean merge) {
+        File file;
+        try {
+            file = resolveInDataFolder(fileName);
+        } catch (IOException e) {
+            sender.sendMessage("§cCannot open " + fileName + ": " + e.getMessage());
+            return;
+        }
+        if (file == null) {
+            sender.sendMessage("§cThe file must be inside the plugin folder.");
+            return;
+        }
+        if (!file.isFile() || !file.canRead()) {
+            sender.sendMessage("§cFile not found or not readable: " + fileName);
+            return;
+        }
+
+        String lowerName = file.getName().toLowerCase(Locale.ROOT);
+        boolean calendar = lowerName.endsWith(".ics");
+        if (!calendar && !lowerName.endsWith(".csv")) {
+            sender.sendMessage("§cOnly .csv and .ics files can be imported.");
+            return;
+        }
+
+        if (!importRunning.compareAndSet(false, true)) {
+            sender.sendMessage("§cAnother import is already running.");
+            return;
+        }
+
+        sender.sendMessage("§7Importing " + file.getName() + "...");
+        int maxLength = configManager.getMaxTimeStringLength();
+        ZoneId zone = configManager.getServerZone();
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            // Cleared here unless the commit task took over, so a failed import never blocks later ones
+            boolean committing = false;
+            try {
+                ImportResult result = calendar ? parseCalendar(file, zone) : parseCsv(file, maxLength);
+
+                // Collapse duplicates off the main thread; the limit is checked again on commit
+                ScheduleNormalizer.Result normalized = ScheduleNormalizer.normalize(result.days, 0);
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    try {
+                        commit(sender, file.getName(), result, normalized.getDays(), merge);
+                    } finally {
+                        importRunning.set(false);
+                    }
+                });
+                committing = true;
+            } catch (IOException e) {
+                Bukkit.getScheduler().runTask(plugin, () ->
+                    sender.sendMessage("§cError reading " + file.getName() + ": " + e.getMessage()));
+                plugin.getLogger().warning("Error reading import file " + file + ": " + e.getMessage());
+            } catch (Exception e) {
+                Bukkit.getScheduler().runTask(plugin, () ->
+                    sender.sendMessage("§cError importing " + file.getName() + ": " + e.getMessage()));
+                plugin.getLogger().warning("Error importing " + file + ": " + e.getMessage());
+            } finally {
+                if (!committing) {
+                    importRunning.set(false);
+                }
+            }
+        });
+    }
+
+    // Runs on the main thread
+    private void commit(CommandSender sender, String fileName, ImportResult result,
+                        Map<DayOfWeek, List<TimeSession>> imported, boolean merge) {
+        if (result.errorCount > 0) {
+            sender.sendMessage("§cImport of " + fileName + " aborted: " + result.errorCount + " invalid entr"
+                + (result.errorCount == 1 ? "y" : "ies") + ". The schedule was not changed.");
+            for (String error : result.errors) {
+                sender.sendMessage("§7- " + error);
+            }
+            if (result.errorCount > result.errors.size()) {
+                sender.sendMessage("§7... and " + (result.errorCount - result.errors.size()) + " more");
+            }
+            return;
+        }
+
+        Map<DayOfWeek, List<TimeSession>> schedule = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<TimeSession> sessions = new ArrayList<>();
+            if (merge) {
+                sessions.addAll(configManager.getSnapshot().getSessions(day));
+            }
+            sessions.addAll(imported.get(day));
+            schedule.put(day, sessions);
+        }
+
+        try {
+            List<String> conflicts = configManager.replaceSchedule(schedule);
+            sender.sendMessage("§aImported " + result.entryCount + " entr" + (result.entryCount == 1 ? "y" : "ies")
+                + " from " + fileName + (merge ? " into the current schedule." : "."));
+            if (!conflicts.isEmpty()) {
+                sender.sendMessage("§e" + conflicts.size() + " overlapping group(s) were merged.");
+            }
+            serverScheduler.updateSchedule();
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage("§cImport of " + fileName + " rejected: " + e.getMessage());
+        } catch (Exception e) {
+            sender.sendMessage("§cError applying import: " + e.getMessage());
+            plugin.getLogger().warning("Error applying import from " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resolve a file name inside the plugin folder, or return null if it points outside it
+     */
+    private File resolveInDataFolder(String fileName) throws IOException {
+        File base = plugin.getDataFolder().getCanonicalFile();
+        File file = new File(base, fileName).getCanonicalFile();
+        return file.toPath().startsWith(base.toPath()) ? file : null;
+    }
+
+    static ImportResult parseCsv(File file, int maxTimeLength) throws IOException {
+        ImportResult result = new ImportResult();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split("[,;]");
+                if (fields.length == 0) {
+                    // Only separators, e.g. ",,"
+                    result.error("Line " + lineNumber + ": expected day,start,end");
+                    continue;
+                }
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = unquote(fields[i].trim());
+                }
+                if (lineNumber == 1 && fields[0].equalsIgnoreCase("day")) {
+                    continue;
+                }
+
+                String start;
+                String end;
+                if (fields.length == 3) {
+                    start = fields[1];
+                    end = fields[2];
+                } else if (fields.length == 2 && fields[1].indexOf('-') > 0) {
+                    start = fields[1].substring(0, fields[1].indexOf('-')).trim();
+                    end = fields[1].substring(fields[1].indexOf('-') + 1).trim();
+                } else {
+                    result.error("Line " + lineNumber + ": expected day,start,end");
+                    continue;
+                }
+
+                DayOfWeek day = ValidationUtil.parseDayOfWeek(fields[0]);
+                if (day == null) {
+                    result.error("Line " + lineNumber + ": unknown day '" + fields[0] + "'");
+                    continue;
+                }
+                if (start.length() > maxTimeLength || end.length() > maxTimeLength) {
+                    result.error("Line " + lineNumber + ": time longer than " + maxTimeLength + " characters");
+                    continue;
+                }
+
+                try {
+                    result.add(day, new TimeSession(start, end));
+                } catch (IllegalArgumentException e) {
+                    result.error("Line " + lineNumber + ": invalid time '" + start + "-" + end + "'");
+                }
+            }
+        }
+        return result;
+    }
+
+    static ImportResult parseCalendar(File file, ZoneId serverZone) throws IOException {
+        ImportResult result = new ImportResult();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            CalendarEvent event = null;
+            String pending = null;
+            int lineNumber = 0;
+            int eventLine = 0;
+            String raw;
+            while (true) {
+                raw = reader.readLine();
+                // Folded lines continue with a leading space or tab
+                if (raw != null && !raw.isEmpty() && (raw.charAt(0) == ' ' || raw.charAt(0) == '\t')) {
+                    if (pending != null) {
+                        pending = pending + raw.substring(1);
+                    }
+                    lineNumber++;
+                    continue;
+                }
+
+                if (pending != null) {
+                    pending = pending.trim();
+                    if (pending.equalsIgnoreCase("BEGIN:VEVENT")) {
+                        event = new CalendarEvent();
+                        eventLine = lineNumber;
+                    } else if (pending.equalsIgnoreCase("END:VEVENT")) {
+                        if (event != null) {
+                            addEvent(result, event, serverZone, eventLine);
+                        }
+                        event = null;
+                    } else if (event != null) {
+                        event.accept(pending);
+                    }
+                }
+
+                if (raw == null) {
+                    break;
+                }
+                pending = raw;
+                lineNumber++;
+            }
+        }
+        return result;
+    }
+
+    private static void addEvent(ImportResult result, CalendarEvent event, ZoneId serverZone, int lineNumber) {
+        try {
+            if (event.start == null) {
+                result.error("Event at line " + lineNumber + ": missing DTSTART");
+                return;
+            }
+
+            ZonedDateTime start = toServerTime(event.start, event.startParams, serverZone);
+            ZonedDateTime end;
+            if (event.end != null) {
+                end = toServerTime(event.end, event.endParams, serverZone);
+            } else if (event.duration != null) {
+                end = start.plus(Duration.parse(event.duration));
+            } else {
+                end = isDateOnly(event.start, event.startParams) ? start.plusDays(1) : start;
+            }
+
+            long minutes = Duration.between(start, end).toMinutes();
+            if (minutes <= 0 || minutes > 24 * 60) {
+                result.error("Event at line " + lineNumber + ": must last between 1 minute and 24 hours");
+                return;
+            }
+
+            LocalTime startTime = start.toLocalTime().withSecond(0).withNano(0);
+            LocalTime endTime = startTime.plusMinutes(minutes);
+            // RRULE days are in the event's own timezone; shift them like the start was shifted
+            DayOfWeek eventDay = LocalDate.parse(event.start.substring(0, 8), ICS_DATE).getDayOfWeek();
+            int shift = start.getDayOfWeek().getValue() - eventDay.getValue();
+            for (DayOfWeek day : event.days(eventDay)) {
+                result.add(day.plus(shift), new TimeSession(startTime, endTime));
+            }
+        } catch (RuntimeException e) {
+            result.error("Event at line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private static ZonedDateTime toServerTime(String value, String params, ZoneId serverZone) {
+        if (isDateOnly(value, params)) {
+            return LocalDate.parse(value, ICS_DATE).atStartOfDay(serverZone);
+        }
+
+        if (value.endsWith("Z")) {
+            LocalDateTime utc = LocalDateTime.parse(value.substring(0, value.length() - 1), ICS_DATE_TIME);
+            return utc.atZone(ZoneOffset.UTC).withZoneSameInstant(serverZone);
+        }
+
+        LocalDateTime local = LocalDateTime.parse(value, ICS_DATE_TIME);
+        String tzid = parameter(params, "TZID");
+        ZoneId zone = tzid != null ? ZoneId.of(tzid) : serverZone;
+        return local.atZone(zone).withZoneSameInstant(serverZone);
+    }
+
+    private static boolean isDateOnly(String value, String params) {
+        return "DATE".equalsIgnoreCase(parameter(params, "VALUE")) || value.length() == 8;
+    }
+
+    private static String parameter(String params, String name) {
+        if (params == null) {
+            return null;
+        }
+        for (String param : params.split(";")) {
+            int eq = param.indexOf('=');
+            if (eq > 0 && param.substring(0, eq).equalsIgnoreCase(name)) {
+                return unquote(param.substring(eq + 1));
+            }
+        }
+        return null;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * The properties of one VEVENT that matter for a weekly schedule
+     */
+    private static final class CalendarEvent {
+        private String start;
+        private String startParams;
+        private String end;
+        private String endParams;
+        private String duration;
+        private String rule;
+
+        void accept(String line) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                return;
+            }
+            String nameAndParams = line.substring(0, colon);
+            String value = line.substring(colon + 1).trim();
+            int semicolon = nameAndParams.indexOf(';');
+            String name = (semicolon >= 0 ? nameAndParams.substring(0, semicolon) : nameAndParams).toUpperCase(Locale.ROOT);
+            String params = semicolon >= 0 ? nameAndParams.substring(semicolon + 1) : null;
+
+            switch (name) {
+                case "DTSTART":
+                    start = value;
+                    startParams = params;
+                    break;
+                case "DTEND":
+                    end = value;
+                    endParams = params;
+                    break;
+                case "DURATION":
+                    duration = value;
+                    break;
+                case "RRULE":
+                    rule = value.toUpperCase(Locale.ROOT);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        Set<DayOfWeek> days(DayOfWeek startDay) {
+            if (rule == null) {
+                throw new IllegalArgumentException("one-off event; only events repeating weekly or daily can be imported");
+            }
+
+            String frequency = parameter(rule, "FREQ");
+            if (!"DAILY".equals(frequency) && !"WEEKLY".equals(frequency)) {
+                throw new IllegalArgumentException("unsupported FREQ " + frequency + "; use WEEKLY or DAILY");
+            }
+            String interval = parameter(rule, "INTERVAL");
+            if (interval != null && !interval.equals("1")) {
+                throw new IllegalArgumentException("unsupported INTERVAL " + interval + "; the schedule repeats every week");
+            }
+            if (parameter(rule, "COUNT") != null || parameter(rule, "UNTIL") != null) {
+                throw new IllegalArgumentException("COUNT and UNTIL are not supported; the schedule repeats forever");
+            }
+            // BYDAY limits a daily rule to the listed days, the same as a weekly one
+            String byDay = parameter(rule, "BYDAY");
+            if (byDay == null) {
+                return "DAILY".equals(frequency) ? EnumSet.allOf(DayOfWeek.class) : EnumSet.of(startDay);
+            }
+
+            EnumSet<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            for (String code : byDay.split(",")) {
+                DayOfWeek day = fromCalendarCode(code.trim());
+                if (day == null) {
+                    throw new IllegalArgumentException("unsupported BYDAY value " + code);
+                }
+                days.add(day);
+            }
+            return days;
+        }
+
+        private static DayOfWeek fromCalendarCode(String code) {
+            switch (code) {
+                case "MO": return DayOfWeek.MONDAY;
+                case "TU": return DayOfWeek.TUESDAY;
+                case "WE": return DayOfWeek.WEDNESDAY;
+                case "TH": return DayOfWeek.THURSDAY;
+                case "FR": return DayOfWeek.FRIDAY;
+                case "SA": return DayOfWeek.SATURDAY;
+                case "SU": return DayOfWeek.SUNDAY;
+                default: return null;
+            }
+        }
+    }
+
+    /**
+     * Sessions read from a file plus the first few problems found
+     */
+    static final class ImportResult {
+        private final Map<DayOfWeek, List<TimeSession>> days = new EnumMap<>(DayOfWeek.class);
+        private final List<String> errors = new ArrayList<>();
+        private int errorCount;
+        private int entryCount;
+
+        ImportResult() {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                days.put(day, new ArrayList<>());
+            }
+        }
+
+        void add(DayOfWeek day, TimeSession session) {
+            days.get(day).add(session);
+            entryCount++;
+        }
+
+        void error(String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.servertimes.data;
+
+import com.servertimes.ServerTimesPlugin;
+import com.servertimes.config.ConfigManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records player joins and quits for attendance statistics.
+ * <p>
+ * Each week (Monday to Monday, server time) gets its own file in attendance/, named after
+ * its Monday, holding fixed-width records in a memory-mapped region. Writers claim a slot
+ * with one atomic increment and fill it in place, so recording takes no lock. The record
+ * type is written last; a zero type marks the end of the file.
+ */
+public class AttendanceRecorder {
+    public static final String FOLDER_NAME = "attendance";
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 32;
+    static final int MAGIC = 0x53545441;
+    static final int VERSION = 1;
+
+    // Record layout: epoch millis, UUID most and least significant bits, type
+    static final int TIME_OFFSET = 0;
+    static final int MOST_OFFSET = 8;
+    static final int LEAST_OFFSET = 16;
+    static final int TYPE_OFFSET = 24;
+
+    static final int TYPE_JOIN = 1;
+    static final int TYPE_QUIT = 2;
+    // Written when recording starts and stops: nobody from before it is still online
+    static final int TYPE_RESET = 3;
+
+    // 8 MiB per week; the file is sparse until records are written
+    static final int RECORDS_PER_FILE = 1 << 18;
+
+    private final ServerTimesPlugin plugin;
+    private final ConfigManager configManager;
+    private final File folder;
+    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private volatile WeekFile current;
+
+    public AttendanceRecorder(ServerTimesPlugin plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.folder = new File(plugin.getDataFolder(), FOLDER_NAME);
+    }
+
+    /**
+     * Open this week's file and record who is online right now
+     */
+    public void start(Collection<UUID> onlinePlayers) {
+        if (!isRunning.compareAndSet(false, true)) {
+            plugin.getLogger().warning("Attendance recorder is already running");
+            return;
+        }
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            plugin.getLogger().severe("Could not create attendance directory: " + folder.getAbsolutePath());
+            isRunning.set(false);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        current = openWeek(now);
+        record(TYPE_RESET, new UUID(0L, 0L), now);
+        for (UUID playerId : onlinePlayers) {
+            record(TYPE_JOIN, playerId, now);
+        }
+    }
+
+    public void stop() {
+        isRunning.set(false);
+        // Plugins are disabled before players are kicked, so no quits arrive for the players
+        // still online; without this they would count as online through the downtime
+        record(TYPE_RESET, new UUID(0L, 0L), System.currentTimeMillis());
+        WeekFile file = current;
+        current = null;
+        if (file != null) {
+            file.buffer.force();
+        }
+    }
+
+    public void recordJoin(UUID playerId) {
+        record(TYPE_JOIN, playerId, System.currentTimeMillis());
+    }
+
+    public void recordQuit(UUID playerId) {
+        record(TYPE_QUIT, playerId, System.currentTimeMillis());
+    }
+
+    private void record(int type, UUID playerId, long now) {
+        WeekFile file = current;
+        if (file == null) {
+            return;
+        }
+        if (now >= file.endMillis) {
+            file = rotate(now);
+            if (file == null) {
+                return;
+            }
+        }
+
+        int index = file.next.getAndIncrement();
+        if (index >= RECORDS_PER_FILE) {
+            if (file.full.compareAndSet(false, true)) {
+                plugin.getLogger().warning("Attendance file for the week of " + file.weekStart + " is full; "
+                    + "no more joins are recorded this week");
+            }
+            return;
+        }
+
+        // Absolute puts on a slot nobody else claimed
+        int offset = HEADER_SIZE + index * RECORD_SIZE;
+        MappedByteBuffer buffer = file.buffer;
+        buffer.putLong(offset + TIME_OFFSET, now);
+        buffer.putLong(offset + MOST_OFFSET, playerId.getMostSignificantBits());
+        buffer.putLong(offset + LEAST_OFFSET, playerId.getLeastSignificantBits());
+        buffer.putInt(offset + TYPE_OFFSET, type);
+    }
+
+    // Once a week; whoever gets here first opens the new file
+    private synchronized WeekFile rotate(long now) {
+        WeekFile file = current;
+        if (file == null || now < file.endMillis) {
+            return file;
+        }
+        file.buffer.force();
+        current = openWeek(now);
+        return current;
+    }
+
+    private WeekFile openWeek(long now) {
+        ZoneId zone = configManager.getServerZone();
+        LocalDate weekStart = weekStart(Instant.ofEpochMilli(now), zone);
+        File file = getWeekFile(weekStart);
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) RECORDS_PER_FILE * RECORD_SIZE);
+            if (buffer.getInt(0) != MAGIC) {
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, RECORD_SIZE);
+                buffer.putLong(12, weekStart.toEpochDay());
+                buffer.putInt(0, MAGIC);
+            } else if (buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE) {
+                plugin.getLogger().warning("Unsupported attendance file " + file.getName() + ", not recording this week");
+                return null;
+            }
+            long endMillis = weekStart.plusWeeks(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return new WeekFile(weekStart, endMillis, buffer, countRecords(buffer));
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open attendance file " + file.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Records are filled in order, so the written ones form a prefix
+    static int countRecords(ByteBuffer buffer) {
+        int low = 0;
+        int high = RECORDS_PER_FILE;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getInt(HEADER_SIZE + mid * RECORD_SIZE + TYPE_OFFSET) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The Monday starting the week an instant falls in, in the given zone
+     */
+    public static LocalDate weekStart(Instant instant, ZoneId zone) {
+        return instant.atZone(zone).toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    public File getWeekFile(LocalDate weekStart) {
+        return new File(folder, weekStart + ".bin");
+    }
+
+    private static final class WeekFile {
+        private final LocalDate weekStart;
+        private final long endMillis;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger next;
+        private final AtomicBoolean full = new AtomicBoolean(false);
+
+        private WeekFile(LocalDate weekStart, long endMillis, MappedByteBuffer buffer, int next) {
+            this.weekStart = weekStart;
+            this.endMillis = endMillis;
+            this.buffer = buffer;
+            this.next = new AtomicInteger(next);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.servertimes.data;
+
+import com.servertimes.model.ScheduleSnapshot;
+import com.servertimes.model.TimeSession;
+import com.servertimes.utils.ResolvedZone;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Attendance for one week, computed by streaming over its {@link AttendanceRecorder} file:
+ * the peak number of players online and the number of different players during each
+ * scheduled session, and the peak online per hour of the week.
+ */
+public final class AttendanceStats {
+    private static final int CHUNK_RECORDS = 2048;
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private final LocalDate weekStart;
+    private final List<SessionAttendance> sessions;
+    private final int[][] hourlyPeak;
+    private final int recordCount;
+
+    private AttendanceStats(LocalDate weekStart, List<SessionAttendance> sessions, int[][] hourlyPeak, int recordCount) {
+        this.weekStart = weekStart;
+        this.sessions = sessions;
+        this.hourlyPeak = hourlyPeak;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Compute a week's attendance up to {@code until}, against the given schedule.
+     * Returns null if nothing was recorded that week. Reads files; call it off the main thread.
+     */
+    public static AttendanceStats compute(AttendanceRecorder recorder, LocalDate weekStart, ScheduleSnapshot snapshot,
+                                          ZoneId zone, Instant until) throws IOException {
+        File file = recorder.getWeekFile(weekStart);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        long weekStartMillis = weekStart.atStartOfDay(zone).toInstant().toEpochMilli();
+        long weekEndMillis = weekStart.plusWeeks(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        Sweep sweep = new Sweep(occurrences(weekStart, snapshot, zone), zone, weekStartMillis);
+
+        // Players still online when last week's file ends carry over into this one
+        File previous = recorder.getWeekFile(weekStart.minusWeeks(1));
+        if (previous.isFile()) {
+            Set<UUID> online = new HashSet<>();
+            stream(previous, (type, playerId, time) -> {
+                if (type == AttendanceRecorder.TYPE_JOIN) {
+                    online.add(playerId);
+                } else if (type == AttendanceRecorder.TYPE_QUIT) {
+                    online.remove(playerId);
+                } else if (type == AttendanceRecorder.TYPE_RESET) {
+                    online.clear();
+                }
+            });
+            sweep.online.addAll(online);
+        }
+
+        int records = stream(file, sweep::apply);
+        sweep.advance(Math.min(until.toEpochMilli(), weekEndMillis));
+        return new AttendanceStats(weekStart, sweep.sessions, sweep.hourlyPeak, records);
+    }
+
+    // Every session of the week as an interval, in start order
+    private static List<SessionAttendance> occurrences(LocalDate weekStart, ScheduleSnapshot snapshot, ZoneId zone) {
+        List<SessionAttendance> occurrences = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            LocalDate date = weekStart.plusDays(day);
+            for (TimeSession session : snapshot.getSessions(date.getDayOfWeek())) {
+                // Wall-clock times, so a DST change moves the instants, not the session
+                long start = date.atStartOfDay().plusMinutes(session.getStartMinute())
+                    .atZone(zone).toInstant().toEpochMilli();
+                long end = date.atStartOfDay().plusMinutes(session.getStartMinute() + session.getLengthMinutes())
+                    .atZone(zone).toInstant().toEpochMilli();
+                occurrences.add(new SessionAttendance(date.getDayOfWeek(), session, start, end));
+            }
+        }
+        return occurrences;
+    }
+
+    private interface RecordHandler {
+        void accept(int type, UUID playerId, long time);
+    }
+
+    // Reads the file front to back in chunks and stops at the first unwritten record
+    private static int stream(File file, RecordHandler handler) throws IOException {
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(AttendanceRecorder.HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading
+            }
+            if (header.getInt(0) != AttendanceRecorder.MAGIC || header.getInt(8) != AttendanceRecorder.RECORD_SIZE) {
+                throw new IOException("Not an attendance file: " + file.getName());
+            }
+
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_RECORDS * AttendanceRecorder.RECORD_SIZE);
+            while (true) {
+                chunk.clear();
+                while (chunk.hasRemaining() && channel.read(chunk) > 0) {
+                    // Fill the chunk
+                }
+                chunk.flip();
+                while (chunk.remaining() >= AttendanceRecorder.RECORD_SIZE) {
+                    int offset = chunk.position();
+                    int type = chunk.getInt(offset + AttendanceRecorder.TYPE_OFFSET);
+                    if (type == 0) {
+                        return count;
+                    }
+                    handler.accept(type,
+                        new UUID(chunk.getLong(offset + AttendanceRecorder.MOST_OFFSET),
+                            chunk.getLong(offset + AttendanceRecorder.LEAST_OFFSET)),
+                        chunk.getLong(offset + AttendanceRecorder.TIME_OFFSET));
+                    chunk.position(offset + AttendanceRecorder.RECORD_SIZE);
+                    count++;
+                }
+                if (chunk.limit() < chunk.capacity()) {
+                    return count;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sessions of the week in start order, including ones that have not happened yet
+     */
+    public List<SessionAttendance> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Peak players online per local day (Monday first) and hour
+     */
+    public int[][] getHourlyPeak() {
+        return hourlyPeak;
+    }
+
+    public LocalDate getWeekStart() {
+        return weekStart;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * One scheduled session in a given week and who showed up to it
+     */
+    public static final class SessionAttendance {
+        private final DayOfWeek day;
+        private final TimeSession session;
+        private final long startMillis;
+        private final long endMillis;
+        private final Set<UUID> players = new HashSet<>();
+        private int peak;
+        private boolean started;
+
+        private SessionAttendance(DayOfWeek day, TimeSession session, long startMillis, long endMillis) {
+            this.day = day;
+            this.session = session;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        public DayOfWeek getDay() {
+            return day;
+        }
+
+        public TimeSession getSession() {
+            return session;
+        }
+
+        /**
+         * Whether the session had started by the time the stats were computed
+         */
+        public boolean hasStarted() {
+            return started;
+        }
+
+        public int getPeak() {
+            return peak;
+        }
+
+        /**
+         * Different players online at any point during the session
+         */
+        public int getPlayerCount() {
+            return players.size();
+        }
+    }
+
+    // Replays joins and quits in order, updating the sessions and hours they fall in
+    private static final class Sweep {
+        private final List<SessionAttendance> sessions;
+        private final List<SessionAttendance> active = new ArrayList<>();
+        private final Set<UUID> online = new HashSet<>();
+        private final int[][] hourlyPeak = new int[7][24];
+        private int nextSession;
+        private long time;
+        private ResolvedZone zone;
+
+        private Sweep(List<SessionAttendance> sessions, ZoneId zone, long weekStartMillis) {
+            this.sessions = sessions;
+            this.time = weekStartMillis;
+            this.zone = ResolvedZone.resolve(zone.getId(), zone, Instant.ofEpochMilli(weekStartMillis));
+        }
+
+        private void apply(int type, UUID playerId, long recordTime) {
+            advance(recordTime);
+            if (type == AttendanceRecorder.TYPE_JOIN) {
+                online.add(playerId);
+                for (SessionAttendance session : active) {
+                    session.players.add(playerId);
+                }
+            } else if (type == AttendanceRecorder.TYPE_QUIT) {
+                online.remove(playerId);
+            } else if (type == AttendanceRecorder.TYPE_RESET) {
+                online.clear();
+            }
+            observe();
+        }
+
+        // Move the clock forward in steps that end at hour boundaries and session starts and
+        // ends; the online count is constant until the next record
+        private void advance(long to) {
+            while (time < to) {
+                updateSessions();
+                observe();
+                long next = Math.min(to, nextHour(time));
+                if (nextSession < sessions.size()) {
+                    next = Math.min(next, sessions.get(nextSession).startMillis);
+                }
+                for (SessionAttendance session : active) {
+                    next = Math.min(next, session.endMillis);
+                }
+                time = next;
+            }
+            updateSessions();
+        }
+
+        private void updateSessions() {
+            active.removeIf(session -> session.endMillis <= time);
+            while (nextSession < sessions.size() && sessions.get(nextSession).startMillis <= time) {
+                SessionAttendance session = sessions.get(nextSession++);
+                session.started = true;
+                if (session.endMillis > time) {
+                    session.players.addAll(online);
+                    active.add(session);
+                }
+            }
+        }
+
+        private void observe() {
+            int count = online.size();
+            for (SessionAttendance session : active) {
+                session.peak = Math.max(session.peak, count);
+            }
+            zone = zone.at(Instant.ofEpochMilli(time));
+            long epochSecond = Math.floorDiv(time, 1000L);
+            int day = zone.getDayOfWeek(epochSecond).getValue() - 1;
+            int hour = zone.getMinuteOfDay(epochSecond) / 60;
+            hourlyPeak[day][hour] = Math.max(hourlyPeak[day][hour], count);
+        }
+
+        // The next local hour boundary; offsets are whole quarter hours, so minutes line up
+        private long nextHour(long from) {
+            ResolvedZone current = zone.at(Instant.ofEpochMilli(from));
+            int minuteOfDay = current.getMinuteOfDay(Math.floorDiv(from, 1000L));
+            long minuteStart = from - Math.floorMod(from, MILLIS_PER_MINUTE);
+            long boundary = minuteStart + (60 - minuteOfDay % 60) * MILLIS_PER_MINUTE;
+            long offsetChange = current.getValidUntil();
+            return offsetChange == Long.MAX_VALUE ? boundary : Math.min(boundary, offsetChange * 1000L);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.servertimes.data;
+
+import com.servertimes.ServerTimesPlugin;
+import com.servertimes.config.ConfigManager;
+import com.servertimes.model.ScheduleGroup;
+import com.servertimes.model.ScheduleNormalizer;
+import com.servertimes.model.ScheduleSnapshot;
+import com.servertimes.model.TimeSession;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches which schedule groups each player belongs to and the combined window of every
+ * combination of groups in use.
+ * <p>
+ * Membership is a bit mask over {@link ConfigManager#getGroups()}. It is resolved off the
+ * main thread at pre-login through LuckPerms when available; without LuckPerms it is
+ * read from permissions at login, before the login is gated, and again at join.
+ * Checking a player's window is then a map lookup and a bit test.
+ */
+public class GroupMembershipManager {
+    private final ServerTimesPlugin plugin;
+    private final ConfigManager configManager;
+    private final Map<UUID, Membership> memberships = new ConcurrentHashMap<>();
+    private volatile UnionTable unionTable;
+    private volatile LuckPermsLookup luckPerms;
+
+    public GroupMembershipManager(ServerTimesPlugin plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+    }
+
+    /**
+     * Hook into LuckPerms if it is installed. The LuckPerms classes are only touched when it is.
+     */
+    public void hookLuckPerms() {
+        if (Bukkit.getPluginManager().isPluginEnabled("LuckPerms")) {
+            try {
+                luckPerms = new LuckPermsLookup();
+                plugin.getLogger().info("Resolving schedule groups through LuckPerms");
+            } catch (Exception | LinkageError e) {
+                plugin.getLogger().warning("Could not hook into LuckPerms, falling back to permissions: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Resolve and cache a player's groups. Called from AsyncPlayerPreLoginEvent, so it may block.
+     */
+    public void resolveAtPreLogin(UUID playerId) {
+        List<ScheduleGroup> groups = configManager.getGroups();
+        LuckPermsLookup lookup = luckPerms;
+        if (groups.isEmpty() || lookup == null) {
+            return;
+        }
+
+        try {
+            memberships.put(playerId, new Membership(lookup.resolveMask(playerId, groups), groups));
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not resolve schedule groups for " + playerId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Refresh a player's groups from their permissions, for setups without LuckPerms. Called
+     * once at login, where permissions are already attached; the join path never checks them.
+     */
+    public void refreshFromPermissions(Player player) {
+        List<ScheduleGroup> groups = configManager.getGroups();
+        if (groups.isEmpty() || luckPerms != null) {
+            return;
+        }
+
+        int mask = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            String permission = groups.get(i).getPermission();
+            if (permission != null && player.hasPermission(permission)) {
+                mask |= 1 << i;
+            }
+        }
+        memberships.put(player.getUniqueId(), new Membership(mask, groups));
+    }
+
+    /**
+     * Check whether a player's effective window (global schedule plus their groups) is open now
+     */
+    public boolean isOpenFor(UUID playerId) {
+        return isOpenFor(playerId, ZonedDateTime.now(configManager.getServerZone()));
+    }
+    
+    /**
+     * Check a player's effective window at a time in the server's timezone
+     */
+    public boolean isOpenFor(UUID playerId, ZonedDateTime time) {
+        DayOfWeek day = time.getDayOfWeek();
+        int minute = time.getHour() * 60 + time.getMinute();
+
+        int mask = getMask(playerId);
+        if (mask == 0) {
+            return configManager.getSnapshot().isOpenAt(day, minute);
+        }
+        return getUnion(mask).isOpenAt(day, minute);
+    }
+
+    /**
+     * Drop a player's cached groups once they leave; they are resolved again at the next login
+     */
+    public void onQuit(UUID playerId) {
+        memberships.remove(playerId);
+    }
+
+    private int getMask(UUID playerId) {
+        Membership membership = playerId != null ? memberships.get(playerId) : null;
+        if (membership == null) {
+            return 0;
+        }
+
+        List<ScheduleGroup> groups = configManager.getGroups();
+        if (membership.groups == groups) {
+            return membership.mask;
+        }
+
+        // Groups were reloaded since; carry the membership over by group name
+        int mask = 0;
+        for (int i = 0; i < membership.groups.size(); i++) {
+            if ((membership.mask & (1 << i)) == 0) {
+                continue;
+            }
+            String name = membership.groups.get(i).getName();
+            for (int j = 0; j < groups.size(); j++) {
+                if (groups.get(j).getName().equals(name)) {
+                    mask |= 1 << j;
+                }
+            }
+        }
+        memberships.replace(playerId, membership, new Membership(mask, groups));
+        return mask;
+    }
+
+    public boolean hasGroups() {
+        return !configManager.getGroups().isEmpty();
+    }
+
+    private ScheduleSnapshot getUnion(int mask) {
+        List<ScheduleGroup> groups = configManager.getGroups();
+        ScheduleSnapshot global = configManager.getSnapshot();
+        UnionTable table = unionTable;
+        if (table == null || table.groups != groups || table.global != global) {
+            table = new UnionTable(groups, global);
+            unionTable = table;
+        }
+        return table.union.computeIfAbsent(mask, table::build);
+    }
+
+    private static final class Membership {
+        private final int mask;
+        private final List<ScheduleGroup> groups;
+
+        private Membership(int mask, List<ScheduleGroup> groups) {
+            this.mask = mask;
+            this.groups = groups;
+        }
+    }
+
+    /**
+     * Combined windows per membership mask, valid for one group list and global schedule
+     */
+    private static final class UnionTable {
+        private final List<ScheduleGroup> groups;
+        private final ScheduleSnapshot global;
+        private final Map<Integer, ScheduleSnapshot> union = new ConcurrentHashMap<>();
+
+        private UnionTable(List<ScheduleGroup> groups, ScheduleSnapshot global) {
+            this.groups = groups;
+            this.global = global;
+        }
+
+        private ScheduleSnapshot build(int mask) {
+            Map<DayOfWeek, List<TimeSession>> days = new EnumMap<>(DayOfWeek.class);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                days.put(day, new ArrayList<>(global.getSessions(day)));
+            }
+            for (int i = 0; i < groups.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    for (DayOfWeek day : DayOfWeek.values()) {
+                        days.get(day).addAll(groups.get(i).getSnapshot().getSessions(day));
+                    }
+                }
+            }
+            return ScheduleSnapshot.of(ScheduleNormalizer.normalize(days, 0).getDays(), global.getVersion());
+        }
+    }
+}
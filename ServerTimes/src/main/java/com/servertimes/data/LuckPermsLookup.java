@@ -0,0 +1,49 @@
+package com.servertimes.data;
+
+import com.servertimes.model.ScheduleGroup;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.model.group.Group;
+import net.luckperms.api.model.user.User;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Resolves schedule group membership through LuckPerms. Kept in its own class so the
+ * LuckPerms API is only loaded when the plugin is installed.
+ */
+class LuckPermsLookup {
+    private final LuckPerms luckPerms;
+
+    LuckPermsLookup() {
+        this.luckPerms = LuckPermsProvider.get();
+    }
+
+    // Blocks while LuckPerms loads the user; only call off the main thread
+    int resolveMask(UUID playerId, List<ScheduleGroup> groups) {
+        User user = luckPerms.getUserManager().loadUser(playerId).join();
+
+        Set<String> groupNames = new HashSet<>();
+        for (Group group : user.getInheritedGroups(user.getQueryOptions())) {
+            groupNames.add(group.getName().toLowerCase(Locale.ROOT));
+        }
+
+        int mask = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            ScheduleGroup group = groups.get(i);
+            boolean member = group.getLuckPermsGroup() != null
+                && groupNames.contains(group.getLuckPermsGroup().toLowerCase(Locale.ROOT));
+            if (!member && group.getPermission() != null) {
+                member = user.getCachedData().getPermissionData().checkPermission(group.getPermission()).asBoolean();
+            }
+            if (member) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+}
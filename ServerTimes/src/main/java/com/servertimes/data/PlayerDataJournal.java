@@ -0,0 +1,367 @@
+package com.servertimes.data;
+
+import com.servertimes.ServerTimesPlugin;
+import com.servertimes.metrics.PluginMetrics;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Append-only journal of timezone changes on top of the playerdata.yml snapshot.
+ * <p>
+ * Each change is one line ("+uuid zone" or "-uuid") handed to a writer thread, which
+ * appends everything queued since its last write and syncs the file once for the whole
+ * batch. Once the journal passes {@link #COMPACT_THRESHOLD_BYTES} it is set aside and a
+ * fresh snapshot is written in the background; loading reads the snapshot and replays
+ * whatever journal is left on top of it.
+ */
+public class PlayerDataJournal {
+    static final long COMPACT_THRESHOLD_BYTES = 256 * 1024;
+
+    private static final String TIMEZONE_PATH = "timezones";
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final ServerTimesPlugin plugin;
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Path compactingFile;
+    // Copy of the current timezones, taken under the same lock the changes are queued under
+    private final Supplier<UuidZoneMap> snapshotSource;
+
+    private final BlockingQueue<Entry> pending = new LinkedBlockingQueue<>();
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+
+    private volatile Thread writerThread;
+    private FileChannel channel;
+    private long journalSize;
+
+    public PlayerDataJournal(ServerTimesPlugin plugin, File snapshotFile, Supplier<UuidZoneMap> snapshotSource) {
+        this.plugin = plugin;
+        this.snapshotFile = snapshotFile.toPath();
+        this.journalFile = this.snapshotFile.resolveSibling("playerdata.journal");
+        this.compactingFile = this.snapshotFile.resolveSibling("playerdata.journal.old");
+        this.snapshotSource = snapshotSource;
+    }
+
+    /**
+     * Replay the journals left next to the snapshot onto the loaded timezones.
+     * Returns the number of changes applied.
+     */
+    public int replay(UuidZoneMap timezones) {
+        // A journal set aside by an unfinished compaction is older than the current one
+        return replay(compactingFile, timezones) + replay(journalFile, timezones);
+    }
+
+    private int replay(Path file, UuidZoneMap timezones) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        int applied = 0;
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            int lineStart = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                lineStart = i + 1;
+                if (apply(line, timezones)) {
+                    applied++;
+                } else {
+                    plugin.getLogger().warning("Skipping malformed line in " + file.getFileName() + ": " + line);
+                }
+            }
+            // A write cut short by a crash leaves a last line without its newline
+            if (lineStart < bytes.length) {
+                plugin.getLogger().warning("Ignoring incomplete last change in " + file.getFileName());
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read player data journal " + file.getFileName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return applied;
+    }
+
+    private static boolean apply(String line, UuidZoneMap timezones) {
+        try {
+            if (line.startsWith("+")) {
+                int space = line.indexOf(' ');
+                if (space < 0 || space == line.length() - 1) {
+                    return false;
+                }
+                timezones.put(UUID.fromString(line.substring(1, space)), line.substring(space + 1));
+                return true;
+            }
+            if (line.startsWith("-")) {
+                timezones.remove(UUID.fromString(line.substring(1)));
+                return true;
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a UUID
+        }
+        return false;
+    }
+
+    /**
+     * Write a snapshot of the given timezones and drop the replayed journals.
+     * Only called before {@link #start()}, while nothing else touches the files.
+     */
+    public void compactNow(UuidZoneMap timezones) {
+        if (writeSnapshot(timezones)) {
+            try {
+                delete();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not remove replayed player data journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Delete the journals of a store that is no longer used.
+     * Only called before {@link #start()}.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(compactingFile);
+        Files.deleteIfExists(journalFile);
+    }
+
+    /**
+     * Open the journal for appending and start the writer thread
+     */
+    public void start() {
+        if (!isRunning.compareAndSet(false, true)) {
+            plugin.getLogger().warning("Player data journal is already running");
+            return;
+        }
+
+        try {
+            openJournal();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open player data journal: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        writerThread = new Thread(this::writeLoop, "ServerTimes-PlayerDataJournal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queue a timezone change. The caller must hold the lock its in-memory update is made
+     * under, so the journal sees changes in the same order as the map.
+     */
+    public void appendSet(UUID playerId, String timezone) {
+        pending.add(new Entry("+" + playerId + " " + timezone + "\n", null));
+    }
+
+    /**
+     * Queue a timezone removal, under the same lock as {@link #appendSet(UUID, String)}
+     */
+    public void appendRemove(UUID playerId) {
+        pending.add(new Entry("-" + playerId + "\n", null));
+    }
+
+    /**
+     * Block until every change queued so far is synced to disk
+     */
+    public void flush() {
+        if (writerThread == null || !isRunning.get()) {
+            return;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        pending.add(new Entry(null, done));
+        await(done);
+    }
+
+    /**
+     * Sync the remaining changes and stop the writer thread
+     */
+    public void close() {
+        if (!isRunning.compareAndSet(true, false)) {
+            return;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        pending.add(new Entry(null, done, true));
+        await(done);
+
+        Thread thread = writerThread;
+        writerThread = null;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void await(CompletableFuture<Void> done) {
+        try {
+            done.get(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            plugin.getLogger().warning("Timed out waiting for the player data journal to sync");
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            // Group commit: one write and one sync for everything queued meanwhile
+            StringBuilder sb = new StringBuilder();
+            for (Entry entry : batch) {
+                if (entry.line != null) {
+                    sb.append(entry.line);
+                }
+                stop |= entry.stop;
+            }
+            if (sb.length() > 0) {
+                writeBatch(sb);
+            }
+            if (stop) {
+                closeJournal();
+            }
+            for (Entry entry : batch) {
+                if (entry.done != null) {
+                    entry.done.complete(null);
+                }
+            }
+            batch.clear();
+
+            if (!stop && journalSize >= COMPACT_THRESHOLD_BYTES && compacting.compareAndSet(false, true)) {
+                startCompaction();
+            }
+        }
+    }
+
+    private void writeBatch(StringBuilder sb) {
+        try {
+            if (channel == null) {
+                openJournal();
+            }
+            long started = System.nanoTime();
+            ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                journalSize += channel.write(buffer);
+            }
+            channel.force(false);
+            plugin.getMetrics().recordSave(PluginMetrics.Save.PLAYER_DATA, System.nanoTime() - started);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not write player data journal: " + e.getMessage());
+            e.printStackTrace();
+            closeJournal();
+        }
+    }
+
+    // Runs on the writer thread, so no append can land between the rotation and the copy
+    private void startCompaction() {
+        UuidZoneMap timezones;
+        try {
+            closeJournal();
+            Files.move(journalFile, compactingFile, StandardCopyOption.ATOMIC_MOVE);
+            openJournal();
+            // Every change in the set-aside journal is already in the map, so it is in this copy
+            timezones = snapshotSource.get();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not rotate player data journal: " + e.getMessage());
+            compacting.set(false);
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                if (writeSnapshot(timezones)) {
+                    Files.deleteIfExists(compactingFile);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not remove compacted player data journal: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    private boolean writeSnapshot(UuidZoneMap timezones) {
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            YamlConfiguration snapshot = new YamlConfiguration();
+            timezones.forEach((playerId, timezone) -> snapshot.set(TIMEZONE_PATH + "." + playerId, timezone));
+            snapshot.save(tempFile.toFile());
+            try (FileChannel temp = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                temp.force(true);
+            }
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not write player data snapshot: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void openJournal() throws IOException {
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalSize = channel.size();
+    }
+
+    private void closeJournal() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close player data journal: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private static final class Entry {
+        private final String line;
+        private final CompletableFuture<Void> done;
+        private final boolean stop;
+
+        private Entry(String line, CompletableFuture<Void> done) {
+            this(line, done, false);
+        }
+
+        private Entry(String line, CompletableFuture<Void> done, boolean stop) {
+            this.line = line;
+            this.done = done;
+            this.stop = stop;
+        }
+    }
+}
@@ -1,168 +1,214 @@
 package com.servertimes.data;
 
 import com.servertimes.ServerTimesPlugin;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import com.servertimes.utils.ResolvedZone;
+import com.servertimes.utils.TimezoneUtil;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
+/**
+ * Player timezone preferences, loaded per player when they log in.
+ * <p>
+ * Online players' timezones stay in memory. When a player quits, the entry moves to a
+ * bounded list of recent players, most recent last. Entries leave that list after
+ * {@link #RETAIN_AFTER_QUIT_MINUTES} minutes, or earlier when it is full. Nothing is read
+ * at startup; a player who is not cached is read from the store when first needed, off the
+ * main thread and without holding {@code dataLock}.
+ * <p>
+ * The store opens in the background after startup. Changes made before that are kept and
+ * passed to it once it is open; until then nothing else is cached.
+ */
 public class PlayerDataManager {
+    private static final int MAX_RECENT_PLAYERS = 1000;
+    private static final long RETAIN_AFTER_QUIT_MINUTES = 10;
+    private static final long RETAIN_AFTER_QUIT_NANOS = TimeUnit.MINUTES.toNanos(RETAIN_AFTER_QUIT_MINUTES);
+    
     private final ServerTimesPlugin plugin;
-    private volatile FileConfiguration playerData;
-    private volatile File playerDataFile;
+    private volatile PlayerDataStore store;
+    // Online players; NO_TIMEZONE records players known to have none
     private final Map<UUID, String> playerTimezones;
+    // Players who quit or were only looked up, oldest first (guarded by dataLock)
+    private final Map<UUID, RecentTimezone> recentTimezones;
+    // Resolved lazily and replaced once the cached offset runs past a DST transition
+    private final Map<UUID, ResolvedZone> resolvedZones;
+    // Changes made while no store was open, NO_TIMEZONE for removals (guarded by dataLock)
+    private final Map<UUID, String> unsavedChanges = new LinkedHashMap<>();
+    // Online players whose timezone is still being read (guarded by dataLock)
+    private final Set<UUID> loadingPlayers = new HashSet<>();
+    // Counts changes, so a read that overlapped one is not cached (guarded by dataLock)
+    private long changeCount;
     
-    // Synchronization objects
+    // Keeps the caches and the store's queue in the same order
     private final Object dataLock = new Object();
-    private final Object fileLock = new Object();
     
-    private static final String TIMEZONE_PATH = "timezones";
+    // Compared by identity
+    private static final String NO_TIMEZONE = new String("");
     
     public PlayerDataManager(ServerTimesPlugin plugin) {
         this.plugin = plugin;
         this.playerTimezones = new ConcurrentHashMap<>();
+        this.resolvedZones = new ConcurrentHashMap<>();
+        this.recentTimezones = new LinkedHashMap<UUID, RecentTimezone>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, RecentTimezone> eldest) {
+                if (size() <= MAX_RECENT_PLAYERS) {
+                    return false;
+                }
+                resolvedZones.remove(eldest.getKey());
+                return true;
+            }
+        };
     }
     
-    public void loadPlayerData() {
-        synchronized (fileLock) {
-            try {
-                // Validate plugin data folder
-                File dataFolder = plugin.getDataFolder();
-                if (dataFolder == null) {
-                    plugin.getLogger().severe("Plugin data folder is null");
+    /**
+     * Open the configured store ("yaml" or "sqlite"), falling back to yaml if it cannot be used
+     */
+    public void loadPlayerData(String storage) {
+        try {
+            File dataFolder = plugin.getDataFolder();
+            if (dataFolder == null) {
+                plugin.getLogger().severe("Plugin data folder is null");
+                return;
+            }
+            
+            PlayerDataStore opened = "sqlite".equalsIgnoreCase(storage)
+                ? new SqlitePlayerDataStore(plugin, dataFolder) : new YamlPlayerDataStore(plugin, dataFolder);
+            if (!opened.open()) {
+                if (opened instanceof YamlPlayerDataStore) {
                     return;
                 }
-                
-                // Create player data file if it doesn't exist
-                playerDataFile = new File(dataFolder, "playerdata.yml");
-                if (!playerDataFile.exists()) {
-                    if (!dataFolder.exists() && !dataFolder.mkdirs()) {
-                        plugin.getLogger().severe("Could not create plugin data directory: " + dataFolder.getAbsolutePath());
-                        return;
-                    }
-                    
-                    try {
-                        if (!playerDataFile.createNewFile()) {
-                            plugin.getLogger().severe("Could not create player data file: " + playerDataFile.getAbsolutePath());
-                            return;
-                        }
-                    } catch (IOException e) {
-                        plugin.getLogger().severe("Could not create player data file: " + e.getMessage());
-                        e.printStackTrace();
-                        return;
-                    }
-                }
-                
-                // Validate file is readable
-                if (!playerDataFile.canRead()) {
-                    plugin.getLogger().severe("Player data file is not readable: " + playerDataFile.getAbsolutePath());
+                plugin.getLogger().warning("Falling back to " + YamlPlayerDataStore.FILE_NAME + " for player data");
+                opened = new YamlPlayerDataStore(plugin, dataFolder);
+                if (!opened.open()) {
                     return;
                 }
-                
-                synchronized (dataLock) {
-                    playerData = YamlConfiguration.loadConfiguration(playerDataFile);
-                    if (playerData == null) {
-                        plugin.getLogger().severe("Failed to load player data configuration");
-                        return;
-                    }
-                }
-                
-                loadTimezonesFromConfig();
-            } catch (Exception e) {
-                plugin.getLogger().severe("Unexpected error loading player data: " + e.getMessage());
-                e.printStackTrace();
             }
+            install(opened);
+            plugin.getLogger().info("Storing player timezones in " + opened.getName());
+        } catch (Exception e) {
+            plugin.getLogger().severe("Unexpected error loading player data: " + e.getMessage());
+            e.printStackTrace();
         }
     }
     
-    private void loadTimezonesFromConfig() {
+    // Changes queued while no store was open go to it first. Only those changes were cached
+    // meanwhile, so nothing needs reading again.
+    private void install(PlayerDataStore opened) {
         synchronized (dataLock) {
-            try {
-                if (playerData == null) {
-                    plugin.getLogger().warning("Player data is null, cannot load timezones");
-                    return;
-                }
-                
-                if (playerData.contains(TIMEZONE_PATH)) {
-                    var timezoneSection = playerData.getConfigurationSection(TIMEZONE_PATH);
-                    if (timezoneSection != null) {
-                        for (String uuidStr : timezoneSection.getKeys(false)) {
-                            if (uuidStr == null || uuidStr.trim().isEmpty()) {
-                                plugin.getLogger().warning("Empty UUID string in player data");
-                                continue;
-                            }
-                            
-                            try {
-                                UUID uuid = UUID.fromString(uuidStr.trim());
-                                String timezone = playerData.getString(TIMEZONE_PATH + "." + uuidStr);
-                                if (timezone != null && !timezone.trim().isEmpty()) {
-                                    playerTimezones.put(uuid, timezone.trim());
-                                } else {
-                                    plugin.getLogger().warning("Empty timezone for UUID: " + uuidStr);
-                                }
-                            } catch (IllegalArgumentException e) {
-                                plugin.getLogger().warning("Invalid UUID in player data: " + uuidStr + " - " + e.getMessage());
-                            } catch (Exception e) {
-                                plugin.getLogger().warning("Error processing timezone for UUID " + uuidStr + ": " + e.getMessage());
-                            }
-                        }
-                    }
+            store = opened;
+            for (Map.Entry<UUID, String> change : unsavedChanges.entrySet()) {
+                if (change.getValue() == NO_TIMEZONE) {
+                    opened.remove(change.getKey());
+                } else {
+                    opened.save(change.getKey(), change.getValue());
                 }
-            } catch (Exception e) {
-                plugin.getLogger().severe("Error loading timezones from config: " + e.getMessage());
-                e.printStackTrace();
             }
+            unsavedChanges.clear();
+            changeCount++;
         }
     }
     
+    /**
+     * Block until every timezone change made so far is on disk
+     */
     public void savePlayerData() {
-        synchronized (fileLock) {
-            synchronized (dataLock) {
-                try {
-                    if (playerData == null) {
-                        plugin.getLogger().warning("Player data is null, cannot save");
-                        return;
-                    }
-                    
-                    if (playerDataFile == null) {
-                        plugin.getLogger().warning("Player data file is null, cannot save");
-                        return;
-                    }
-                    
-                    // Validate file is writable before saving
-                    if (!playerDataFile.canWrite() && playerDataFile.exists()) {
-                        plugin.getLogger().severe("Player data file is not writable: " + playerDataFile.getAbsolutePath());
-                        return;
-                    }
-                    
-                    // Save timezones to config
-                    for (Map.Entry<UUID, String> entry : playerTimezones.entrySet()) {
-                        if (entry.getKey() != null && entry.getValue() != null) {
-                            try {
-                                playerData.set(TIMEZONE_PATH + "." + entry.getKey().toString(), entry.getValue());
-                            } catch (Exception e) {
-                                plugin.getLogger().warning("Error saving timezone for UUID " + entry.getKey() + ": " + e.getMessage());
-                            }
-                        }
-                    }
-                    
-                    playerData.save(playerDataFile);
-                } catch (IOException e) {
-                    plugin.getLogger().severe("Could not save player data file: " + e.getMessage());
-                    e.printStackTrace();
-                } catch (Exception e) {
-                    plugin.getLogger().severe("Unexpected error saving player data: " + e.getMessage());
-                    e.printStackTrace();
-                }
+        PlayerDataStore current = store;
+        if (current != null) {
+            current.flush();
+        }
+    }
+    
+    /**
+     * Write the remaining changes and close the store
+     */
+    public void close() {
+        PlayerDataStore current = store;
+        store = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+    
+    /**
+     * Read a player's timezone ahead of their join. Called from the async pre-login.
+     */
+    public void loadAtPreLogin(UUID playerId) {
+        if (playerId == null) {
+            return;
+        }
+        
+        try {
+            loadTimezone(playerId, true);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error loading timezone for player " + playerId + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Keep a player's timezone in memory for as long as they are online. Never reads the
+     * store; a player not loaded at pre-login is read in the background.
+     */
+    public void onJoin(UUID playerId) {
+        if (playerId == null || playerTimezones.containsKey(playerId)) {
+            return;
+        }
+        
+        boolean read;
+        synchronized (dataLock) {
+            RecentTimezone recent = recentTimezones.remove(playerId);
+            if (recent != null) {
+                playerTimezones.put(playerId, recent.timezone);
+                return;
             }
+            // Pinned once the read finishes; without a store, once it opens
+            loadingPlayers.add(playerId);
+            read = store != null;
+        }
+        if (read) {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> loadAtPreLogin(playerId));
+        }
+    }
+    
+    /**
+     * Pin the timezones of players who were online before the store was opened (e.g. after
+     * a reload). Players not loaded beforehand are read in the background.
+     */
+    public void onJoin(Collection<UUID> playerIds) {
+        for (UUID playerId : playerIds) {
+            onJoin(playerId);
         }
     }
     
+    /**
+     * Move a player's timezone to the recent list, from where it is evicted
+     */
+    public void onQuit(UUID playerId) {
+        if (playerId == null) {
+            return;
+        }
+        
+        synchronized (dataLock) {
+            loadingPlayers.remove(playerId);
+            String timezone = playerTimezones.remove(playerId);
+            if (timezone != null) {
+                putRecent(playerId, timezone);
+            }
+            purgeRecent();
+        }
+        resolvedZones.remove(playerId);
+    }
+    
     /**
      * Set a player's timezone preference
      */
@@ -185,8 +231,21 @@ public class PlayerDataManager {
                 return;
             }
             
-            playerTimezones.put(playerId, trimmedTimezone);
-            savePlayerData();
+            // The journal is line based
+            if (trimmedTimezone.indexOf('\n') >= 0 || trimmedTimezone.indexOf('\r') >= 0) {
+                plugin.getLogger().warning("Timezone contains a line break for player " + playerId);
+                return;
+            }
+            
+            synchronized (dataLock) {
+                cacheTimezone(playerId, trimmedTimezone);
+                PlayerDataStore current = store;
+                if (current != null) {
+                    current.save(playerId, trimmedTimezone);
+                } else {
+                    unsavedChanges.put(playerId, trimmedTimezone);
+                }
+            }
         } catch (Exception e) {
             plugin.getLogger().severe("Error setting timezone for player " + playerId + ": " + e.getMessage());
             e.printStackTrace();
@@ -203,13 +262,126 @@ public class PlayerDataManager {
         }
         
         try {
-            return playerTimezones.get(playerId);
+            String timezone = lookupTimezone(playerId);
+            return timezone != NO_TIMEZONE ? timezone : null;
         } catch (Exception e) {
             plugin.getLogger().warning("Error getting timezone for player " + playerId + ": " + e.getMessage());
             return null;
         }
     }
     
+    // Cached value, or a read of the player's row (NO_TIMEZONE if there is none). Online
+    // players still being loaded count as having none rather than being read twice.
+    private String lookupTimezone(UUID playerId) {
+        String timezone = playerTimezones.get(playerId);
+        return timezone != null ? timezone : loadTimezone(playerId, false);
+    }
+    
+    // The store is read without dataLock, so lookups for different players run side by side.
+    // The result is cached only if no change was made while it was read; otherwise the
+    // player is looked up again.
+    private String loadTimezone(UUID playerId, boolean readLoading) {
+        while (true) {
+            PlayerDataStore current;
+            long changesSeen;
+            synchronized (dataLock) {
+                String cached = cachedTimezone(playerId);
+                if (cached != null) {
+                    return cached;
+                }
+                current = store;
+                if (current == null || (!readLoading && loadingPlayers.contains(playerId))) {
+                    return NO_TIMEZONE;
+                }
+                changesSeen = changeCount;
+            }
+            
+            String stored = current.load(playerId);
+            String timezone = stored != null && !stored.isEmpty() ? stored : NO_TIMEZONE;
+            
+            synchronized (dataLock) {
+                if (changeCount != changesSeen) {
+                    continue;
+                }
+                if (loadingPlayers.remove(playerId)) {
+                    playerTimezones.put(playerId, timezone);
+                } else {
+                    putRecent(playerId, timezone);
+                }
+                return timezone;
+            }
+        }
+    }
+    
+    // Under dataLock
+    private String cachedTimezone(UUID playerId) {
+        String timezone = playerTimezones.get(playerId);
+        if (timezone != null) {
+            return timezone;
+        }
+        purgeRecent();
+        RecentTimezone recent = recentTimezones.get(playerId);
+        return recent != null ? recent.timezone : null;
+    }
+    
+    // Under dataLock: update whichever cache holds the player
+    private void cacheTimezone(UUID playerId, String timezone) {
+        changeCount++;
+        if (playerTimezones.containsKey(playerId) || loadingPlayers.remove(playerId)) {
+            playerTimezones.put(playerId, timezone);
+        } else {
+            putRecent(playerId, timezone);
+        }
+    }
+    
+    // Under dataLock: re-inserted so the list stays ordered by time
+    private void putRecent(UUID playerId, String timezone) {
+        recentTimezones.remove(playerId);
+        recentTimezones.put(playerId, new RecentTimezone(timezone, System.nanoTime()));
+    }
+    
+    // Under dataLock: the list is in insertion order, so expired entries are at its head
+    private void purgeRecent() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<UUID, RecentTimezone>> it = recentTimezones.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, RecentTimezone> entry = it.next();
+            if (now - entry.getValue().since < RETAIN_AFTER_QUIT_NANOS) {
+                break;
+            }
+            it.remove();
+            resolvedZones.remove(entry.getKey());
+        }
+    }
+    
+    /**
+     * Get a player's timezone resolved for the given instant, or null if they have not set one.
+     * The result is cached until the zone's next DST transition.
+     */
+    public ResolvedZone getResolvedZone(UUID playerId, Instant now) {
+        if (playerId == null) {
+            return null;
+        }
+        
+        String timezone = lookupTimezone(playerId);
+        if (timezone == NO_TIMEZONE) {
+            return null;
+        }
+        
+        // The stored name is compared by identity, so a changed setting is never served stale
+        ResolvedZone cached = resolvedZones.get(playerId);
+        if (cached != null && cached.getName() == timezone) {
+            if (cached.isValidAt(now.getEpochSecond())) {
+                return cached;
+            }
+            cached = cached.at(now);
+        } else {
+            cached = ResolvedZone.resolve(timezone, TimezoneUtil.getZoneId(timezone), now);
+        }
+        resolvedZones.put(playerId, cached);
+        return cached;
+    }
+    
     /**
      * Check if player has a timezone set
      */
@@ -220,7 +392,7 @@ public class PlayerDataManager {
         }
         
         try {
-            return playerTimezones.containsKey(playerId);
+            return lookupTimezone(playerId) != NO_TIMEZONE;
         } catch (Exception e) {
             plugin.getLogger().warning("Error checking timezone for player " + playerId + ": " + e.getMessage());
             return false;
@@ -237,15 +409,16 @@ public class PlayerDataManager {
         }
         
         try {
-            playerTimezones.remove(playerId);
-            
             synchronized (dataLock) {
-                if (playerData != null) {
-                    playerData.set(TIMEZONE_PATH + "." + playerId.toString(), null);
+                cacheTimezone(playerId, NO_TIMEZONE);
+                PlayerDataStore current = store;
+                if (current != null) {
+                    current.remove(playerId);
+                } else {
+                    unsavedChanges.put(playerId, NO_TIMEZONE);
                 }
             }
-            
-            savePlayerData();
+            resolvedZones.remove(playerId);
         } catch (Exception e) {
             plugin.getLogger().severe("Error removing timezone for player " + playerId + ": " + e.getMessage());
             e.printStackTrace();
@@ -253,14 +426,26 @@ public class PlayerDataManager {
     }
     
     /**
-     * Get all player timezones
+     * Visit every stored player timezone, without copying them. Reads the whole store.
      */
-    public Map<UUID, String> getAllPlayerTimezones() {
+    public void forEachPlayerTimezone(BiConsumer<UUID, String> action) {
         try {
-            return new HashMap<>(playerTimezones);
+            PlayerDataStore current = store;
+            if (current != null) {
+                current.forEach(action);
+            }
         } catch (Exception e) {
-            plugin.getLogger().warning("Error getting all player timezones: " + e.getMessage());
-            return new HashMap<>();
+            plugin.getLogger().warning("Error reading all player timezones: " + e.getMessage());
+        }
+    }
+    
+    private static final class RecentTimezone {
+        private final String timezone;
+        private final long since;
+        
+        private RecentTimezone(String timezone, long since) {
+            this.timezone = timezone;
+            this.since = since;
         }
     }
-}
\ No newline at end of file
+}
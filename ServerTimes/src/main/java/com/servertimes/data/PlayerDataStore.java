@@ -0,0 +1,53 @@
+package com.servertimes.data;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Where player timezone preferences are kept between restarts.
+ * <p>
+ * Reads are by player id and may block on disk. Changes are queued and written in the
+ * background; {@link #flush()} waits for them.
+ */
+public interface PlayerDataStore {
+
+    /**
+     * Open the store, creating it if needed. Returns false if it cannot be used.
+     */
+    boolean open();
+
+    /**
+     * A player's stored timezone, or null if they have not set one
+     */
+    String load(UUID playerId);
+
+    /**
+     * Queue a player's timezone to be stored
+     */
+    void save(UUID playerId, String timezone);
+
+    /**
+     * Queue a player's timezone to be removed
+     */
+    void remove(UUID playerId);
+
+    /**
+     * Visit every stored timezone. Reads the whole store.
+     */
+    void forEach(BiConsumer<UUID, String> action);
+
+    /**
+     * Block until every queued change is on disk
+     */
+    void flush();
+
+    /**
+     * Write the remaining changes and release the store
+     */
+    void close();
+
+    /**
+     * Name shown in logs, e.g. "yaml"
+     */
+    String getName();
+}
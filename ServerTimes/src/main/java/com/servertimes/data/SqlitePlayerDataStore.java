@@ -0,0 +1,402 @@
+package com.servertimes.data;
+
+import com.servertimes.ServerTimesPlugin;
+import com.servertimes.metrics.PluginMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Player timezones in an embedded SQLite database (playerdata.db), read one row at a time
+ * by player id, so nothing is read at startup.
+ * <p>
+ * Changes wait in {@code pending}, where reads see them straight away, until a writer
+ * thread stores everything queued since its last commit in one transaction. An existing
+ * playerdata.yml is copied in once, then renamed to playerdata.yml.migrated.
+ * Uses the SQLite JDBC driver bundled with the server.
+ */
+public class SqlitePlayerDataStore implements PlayerDataStore {
+    public static final String FILE_NAME = "playerdata.db";
+
+    private static final String DRIVER = "org.sqlite.JDBC";
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS player_timezones ("
+        + "uuid TEXT NOT NULL PRIMARY KEY, timezone TEXT NOT NULL) WITHOUT ROWID";
+    private static final String SELECT = "SELECT timezone FROM player_timezones WHERE uuid = ?";
+    private static final String SELECT_ALL = "SELECT uuid, timezone FROM player_timezones";
+    private static final String UPSERT = "INSERT INTO player_timezones (uuid, timezone) VALUES (?, ?) "
+        + "ON CONFLICT(uuid) DO UPDATE SET timezone = excluded.timezone";
+    private static final String DELETE = "DELETE FROM player_timezones WHERE uuid = ?";
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    // Marks a queued removal in pending; compared by identity
+    private static final String REMOVED = new String("");
+
+    private final ServerTimesPlugin plugin;
+    private final File dataFolder;
+    private final File file;
+
+    // Latest unwritten value per player; removed once that exact value is committed
+    private final Map<UUID, String> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private final Object readLock = new Object();
+
+    private volatile Thread writerThread;
+    private Connection writeConnection;
+    private Connection readConnection;
+    private PreparedStatement selectStatement;
+
+    public SqlitePlayerDataStore(ServerTimesPlugin plugin, File dataFolder) {
+        this.plugin = plugin;
+        this.dataFolder = dataFolder;
+        this.file = new File(dataFolder, FILE_NAME);
+    }
+
+    @Override
+    public boolean open() {
+        if (!isRunning.compareAndSet(false, true)) {
+            plugin.getLogger().warning("Player data store is already open");
+            return true;
+        }
+
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            plugin.getLogger().severe("SQLite driver not found, cannot use the sqlite player data store");
+            isRunning.set(false);
+            return false;
+        }
+
+        try {
+            if (!dataFolder.exists() && !dataFolder.mkdirs()) {
+                plugin.getLogger().severe("Could not create plugin data directory: " + dataFolder.getAbsolutePath());
+                isRunning.set(false);
+                return false;
+            }
+
+            String url = "jdbc:sqlite:" + file.getAbsolutePath();
+            writeConnection = DriverManager.getConnection(url);
+            try (Statement statement = writeConnection.createStatement()) {
+                // WAL lets the read connection look up players while a batch is being written
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute("PRAGMA busy_timeout=5000");
+                statement.execute(CREATE_TABLE);
+            }
+            writeConnection.setAutoCommit(false);
+
+            readConnection = DriverManager.getConnection(url);
+            try (Statement statement = readConnection.createStatement()) {
+                statement.execute("PRAGMA busy_timeout=5000");
+            }
+            selectStatement = readConnection.prepareStatement(SELECT);
+
+            migrateYaml();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not open " + FILE_NAME + ": " + e.getMessage());
+            e.printStackTrace();
+            closeConnections();
+            isRunning.set(false);
+            return false;
+        }
+
+        writerThread = new Thread(this::writeLoop, "ServerTimes-PlayerDataStore");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        return true;
+    }
+
+    // One-shot: copy playerdata.yml (and its journal) in, then move it out of the way
+    private void migrateYaml() throws SQLException {
+        YamlPlayerDataStore yaml = new YamlPlayerDataStore(plugin, dataFolder);
+        UuidZoneMap timezones = yaml.readForMigration();
+        if (timezones == null) {
+            return;
+        }
+
+        try (PreparedStatement upsert = writeConnection.prepareStatement(UPSERT)) {
+            SQLException[] error = new SQLException[1];
+            timezones.forEach((playerId, timezone) -> {
+                if (error[0] != null) {
+                    return;
+                }
+                try {
+                    upsert.setString(1, playerId.toString());
+                    upsert.setString(2, timezone);
+                    upsert.addBatch();
+                } catch (SQLException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            upsert.executeBatch();
+            writeConnection.commit();
+        } catch (SQLException e) {
+            writeConnection.rollback();
+            throw e;
+        }
+
+        try {
+            yaml.retire();
+            plugin.getLogger().info("Migrated " + timezones.size() + " player timezones from "
+                + YamlPlayerDataStore.FILE_NAME + " to " + FILE_NAME);
+        } catch (IOException e) {
+            // Otherwise the next start would copy the same entries over newer changes
+            plugin.getLogger().severe("Migrated player data, but could not rename "
+                + YamlPlayerDataStore.FILE_NAME + ", please move it out of the plugin folder: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String load(UUID playerId) {
+        String queued = pending.get(playerId);
+        if (queued != null) {
+            return queued == REMOVED ? null : queued;
+        }
+
+        synchronized (readLock) {
+            if (selectStatement == null) {
+                return null;
+            }
+            try {
+                selectStatement.setString(1, playerId.toString());
+                try (ResultSet result = selectStatement.executeQuery()) {
+                    return result.next() ? result.getString(1) : null;
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Could not read timezone for player " + playerId + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void save(UUID playerId, String timezone) {
+        pending.put(playerId, timezone);
+        queue.add(new Entry(playerId, null, false));
+    }
+
+    @Override
+    public void remove(UUID playerId) {
+        pending.put(playerId, REMOVED);
+        queue.add(new Entry(playerId, null, false));
+    }
+
+    @Override
+    public void forEach(BiConsumer<UUID, String> action) {
+        synchronized (readLock) {
+            if (readConnection == null) {
+                return;
+            }
+            try (Statement statement = readConnection.createStatement();
+                 ResultSet result = statement.executeQuery(SELECT_ALL)) {
+                while (result.next()) {
+                    try {
+                        UUID playerId = UUID.fromString(result.getString(1));
+                        // Players with unwritten changes are visited below
+                        if (!pending.containsKey(playerId)) {
+                            action.accept(playerId, result.getString(2));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        plugin.getLogger().warning("Invalid UUID in " + FILE_NAME + ": " + result.getString(1));
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Could not read player timezones: " + e.getMessage());
+            }
+        }
+        for (Map.Entry<UUID, String> entry : pending.entrySet()) {
+            if (entry.getValue() != REMOVED) {
+                action.accept(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (writerThread == null || !isRunning.get()) {
+            return;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Entry(null, done, false));
+        await(done);
+    }
+
+    @Override
+    public void close() {
+        if (!isRunning.compareAndSet(true, false)) {
+            return;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Entry(null, done, true));
+        await(done);
+
+        Thread thread = writerThread;
+        writerThread = null;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeConnections();
+    }
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    private void await(CompletableFuture<Void> done) {
+        try {
+            done.get(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            plugin.getLogger().warning("Timed out waiting for player data to be written");
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        Set<UUID> players = new LinkedHashSet<>();
+        boolean stop = false;
+        boolean retry = false;
+        while (!stop) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            for (Entry entry : batch) {
+                if (entry.playerId != null) {
+                    players.add(entry.playerId);
+                }
+                stop |= entry.stop;
+            }
+            // After a failed batch, everything still pending goes along with the next one
+            if (retry) {
+                players.addAll(pending.keySet());
+            }
+            if (!players.isEmpty()) {
+                retry = !writeBatch(players);
+            }
+            for (Entry entry : batch) {
+                if (entry.done != null) {
+                    entry.done.complete(null);
+                }
+            }
+            batch.clear();
+            players.clear();
+        }
+    }
+
+    // A player changed several times since the last batch is written once, with the latest value
+    private boolean writeBatch(Set<UUID> players) {
+        Map<UUID, String> written = new HashMap<>();
+        long started = System.nanoTime();
+        try (PreparedStatement upsert = writeConnection.prepareStatement(UPSERT);
+             PreparedStatement delete = writeConnection.prepareStatement(DELETE)) {
+            for (UUID playerId : players) {
+                String timezone = pending.get(playerId);
+                if (timezone == null) {
+                    continue;
+                }
+                if (timezone == REMOVED) {
+                    delete.setString(1, playerId.toString());
+                    delete.addBatch();
+                } else {
+                    upsert.setString(1, playerId.toString());
+                    upsert.setString(2, timezone);
+                    upsert.addBatch();
+                }
+                written.put(playerId, timezone);
+            }
+            upsert.executeBatch();
+            delete.executeBatch();
+            writeConnection.commit();
+            plugin.getMetrics().recordSave(PluginMetrics.Save.PLAYER_DATA, System.nanoTime() - started);
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not write player data: " + e.getMessage());
+            e.printStackTrace();
+            try {
+                writeConnection.rollback();
+            } catch (SQLException rollbackError) {
+                plugin.getLogger().warning("Could not roll back player data: " + rollbackError.getMessage());
+            }
+            // The changes stay pending, so reads still see them
+            return false;
+        }
+
+        // A newer change made meanwhile stays pending for the next batch
+        for (Map.Entry<UUID, String> entry : written.entrySet()) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    private void closeConnections() {
+        synchronized (readLock) {
+            try {
+                if (selectStatement != null) {
+                    selectStatement.close();
+                }
+                if (readConnection != null) {
+                    readConnection.close();
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Could not close " + FILE_NAME + ": " + e.getMessage());
+            }
+            selectStatement = null;
+            readConnection = null;
+        }
+        try {
+            if (writeConnection != null) {
+                writeConnection.close();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not close " + FILE_NAME + ": " + e.getMessage());
+        }
+        writeConnection = null;
+    }
+
+    private static final class Entry {
+        private final UUID playerId;
+        private final CompletableFuture<Void> done;
+        private final boolean stop;
+
+        private Entry(UUID playerId, CompletableFuture<Void> done, boolean stop) {
+            this.playerId = playerId;
+            this.done = done;
+            this.stop = stop;
+        }
+    }
+}
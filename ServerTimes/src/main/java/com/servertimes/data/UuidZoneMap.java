@@ -0,0 +1,252 @@
+package com.servertimes.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact map from player id to timezone name, for every player a store knows about.
+ * <p>
+ * Entries live in parallel arrays with linear probing: the two halves of the UUID and a
+ * short index into a table of distinct zone names, about 24 bytes per player instead of
+ * a UUID, a map node and a String each. Lookups run under an optimistic
+ * {@link StampedLock} read and only take the read lock if a write got in between.
+ * Names come back interned, so equal timezones are the same String.
+ */
+public final class UuidZoneMap {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.75f;
+    // Zone indexes are stored as short, 0 marking an empty slot
+    private static final int MAX_ZONES = Short.MAX_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+    private final Map<String, Short> zoneIndexes = new HashMap<>();
+    private volatile String[] zoneNames = new String[16];
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private int zoneCount;
+    private int size;
+
+    /**
+     * The timezone stored for a player, or null
+     */
+    public String get(UUID playerId) {
+        long most = playerId.getMostSignificantBits();
+        long least = playerId.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        String zone = find(table, zoneNames, most, least);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                zone = find(table, zoneNames, most, least);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return zone;
+    }
+
+    public boolean containsKey(UUID playerId) {
+        return get(playerId) != null;
+    }
+
+    // Bounded by the capacity, so a racing write can never make an optimistic read loop forever
+    private static String find(Table table, String[] names, long most, long least) {
+        int mask = table.zones.length - 1;
+        int slot = hash(most, least) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int zone = table.zones[slot];
+            if (zone == 0) {
+                return null;
+            }
+            if (table.most[slot] == most && table.least[slot] == least) {
+                return zone <= names.length ? names[zone - 1] : null;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public void put(UUID playerId, String timezone) {
+        long most = playerId.getMostSignificantBits();
+        long least = playerId.getLeastSignificantBits();
+        long stamp = lock.writeLock();
+        try {
+            short zone = intern(timezone);
+            Table current = table;
+            if (size + 1 > current.zones.length * LOAD_FACTOR) {
+                current = resize(current, current.zones.length * 2);
+            }
+            int mask = current.zones.length - 1;
+            int slot = hash(most, least) & mask;
+            while (current.zones[slot] != 0) {
+                if (current.most[slot] == most && current.least[slot] == least) {
+                    current.zones[slot] = zone;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            current.most[slot] = most;
+            current.least[slot] = least;
+            current.zones[slot] = zone;
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(UUID playerId) {
+        long most = playerId.getMostSignificantBits();
+        long least = playerId.getLeastSignificantBits();
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int mask = current.zones.length - 1;
+            int slot = hash(most, least) & mask;
+            while (current.zones[slot] != 0) {
+                if (current.most[slot] == most && current.least[slot] == least) {
+                    deleteSlot(current, slot);
+                    size--;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Backward-shift deletion: pull later entries of the probe chain into the gap, so no
+    // tombstones are needed
+    private static void deleteSlot(Table table, int gap) {
+        int mask = table.zones.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (table.zones[slot] == 0) {
+                break;
+            }
+            int home = hash(table.most[slot], table.least[slot]) & mask;
+            // Move the entry unless its home lies cyclically in (gap, slot]
+            boolean stays = gap <= slot ? (home > gap && home <= slot) : (home > gap || home <= slot);
+            if (!stays) {
+                table.most[gap] = table.most[slot];
+                table.least[gap] = table.least[slot];
+                table.zones[gap] = table.zones[slot];
+                gap = slot;
+            }
+        }
+        table.zones[gap] = 0;
+    }
+
+    private Table resize(Table old, int capacity) {
+        Table resized = new Table(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.zones.length; i++) {
+            if (old.zones[i] == 0) {
+                continue;
+            }
+            int slot = hash(old.most[i], old.least[i]) & mask;
+            while (resized.zones[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            resized.most[slot] = old.most[i];
+            resized.least[slot] = old.least[i];
+            resized.zones[slot] = old.zones[i];
+        }
+        table = resized;
+        return resized;
+    }
+
+    // Under the write lock
+    private short intern(String timezone) {
+        Short index = zoneIndexes.get(timezone);
+        if (index != null) {
+            return index;
+        }
+        if (zoneCount >= MAX_ZONES) {
+            throw new IllegalStateException("Too many distinct timezones: " + zoneCount);
+        }
+        String[] names = zoneNames;
+        if (zoneCount == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[zoneCount] = timezone;
+        // Publish the grown array before any entry can refer to the new index
+        zoneNames = names;
+        short created = (short) ++zoneCount;
+        zoneIndexes.put(timezone, created);
+        return created;
+    }
+
+    private static int hash(long most, long least) {
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Visit every entry under the read lock, without copying. The action must not write to this map.
+     */
+    public void forEach(BiConsumer<UUID, String> action) {
+        long stamp = lock.readLock();
+        try {
+            Table current = table;
+            String[] names = zoneNames;
+            for (int i = 0; i < current.zones.length; i++) {
+                if (current.zones[i] != 0) {
+                    action.accept(new UUID(current.most[i], current.least[i]), names[current.zones[i] - 1]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * An independent copy, cheap enough to take under a caller's lock
+     */
+    public UuidZoneMap copy() {
+        UuidZoneMap copy = new UuidZoneMap();
+        long stamp = lock.readLock();
+        try {
+            Table current = table;
+            Table copied = new Table(current.most.clone(), current.least.clone(), current.zones.clone());
+            copy.table = copied;
+            copy.size = size;
+            copy.zoneNames = zoneNames.clone();
+            copy.zoneCount = zoneCount;
+            copy.zoneIndexes.putAll(zoneIndexes);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return copy;
+    }
+
+    // Replaced as a whole on resize, so a reader always sees arrays of the same length
+    private static final class Table {
+        private final long[] most;
+        private final long[] least;
+        private final short[] zones;
+
+        private Table(int capacity) {
+            this(new long[capacity], new long[capacity], new short[capacity]);
+        }
+
+        private Table(long[] most, long[] least, short[] zones) {
+            this.most = most;
+            this.least = least;
+            this.zones = zones;
+        }
+    }
+}
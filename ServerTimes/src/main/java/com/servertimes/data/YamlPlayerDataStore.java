@@ -0,0 +1,185 @@
+package com.servertimes.data;
+
+import com.servertimes.ServerTimesPlugin;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * The playerdata.yml store: the whole file is read at startup and kept in memory, and
+ * changes are appended to a {@link PlayerDataJournal}.
+ */
+public class YamlPlayerDataStore implements PlayerDataStore {
+    public static final String FILE_NAME = "playerdata.yml";
+
+    private static final String TIMEZONE_PATH = "timezones";
+
+    private final ServerTimesPlugin plugin;
+    private final File file;
+    // Every player's timezone, as the snapshot plus the journal describe it
+    private final UuidZoneMap timezones = new UuidZoneMap();
+    private final Object dataLock = new Object();
+    private final PlayerDataJournal journal;
+
+    public YamlPlayerDataStore(ServerTimesPlugin plugin, File dataFolder) {
+        this.plugin = plugin;
+        this.file = new File(dataFolder, FILE_NAME);
+        this.journal = new PlayerDataJournal(plugin, file, this::copyTimezones);
+    }
+
+    @Override
+    public boolean open() {
+        try {
+            // Create player data file if it doesn't exist
+            if (!file.exists()) {
+                File dataFolder = file.getParentFile();
+                if (!dataFolder.exists() && !dataFolder.mkdirs()) {
+                    plugin.getLogger().severe("Could not create plugin data directory: " + dataFolder.getAbsolutePath());
+                    return false;
+                }
+
+                try {
+                    if (!file.createNewFile()) {
+                        plugin.getLogger().severe("Could not create player data file: " + file.getAbsolutePath());
+                        return false;
+                    }
+                } catch (IOException e) {
+                    plugin.getLogger().severe("Could not create player data file: " + e.getMessage());
+                    e.printStackTrace();
+                    return false;
+                }
+            }
+
+            if (!read()) {
+                return false;
+            }
+
+            // Fold replayed changes into the snapshot before appending new ones
+            if (journal.replay(timezones) > 0) {
+                journal.compactNow(timezones);
+            }
+            journal.start();
+            return true;
+        } catch (Exception e) {
+            plugin.getLogger().severe("Unexpected error loading player data: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Read an existing playerdata.yml and its journals without opening the store for
+     * writing, for migrating to another store. Returns null if there is nothing to read.
+     */
+    UuidZoneMap readForMigration() {
+        if (!file.isFile() || !read()) {
+            return null;
+        }
+        journal.replay(timezones);
+        return timezones;
+    }
+
+    /**
+     * Rename playerdata.yml out of the way and delete its journals once it has been migrated
+     */
+    void retire() throws IOException {
+        Files.move(file.toPath(), new File(file.getParentFile(), FILE_NAME + ".migrated").toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+        journal.delete();
+    }
+
+    private boolean read() {
+        // Validate file is readable
+        if (!file.canRead()) {
+            plugin.getLogger().severe("Player data file is not readable: " + file.getAbsolutePath());
+            return false;
+        }
+
+        FileConfiguration playerData = YamlConfiguration.loadConfiguration(file);
+        if (playerData == null) {
+            plugin.getLogger().severe("Failed to load player data configuration");
+            return false;
+        }
+
+        ConfigurationSection timezoneSection = playerData.getConfigurationSection(TIMEZONE_PATH);
+        if (timezoneSection == null) {
+            return true;
+        }
+        for (String uuidStr : timezoneSection.getKeys(false)) {
+            if (uuidStr == null || uuidStr.trim().isEmpty()) {
+                plugin.getLogger().warning("Empty UUID string in player data");
+                continue;
+            }
+
+            try {
+                UUID uuid = UUID.fromString(uuidStr.trim());
+                String timezone = timezoneSection.getString(uuidStr);
+                if (timezone != null && !timezone.trim().isEmpty()) {
+                    timezones.put(uuid, timezone.trim());
+                } else {
+                    plugin.getLogger().warning("Empty timezone for UUID: " + uuidStr);
+                }
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Invalid UUID in player data: " + uuidStr + " - " + e.getMessage());
+            } catch (Exception e) {
+                plugin.getLogger().warning("Error processing timezone for UUID " + uuidStr + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String load(UUID playerId) {
+        return timezones.get(playerId);
+    }
+
+    @Override
+    public void save(UUID playerId, String timezone) {
+        synchronized (dataLock) {
+            timezones.put(playerId, timezone);
+            journal.appendSet(playerId, timezone);
+        }
+    }
+
+    @Override
+    public void remove(UUID playerId) {
+        synchronized (dataLock) {
+            timezones.remove(playerId);
+            journal.appendRemove(playerId);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<UUID, String> action) {
+        timezones.forEach(action);
+    }
+
+    // Taken under the lock changes are journalled under, for compaction
+    private UuidZoneMap copyTimezones() {
+        synchronized (dataLock) {
+            return timezones.copy();
+        }
+    }
+
+    @Override
+    public void flush() {
+        journal.flush();
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    @Override
+    public String getName() {
+        return "yaml";
+    }
+}
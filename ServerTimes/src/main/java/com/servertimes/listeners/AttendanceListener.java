@@ -0,0 +1,29 @@
+package com.servertimes.listeners;
+
+import com.servertimes.data.AttendanceRecorder;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Feeds joins and quits to the attendance recorder
+ */
+public class AttendanceListener implements Listener {
+    private final AttendanceRecorder recorder;
+    
+    public AttendanceListener(AttendanceRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        recorder.recordJoin(event.getPlayer().getUniqueId());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        recorder.recordQuit(event.getPlayer().getUniqueId());
+    }
+}
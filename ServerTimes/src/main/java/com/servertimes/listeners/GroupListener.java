@@ -0,0 +1,38 @@
+package com.servertimes.listeners;
+
+import com.servertimes.data.GroupMembershipManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Resolves schedule group membership before the login is gated
+ */
+public class GroupListener implements Listener {
+    private final GroupMembershipManager groupMembership;
+    
+    public GroupListener(GroupMembershipManager groupMembership) {
+        this.groupMembership = groupMembership;
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            groupMembership.resolveAtPreLogin(event.getUniqueId());
+        }
+    }
+    
+    // Before PlayerJoinListener gates the login at HIGHEST
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        groupMembership.refreshFromPermissions(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        groupMembership.onQuit(event.getPlayer().getUniqueId());
+    }
+}
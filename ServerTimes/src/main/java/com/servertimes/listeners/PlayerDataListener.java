@@ -0,0 +1,38 @@
+package com.servertimes.listeners;
+
+import com.servertimes.data.PlayerDataManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Loads a player's timezone before they join and lets it go after they quit
+ */
+public class PlayerDataListener implements Listener {
+    private final PlayerDataManager playerDataManager;
+    
+    public PlayerDataListener(PlayerDataManager playerDataManager) {
+        this.playerDataManager = playerDataManager;
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            playerDataManager.loadAtPreLogin(event.getUniqueId());
+        }
+    }
+    
+    // Before PlayerJoinListener shows the player their local times
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        playerDataManager.onJoin(event.getPlayer().getUniqueId());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        playerDataManager.onQuit(event.getPlayer().getUniqueId());
+    }
+}
@@ -1,5 +1,6 @@
 package com.servertimes.listeners;
 
+import com.servertimes.metrics.PluginMetrics;
 import com.servertimes.scheduler.ServerScheduler;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -12,8 +13,9 @@ import org.bukkit.plugin.Plugin;
 public class PlayerJoinListener implements Listener {
     private final ServerScheduler serverScheduler;
     private final Plugin plugin;
+    private final PluginMetrics metrics;
     
-    public PlayerJoinListener(ServerScheduler serverScheduler, Plugin plugin) {
+    public PlayerJoinListener(ServerScheduler serverScheduler, Plugin plugin, PluginMetrics metrics) {
         if (serverScheduler == null) {
             throw new IllegalArgumentException("ServerScheduler cannot be null");
         }
@@ -22,6 +24,7 @@ public class PlayerJoinListener implements Listener {
         }
         this.serverScheduler = serverScheduler;
         this.plugin = plugin;
+        this.metrics = metrics;
     }
     
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -34,9 +37,10 @@ public class PlayerJoinListener implements Listener {
             
             // Check if server should allow joins (no bypass permissions)
             // Use thread-safe method call
-            if (!serverScheduler.shouldAllowJoin()) {
+            if (!serverScheduler.shouldAllowJoin(event.getPlayer().getUniqueId())) {
                 event.disallow(PlayerLoginEvent.Result.KICK_OTHER, 
                     "§cThe server is currently closed.\n§cPlease check the schedule and come back during open hours!");
+                metrics.rejected(PluginMetrics.Rejection.SERVER_CLOSED);
             }
         } catch (Exception e) {
             // Log error but don't prevent login if there's an unexpected error
@@ -68,8 +72,8 @@ public class PlayerJoinListener implements Listener {
             boolean isServerOpen = serverScheduler.isServerOpen();
             
             if (isServerOpen) {
-                // Get next state change info
-                String nextChange = serverScheduler.getNextStateChange();
+                // Get next state change info, in the player's own timezone
+                String nextChange = serverScheduler.getNextStateChange(player);
                 
                 // Validate the message before sending
                 if (nextChange != null && !nextChange.trim().isEmpty() && 
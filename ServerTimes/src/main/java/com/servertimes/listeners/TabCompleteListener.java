@@ -0,0 +1,78 @@
+package com.servertimes.listeners;
+
+import com.destroystokyo.paper.event.server.AsyncTabCompleteEvent;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers tab completion for the plugin's commands from Paper's async tab-complete event,
+ * so completing never waits for the main thread. Paper would otherwise run Brigadier
+ * suggestions on the main thread. The completers must be thread-safe.
+ */
+public class TabCompleteListener implements Listener {
+    private final String namespace;
+    private final Map<String, Completer> commands = new ConcurrentHashMap<>();
+    
+    public TabCompleteListener(Plugin plugin) {
+        this.namespace = plugin.getName().toLowerCase(Locale.ROOT) + ":";
+    }
+    
+    /**
+     * Complete a command, under its name, its aliases and their namespaced forms
+     */
+    public void register(String name, Collection<String> aliases, Completer completer) {
+        put(name, completer);
+        for (String alias : aliases) {
+            put(alias, completer);
+        }
+    }
+    
+    private void put(String label, Completer completer) {
+        String key = label.toLowerCase(Locale.ROOT);
+        commands.put(key, completer);
+        commands.put(namespace + key, completer);
+    }
+    
+    @EventHandler(ignoreCancelled = true)
+    public void onAsyncTabComplete(AsyncTabCompleteEvent event) {
+        if (event.isHandled() || !event.isCommand()) {
+            return;
+        }
+        
+        String buffer = event.getBuffer();
+        int start = buffer.startsWith("/") ? 1 : 0;
+        int space = buffer.indexOf(' ', start);
+        if (space < 0) {
+            // Still typing the command name, which the server completes
+            return;
+        }
+        
+        Completer completer = commands.get(buffer.substring(start, space).toLowerCase(Locale.ROOT));
+        if (completer == null) {
+            return;
+        }
+        
+        // A trailing space starts an empty argument
+        String[] args = buffer.substring(space + 1).split(" ", -1);
+        List<String> completions = completer.complete(event.getSender(), args);
+        if (completions != null) {
+            event.setCompletions(completions);
+            event.setHandled(true);
+        }
+    }
+    
+    /**
+     * Completes the arguments after the command name
+     */
+    public interface Completer {
+        List<String> complete(CommandSender sender, String[] args);
+    }
+}
@@ -0,0 +1,64 @@
+package com.servertimes.listeners;
+
+import com.servertimes.config.ConfigManager;
+import com.servertimes.metrics.PluginMetrics;
+import com.servertimes.scheduler.WorldScheduler;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+/**
+ * Keeps players out of worlds whose own schedule is closed
+ */
+public class WorldListener implements Listener {
+    private final WorldScheduler worldScheduler;
+    private final ConfigManager configManager;
+    private final PluginMetrics metrics;
+    
+    public WorldListener(WorldScheduler worldScheduler, ConfigManager configManager, PluginMetrics metrics) {
+        this.worldScheduler = worldScheduler;
+        this.configManager = configManager;
+        this.metrics = metrics;
+    }
+    
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        if (event.getTo() == null) {
+            return;
+        }
+        
+        World target = event.getTo().getWorld();
+        if (target == null || target.equals(event.getFrom().getWorld())) {
+            return;
+        }
+        
+        Player player = event.getPlayer();
+        if (!worldScheduler.canEnter(player, target)) {
+            event.setCancelled(true);
+            metrics.rejected(PluginMetrics.Rejection.WORLD_CLOSED);
+            player.sendMessage(configManager.getWorldEnterDeniedMessage(target.getName()));
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        Player player = event.getPlayer();
+        if (!worldScheduler.canEnter(player, event.getRespawnLocation().getWorld())) {
+            event.setRespawnLocation(worldScheduler.getFallbackWorld().getSpawnLocation());
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Players who logged out in a world that has closed since
+        Player player = event.getPlayer();
+        if (!worldScheduler.canEnter(player, player.getWorld())) {
+            worldScheduler.queueMove(player);
+        }
+    }
+}
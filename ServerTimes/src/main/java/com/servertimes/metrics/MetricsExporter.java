@@ -0,0 +1,145 @@
+package com.servertimes.metrics;
+
+import com.servertimes.ServerTimesPlugin;
+import com.servertimes.config.ConfigManager;
+import com.servertimes.model.ScheduleEvaluation;
+import com.servertimes.scheduler.ServerScheduler;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link PluginMetrics} and the schedule state in the Prometheus text format at
+ * {@code http://127.0.0.1:<port>/metrics}, using the JDK's built-in HTTP server.
+ * <p>
+ * Requests are handled on one background thread, which renders the page from the
+ * lock-free counters and reuses it for scrapes within {@link #CACHE_MILLIS}, so several
+ * scrapers cost one render. Only the loopback address is bound; expose it further with a
+ * reverse proxy if needed.
+ */
+public class MetricsExporter {
+    private static final long CACHE_MILLIS = 1000L;
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ServerTimesPlugin plugin;
+    private final ConfigManager configManager;
+    private final ServerScheduler serverScheduler;
+    private final PluginMetrics metrics;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    // Only touched on the request thread
+    private byte[] cachedPage;
+    private long cachedAt;
+
+    public MetricsExporter(ServerTimesPlugin plugin, ConfigManager configManager, ServerScheduler serverScheduler,
+                           PluginMetrics metrics) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.serverScheduler = serverScheduler;
+        this.metrics = metrics;
+    }
+
+    public boolean start(int port) {
+        if (server != null) {
+            plugin.getLogger().warning("Metrics exporter is already running");
+            return true;
+        }
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not start the metrics exporter on port " + port + ": " + e.getMessage());
+            return false;
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ServerTimes-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        plugin.getLogger().info("Serving metrics at http://127.0.0.1:" + port + "/metrics");
+        return true;
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] page = getPage();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, page.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(page);
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error serving metrics: " + e.getMessage());
+            if (exchange.getResponseCode() == -1) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] getPage() {
+        long now = System.currentTimeMillis();
+        if (cachedPage == null || now - cachedAt >= CACHE_MILLIS) {
+            cachedPage = render(Instant.ofEpochMilli(now)).getBytes(StandardCharsets.UTF_8);
+            cachedAt = now;
+        }
+        return cachedPage;
+    }
+
+    private String render(Instant now) {
+        StringBuilder out = new StringBuilder(2048);
+        ScheduleEvaluation evaluation = configManager.evaluate(now);
+
+        PluginMetrics.header(out, "servertimes_open", "gauge", "1 while the server is open to players, else 0");
+        out.append("servertimes_open ").append(serverScheduler.isServerOpen() ? 1 : 0).append('\n');
+
+        PluginMetrics.header(out, "servertimes_schedule_open", "gauge", "1 while the weekly schedule says open, else 0");
+        out.append("servertimes_schedule_open ").append(evaluation.isOpen() ? 1 : 0).append('\n');
+
+        ZonedDateTime next = evaluation.getNextTransition();
+        PluginMetrics.header(out, "servertimes_next_transition_seconds", "gauge",
+            "Seconds until the schedule next opens or closes, -1 if it never does");
+        out.append("servertimes_next_transition_seconds ")
+            .append(next != null ? Duration.between(now, next.toInstant()).getSeconds() : -1).append('\n');
+
+        metrics.render(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,182 @@
+package com.servertimes.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings the plugin keeps about itself, for {@link MetricsExporter}.
+ * <p>
+ * Every value is a {@link LongAdder} or an atomic, so recording from the main thread or a
+ * writer thread takes no lock and reading them for a scrape never blocks either. They are
+ * kept whether or not the exporter runs; recording costs one uncontended add.
+ */
+public final class PluginMetrics {
+    /**
+     * Why a player was turned away
+     */
+    public enum Rejection {
+        // Login refused while the server is closed
+        SERVER_CLOSED("server_closed"),
+        // Teleport into a world whose own schedule is closed
+        WORLD_CLOSED("world_closed");
+
+        private final String label;
+
+        Rejection(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Why a player was kicked
+     */
+    public enum Kick {
+        // The server closed, or a player's schedule group ended
+        CLOSED("closed"),
+        // Players are kicked when the server opens, so they rejoin into the open server; those
+        // whose schedule groups let them in earlier stay
+        OPENING("opening");
+
+        private final String label;
+
+        Kick(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * What was written to disk
+     */
+    public enum Save {
+        CONFIG("config"),
+        PLAYER_DATA("player_data");
+
+        private final String label;
+
+        Save(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * The plugin's repeating tasks
+     */
+    public enum Task {
+        STATE_CHECK("state_check"),
+        WARNING_CHECK("warning_check"),
+        WORLD_CHECK("world_check"),
+        WORLD_MOVES("world_moves");
+
+        private final String label;
+
+        Task(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Map<Rejection, LongAdder> rejections = counters(Rejection.class);
+    private final Map<Kick, LongAdder> kicks = counters(Kick.class);
+    private final Map<Save, Timing> saves = timings(Save.class);
+    private final Map<Task, Timing> tasks = timings(Task.class);
+    private final AtomicInteger worldMoveQueue = new AtomicInteger();
+
+    public void rejected(Rejection reason) {
+        rejections.get(reason).increment();
+    }
+
+    public void kicked(Kick reason, int players) {
+        if (players > 0) {
+            kicks.get(reason).add(players);
+        }
+    }
+
+    public void recordSave(Save target, long nanos) {
+        saves.get(target).record(nanos);
+    }
+
+    public void recordTask(Task task, long nanos) {
+        tasks.get(task).record(nanos);
+    }
+
+    /**
+     * Players waiting to be moved out of closed worlds
+     */
+    public void setWorldMoveQueue(int players) {
+        worldMoveQueue.set(players);
+    }
+
+    /**
+     * Append the counters and timings in the Prometheus text format
+     */
+    void render(StringBuilder out) {
+        header(out, "servertimes_rejections_total", "counter",
+            "Players turned away: logins while the server is closed, teleports into closed worlds");
+        for (Map.Entry<Rejection, LongAdder> entry : rejections.entrySet()) {
+            sample(out, "servertimes_rejections_total", "reason", entry.getKey().label, entry.getValue().sum());
+        }
+
+        header(out, "servertimes_kicks_total", "counter", "Players kicked by the schedule");
+        for (Map.Entry<Kick, LongAdder> entry : kicks.entrySet()) {
+            sample(out, "servertimes_kicks_total", "reason", entry.getKey().label, entry.getValue().sum());
+        }
+
+        header(out, "servertimes_world_move_queue", "gauge", "Players waiting to be moved out of closed worlds");
+        out.append("servertimes_world_move_queue ").append(worldMoveQueue.get()).append('\n');
+
+        header(out, "servertimes_save_duration_seconds", "summary", "Time spent writing to disk");
+        for (Map.Entry<Save, Timing> entry : saves.entrySet()) {
+            entry.getValue().render(out, "servertimes_save_duration_seconds", "target", entry.getKey().label);
+        }
+
+        header(out, "servertimes_task_duration_seconds", "summary", "Time spent in the plugin's repeating tasks");
+        for (Map.Entry<Task, Timing> entry : tasks.entrySet()) {
+            entry.getValue().render(out, "servertimes_task_duration_seconds", "task", entry.getKey().label);
+        }
+    }
+
+    static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, long sample) {
+        out.append(name).append('{').append(label).append("=\"").append(value).append("\"} ").append(sample).append('\n');
+    }
+
+    private static <K extends Enum<K>> Map<K, LongAdder> counters(Class<K> keys) {
+        Map<K, LongAdder> counters = new EnumMap<>(keys);
+        for (K key : keys.getEnumConstants()) {
+            counters.put(key, new LongAdder());
+        }
+        return counters;
+    }
+
+    private static <K extends Enum<K>> Map<K, Timing> timings(Class<K> keys) {
+        Map<K, Timing> timings = new EnumMap<>(keys);
+        for (K key : keys.getEnumConstants()) {
+            timings.put(key, new Timing());
+        }
+        return timings;
+    }
+
+    /**
+     * A count and total duration, exported as a summary without quantiles
+     */
+    private static final class Timing {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private void record(long elapsed) {
+            count.increment();
+            nanos.add(elapsed);
+        }
+
+        private void render(StringBuilder out, String name, String label, String value) {
+            String labels = "{" + label + "=\"" + value + "\"} ";
+            out.append(name).append("_count").append(labels).append(count.sum()).append('\n');
+            out.append(name).append("_sum").append(labels).append(nanos.sum() / 1e9).append('\n');
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.servertimes.model;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Everything the plugin asks about a schedule at one moment, answered from a single
+ * instant and zone: whether it is open, which session is active, when the state flips
+ * next and the status of each of today's sessions.
+ * <p>
+ * Schedule times are wall-clock times in the given zone. Evaluating once and reading
+ * the results keeps them consistent with each other, even around midnight.
+ */
+public final class ScheduleEvaluation {
+    private final ScheduleSnapshot snapshot;
+    private final Instant instant;
+    private final ZonedDateTime localTime;
+    private final DayOfWeek day;
+    private final int minuteOfDay;
+    private final boolean open;
+    private final List<TimeSession> todaySessions;
+    private final boolean[] activeToday;
+    private final TimeSession activeSession;
+    private final ZonedDateTime nextTransition;
+
+    private ScheduleEvaluation(ScheduleSnapshot snapshot, Instant instant, ZoneId zone) {
+        this.snapshot = snapshot;
+        this.instant = instant;
+        this.localTime = instant.atZone(zone);
+        this.day = localTime.getDayOfWeek();
+        this.minuteOfDay = localTime.getHour() * 60 + localTime.getMinute();
+        this.open = snapshot.isOpenAt(day, minuteOfDay);
+        this.todaySessions = snapshot.getSessions(day);
+
+        // A session is active from its start for its length; the part of yesterday's
+        // sessions that ran past midnight belongs to yesterday, not to today's list
+        TimeSession active = null;
+        activeToday = new boolean[todaySessions.size()];
+        for (int i = 0; i < activeToday.length; i++) {
+            TimeSession session = todaySessions.get(i);
+            int start = session.getStartMinute();
+            activeToday[i] = minuteOfDay >= start && minuteOfDay < start + session.getLengthMinutes();
+            if (activeToday[i] && active == null) {
+                active = session;
+            }
+        }
+        if (active == null) {
+            for (TimeSession session : snapshot.getSessions(day.minus(1))) {
+                int overflow = session.getStartMinute() + session.getLengthMinutes() - ScheduleSnapshot.MINUTES_PER_DAY;
+                if (minuteOfDay < overflow) {
+                    active = session;
+                    break;
+                }
+            }
+        }
+        this.activeSession = active;
+
+        int minuteOfWeek = (day.getValue() - 1) * ScheduleSnapshot.MINUTES_PER_DAY + minuteOfDay;
+        int minutesUntil = snapshot.minutesUntilTransition(minuteOfWeek);
+        if (minutesUntil < 0) {
+            this.nextTransition = null;
+        } else {
+            // Add wall-clock minutes so a DST change in between moves the instant, not the time
+            LocalDateTime minuteStart = localTime.toLocalDateTime().truncatedTo(ChronoUnit.MINUTES);
+            this.nextTransition = minuteStart.plusMinutes(minutesUntil).atZone(zone);
+        }
+    }
+
+    /**
+     * Evaluate a schedule at an instant, reading the schedule's times in the given zone
+     */
+    public static ScheduleEvaluation evaluate(ScheduleSnapshot snapshot, Instant instant, ZoneId zone) {
+        return new ScheduleEvaluation(snapshot != null ? snapshot : ScheduleSnapshot.empty(),
+            instant != null ? instant : Instant.now(), zone != null ? zone : ZoneId.systemDefault());
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * The session keeping the schedule open right now, possibly one of yesterday's that
+     * runs past midnight. Null while closed.
+     */
+    public TimeSession getActiveSession() {
+        return activeSession;
+    }
+
+    /**
+     * Today's sessions, in the order {@link #isSessionActive(int)} refers to them
+     */
+    public List<TimeSession> getTodaySessions() {
+        return todaySessions;
+    }
+
+    public boolean isSessionActive(int index) {
+        return index >= 0 && index < activeToday.length && activeToday[index];
+    }
+
+    /**
+     * When the open state next flips, in the evaluated zone. Null if it never does.
+     */
+    public ZonedDateTime getNextTransition() {
+        return nextTransition;
+    }
+
+    /**
+     * Whole minutes until the next transition, or -1 if there is none
+     */
+    public long getMinutesUntilTransition() {
+        return nextTransition != null ? Duration.between(instant, nextTransition.toInstant()).toMinutes() : -1;
+    }
+
+    public DayOfWeek getDay() {
+        return day;
+    }
+
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+
+    public ZonedDateTime getLocalTime() {
+        return localTime;
+    }
+
+    public Instant getInstant() {
+        return instant;
+    }
+
+    public ScheduleSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,42 @@
+package com.servertimes.model;
+
+/**
+ * A named schedule that applies to players in a permission or LuckPerms group.
+ * Players may be in several groups; their window is the union of all of them and
+ * the global schedule.
+ */
+public final class ScheduleGroup {
+    private final String name;
+    private final String permission;
+    private final String luckPermsGroup;
+    private final ScheduleSnapshot snapshot;
+
+    public ScheduleGroup(String name, String permission, String luckPermsGroup, ScheduleSnapshot snapshot) {
+        this.name = name;
+        this.permission = permission;
+        this.luckPermsGroup = luckPermsGroup;
+        this.snapshot = snapshot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Permission node granting membership, or {@code null}
+     */
+    public String getPermission() {
+        return permission;
+    }
+
+    /**
+     * LuckPerms group (including inherited groups) granting membership, or {@code null}
+     */
+    public String getLuckPermsGroup() {
+        return luckPermsGroup;
+    }
+
+    public ScheduleSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
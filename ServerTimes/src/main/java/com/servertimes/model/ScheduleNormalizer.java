@@ -0,0 +1,237 @@
+package com.servertimes.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings a weekly schedule into canonical form.
+ * <p>
+ * Every session is placed on a circular minute-of-week timeline, sorted by start and swept
+ * once, so overlapping or touching sessions are merged even when they meet across midnight
+ * or across Sunday/Monday. Merged intervals are cut back into sessions of at most 24 hours,
+ * each anchored on the day it starts. Sorting dominates, so the pass is O(n log n).
+ */
+public final class ScheduleNormalizer {
+    private static final int DAY = ScheduleSnapshot.MINUTES_PER_DAY;
+    private static final int WEEK = ScheduleSnapshot.MINUTES_PER_WEEK;
+
+    private ScheduleNormalizer() {
+    }
+
+    /**
+     * Normalize a schedule. A non-positive {@code maxSessionsPerDay} disables the limit.
+     */
+    public static Result normalize(Map<DayOfWeek, List<TimeSession>> schedule, int maxSessionsPerDay) {
+        List<String> conflicts = new ArrayList<>();
+
+        // Flatten to [start, end) minute-of-week intervals
+        int count = 0;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<TimeSession> sessions = schedule != null ? schedule.get(day) : null;
+            count += sessions != null ? sessions.size() : 0;
+        }
+
+        long[] intervals = new long[count];
+        int n = 0;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<TimeSession> sessions = schedule != null ? schedule.get(day) : null;
+            if (sessions == null) {
+                continue;
+            }
+            int dayStart = (day.getValue() - 1) * DAY;
+            for (TimeSession session : sessions) {
+                if (session == null) {
+                    continue;
+                }
+                int start = dayStart + session.getStartMinute();
+                intervals[n++] = pack(start, start + session.getLengthMinutes());
+            }
+        }
+        // Packed with the start in the high bits, so a plain sort orders by start, then end
+        Arrays.sort(intervals, 0, n);
+
+        // Sweep: merge anything that overlaps or touches the interval being built
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        int[] sources = new int[n];
+        int[] firstSource = new int[n];
+        int merged = 0;
+        for (int i = 0; i < n; i++) {
+            int start = unpackStart(intervals[i]);
+            int end = unpackEnd(intervals[i]);
+            if (merged > 0 && start <= ends[merged - 1]) {
+                ends[merged - 1] = Math.max(ends[merged - 1], end);
+                sources[merged - 1]++;
+            } else {
+                starts[merged] = start;
+                ends[merged] = end;
+                sources[merged] = 1;
+                firstSource[merged] = i;
+                merged++;
+            }
+        }
+
+        // Close the circle: an interval running past Sunday midnight can swallow Monday's first ones
+        int first = 0;
+        if (merged > 1) {
+            int last = merged - 1;
+            while (first < last && starts[first] + WEEK <= ends[last]) {
+                ends[last] = Math.max(ends[last], ends[first] + WEEK);
+                sources[last] += sources[first];
+                first++;
+            }
+        }
+
+        List<List<TimeSession>> pieces = new ArrayList<>();
+        for (int i = 0; i < DayOfWeek.values().length; i++) {
+            pieces.add(new ArrayList<>());
+        }
+
+        boolean alwaysOpen = merged > 0 && ends[merged - 1] - starts[merged - 1] >= WEEK;
+        if (alwaysOpen) {
+            for (List<TimeSession> dayPieces : pieces) {
+                dayPieces.add(TimeSession.ofMinutes(0, 0));
+            }
+        } else {
+            for (int i = first; i < merged; i++) {
+                if (!isAlreadyCut(starts[i], ends[i], intervals, n, firstSource[i], sources[i])) {
+                    conflicts.add("Merged " + sources[i] + " overlapping or adjacent sessions into "
+                        + describe(starts[i], ends[i]));
+                }
+                cut(starts[i], ends[i], pieces);
+            }
+        }
+
+        Map<DayOfWeek, List<TimeSession>> days = new EnumMap<>(DayOfWeek.class);
+        boolean limitExceeded = false;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<TimeSession> dayPieces = pieces.get(day.getValue() - 1);
+            dayPieces.sort((a, b) -> Integer.compare(a.getStartMinute(), b.getStartMinute()));
+            if (maxSessionsPerDay > 0 && dayPieces.size() > maxSessionsPerDay) {
+                limitExceeded = true;
+                conflicts.add(day.name().toLowerCase() + " has " + dayPieces.size()
+                    + " sessions, more than the limit of " + maxSessionsPerDay);
+                dayPieces = new ArrayList<>(dayPieces.subList(0, maxSessionsPerDay));
+            }
+            days.put(day, Collections.unmodifiableList(dayPieces));
+        }
+
+        boolean changed = false;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<TimeSession> original = schedule != null ? schedule.get(day) : null;
+            if (!days.get(day).equals(original != null ? original : Collections.emptyList())) {
+                changed = true;
+                break;
+            }
+        }
+        if (alwaysOpen && changed) {
+            conflicts.add("Sessions cover the whole week; replaced with 24-hour sessions on every day");
+        }
+
+        return new Result(Collections.unmodifiableMap(days), conflicts, changed, limitExceeded);
+    }
+
+    /**
+     * Cut a merged interval into sessions of at most 24 hours, each on the day it starts
+     */
+    private static void cut(int start, int end, List<List<TimeSession>> pieces) {
+        int position = start;
+        while (position < end) {
+            int length = Math.min(end - position, DAY);
+            int startOfDay = position % DAY;
+            int endOfDay = (position + length) % DAY;
+            int dayIndex = (position / DAY) % 7;
+            pieces.get(dayIndex).add(TimeSession.ofMinutes(startOfDay, endOfDay));
+            position += length;
+        }
+    }
+
+    /**
+     * Check whether the sessions merged into an interval are exactly the pieces
+     * {@link #cut} would produce, i.e. nothing was actually merged
+     */
+    private static boolean isAlreadyCut(int start, int end, long[] intervals, int n, int from, int count) {
+        int position = start;
+        for (int k = 0; k < count; k++) {
+            long interval = intervals[(from + k) % n];
+            int length = Math.min(end - position, DAY);
+            int sourceStart = unpackStart(interval);
+            if (sourceStart != position % WEEK || unpackEnd(interval) - sourceStart != length) {
+                return false;
+            }
+            position += length;
+        }
+        return position == end;
+    }
+
+    private static String describe(int start, int end) {
+        DayOfWeek day = DayOfWeek.of((start / DAY) % 7 + 1);
+        int minutes = end - start;
+        if (minutes < DAY) {
+            return day.name().toLowerCase() + " " + toTime(start % DAY) + "-" + toTime(end % DAY);
+        }
+        return day.name().toLowerCase() + " " + toTime(start % DAY) + " for " + (minutes / 60) + "h"
+            + (minutes % 60 != 0 ? " " + (minutes % 60) + "m" : "");
+    }
+
+    private static LocalTime toTime(int minuteOfDay) {
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    private static long pack(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    private static int unpackStart(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int unpackEnd(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Canonical schedule plus everything that had to be changed to get there
+     */
+    public static final class Result {
+        private final Map<DayOfWeek, List<TimeSession>> days;
+        private final List<String> conflicts;
+        private final boolean changed;
+        private final boolean limitExceeded;
+
+        private Result(Map<DayOfWeek, List<TimeSession>> days, List<String> conflicts, boolean changed, boolean limitExceeded) {
+            this.days = days;
+            this.conflicts = Collections.unmodifiableList(conflicts);
+            this.changed = changed;
+            this.limitExceeded = limitExceeded;
+        }
+
+        public Map<DayOfWeek, List<TimeSession>> getDays() {
+            return days;
+        }
+
+        public List<String> getConflicts() {
+            return conflicts;
+        }
+
+        /**
+         * Whether the canonical form differs from the input
+         */
+        public boolean isChanged() {
+            return changed;
+        }
+
+        /**
+         * Whether some day had more sessions than allowed and was truncated
+         */
+        public boolean isLimitExceeded() {
+            return limitExceeded;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.servertimes.model;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of the weekly schedule together with its compiled open-state index.
+ * <p>
+ * The index is a bit per minute of the week (Monday 00:00 is minute 0). Sessions that
+ * cross midnight spill into the following day, so "22:00-02:00" on Friday keeps the
+ * server open until 02:00 on Saturday. A session whose start equals its end lasts 24 hours.
+ */
+public final class ScheduleSnapshot {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private static final ScheduleSnapshot EMPTY = of(new EnumMap<>(DayOfWeek.class), 0L);
+
+    private final long version;
+    private final Map<DayOfWeek, List<TimeSession>> days;
+    private final BitSet openMinutes;
+    private final int[] transitions;
+
+    private ScheduleSnapshot(long version, Map<DayOfWeek, List<TimeSession>> days, BitSet openMinutes) {
+        this(version, days, openMinutes, computeTransitions(openMinutes));
+    }
+
+    private ScheduleSnapshot(long version, Map<DayOfWeek, List<TimeSession>> days, BitSet openMinutes, int[] transitions) {
+        this.version = version;
+        this.days = days;
+        this.openMinutes = openMinutes;
+        this.transitions = transitions;
+    }
+
+    public static ScheduleSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a snapshot from a full schedule, compiling every day
+     */
+    public static ScheduleSnapshot of(Map<DayOfWeek, List<TimeSession>> schedule, long version) {
+        Map<DayOfWeek, List<TimeSession>> days = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            days.put(day, copySessions(schedule != null ? schedule.get(day) : null));
+        }
+        days = Collections.unmodifiableMap(days);
+        BitSet openMinutes = new BitSet(MINUTES_PER_WEEK);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            compileDay(openMinutes, day, days.get(day));
+        }
+        return new ScheduleSnapshot(version, days, openMinutes);
+    }
+
+    /**
+     * Rebuild a snapshot from a previously compiled form without recompiling it.
+     * The caller is responsible for the index and transitions matching the sessions.
+     */
+    public static ScheduleSnapshot fromCompiled(Map<DayOfWeek, List<TimeSession>> schedule, long[] openWords,
+                                                int[] transitions, long version) {
+        Map<DayOfWeek, List<TimeSession>> days = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            days.put(day, copySessions(schedule != null ? schedule.get(day) : null));
+        }
+        return new ScheduleSnapshot(version, Collections.unmodifiableMap(days), BitSet.valueOf(openWords), transitions.clone());
+    }
+
+    /**
+     * Derive a new snapshot in which only the given days are replaced. The compiled index
+     * is rebuilt for those days and the days their sessions spill into; everything else is
+     * carried over from this snapshot.
+     */
+    public ScheduleSnapshot withDays(Map<DayOfWeek, List<TimeSession>> changedDays, long newVersion) {
+        if (changedDays == null || changedDays.isEmpty()) {
+            return new ScheduleSnapshot(newVersion, days, openMinutes, transitions);
+        }
+
+        Map<DayOfWeek, List<TimeSession>> newDays = new EnumMap<>(days);
+        for (Map.Entry<DayOfWeek, List<TimeSession>> entry : changedDays.entrySet()) {
+            newDays.put(entry.getKey(), copySessions(entry.getValue()));
+        }
+        newDays = Collections.unmodifiableMap(newDays);
+
+        // A day's bits depend on its own sessions and on the previous day's overflow
+        EnumSet<DayOfWeek> dirty = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : changedDays.keySet()) {
+            dirty.add(day);
+            dirty.add(day.plus(1));
+        }
+
+        BitSet newOpenMinutes = (BitSet) openMinutes.clone();
+        for (DayOfWeek day : dirty) {
+            int dayStart = dayOffset(day);
+            newOpenMinutes.clear(dayStart, dayStart + MINUTES_PER_DAY);
+        }
+        for (DayOfWeek day : dirty) {
+            DayOfWeek previous = day.minus(1);
+            compileDay(newOpenMinutes, previous, newDays.get(previous));
+            compileDay(newOpenMinutes, day, newDays.get(day));
+        }
+
+        return new ScheduleSnapshot(newVersion, newDays, newOpenMinutes);
+    }
+
+    /**
+     * Get the days whose sessions differ between this snapshot and another one
+     */
+    public Set<DayOfWeek> diff(ScheduleSnapshot other) {
+        EnumSet<DayOfWeek> changed = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<TimeSession> theirs = other != null ? other.getSessions(day) : Collections.emptyList();
+            if (!getSessions(day).equals(theirs)) {
+                changed.add(day);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Check the compiled index for a given day and minute of that day
+     */
+    public boolean isOpenAt(DayOfWeek day, int minuteOfDay) {
+        if (day == null || minuteOfDay < 0 || minuteOfDay >= MINUTES_PER_DAY) {
+            return false;
+        }
+        return openMinutes.get(dayOffset(day) + minuteOfDay);
+    }
+
+    /**
+     * Minutes from a minute of the week until the open state next flips, wrapping around the
+     * end of the week. Returns -1 if the state never changes.
+     */
+    public int minutesUntilTransition(int minuteOfWeek) {
+        if (transitions.length == 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(transitions, minuteOfWeek + 1);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        int next = index < transitions.length ? transitions[index] : transitions[0] + MINUTES_PER_WEEK;
+        return next - minuteOfWeek;
+    }
+
+    public List<TimeSession> getSessions(DayOfWeek day) {
+        List<TimeSession> sessions = day != null ? days.get(day) : null;
+        return sessions != null ? sessions : Collections.emptyList();
+    }
+
+    public Map<DayOfWeek, List<TimeSession>> getDays() {
+        return days;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The compiled open-minute index as little-endian words (see {@link BitSet#toLongArray()})
+     */
+    public long[] getOpenWords() {
+        return openMinutes.toLongArray();
+    }
+
+    /**
+     * Sorted minutes of the week at which the open state flips. Empty when the server is
+     * either always closed or always open.
+     */
+    public int[] getTransitions() {
+        return transitions.clone();
+    }
+
+    private static int[] computeTransitions(BitSet openMinutes) {
+        int[] found = new int[16];
+        int count = 0;
+        boolean previous = openMinutes.get(MINUTES_PER_WEEK - 1);
+        int minute = 0;
+        while (minute < MINUTES_PER_WEEK) {
+            // Jump straight to the next minute with the opposite state
+            int next = previous ? openMinutes.nextClearBit(minute) : openMinutes.nextSetBit(minute);
+            if (next < 0 || next >= MINUTES_PER_WEEK) {
+                break;
+            }
+            if (count == found.length) {
+                found = Arrays.copyOf(found, count * 2);
+            }
+            found[count++] = next;
+            previous = !previous;
+            minute = next + 1;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private static int dayOffset(DayOfWeek day) {
+        return (day.getValue() - 1) * MINUTES_PER_DAY;
+    }
+
+    private static void compileDay(BitSet openMinutes, DayOfWeek day, List<TimeSession> sessions) {
+        if (sessions == null) {
+            return;
+        }
+
+        int dayStart = dayOffset(day);
+        for (TimeSession session : sessions) {
+            if (session == null) {
+                continue;
+            }
+
+            int start = dayStart + session.getStartMinute();
+            int end = start + session.getLengthMinutes();
+            if (end <= MINUTES_PER_WEEK) {
+                openMinutes.set(start, end);
+            } else {
+                // Sunday sessions running past midnight continue on Monday
+                openMinutes.set(start, MINUTES_PER_WEEK);
+                openMinutes.set(0, end - MINUTES_PER_WEEK);
+            }
+        }
+    }
+
+    private static List<TimeSession> copySessions(List<TimeSession> sessions) {
+        List<TimeSession> copy = new ArrayList<>();
+        if (sessions != null) {
+            for (TimeSession session : sessions) {
+                if (session != null) {
+                    copy.add(session);
+                }
+            }
+        }
+        return Collections.unmodifiableList(copy);
+    }
+}
@@ -0,0 +1,115 @@
+package com.servertimes.model;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The opens and closes a schedule produces over a stretch of real time, walked from the
+ * snapshot's compiled transition table.
+ * <p>
+ * Each week repeats the table, so the walk costs one step per transition however far ahead
+ * it looks. Schedule times are wall-clock times read the same way as in
+ * {@link ScheduleEvaluation}: a time skipped by a DST change happens the length of the gap
+ * later, and a time that occurs twice happens the first time.
+ */
+public final class ScheduleTimeline {
+    private ScheduleTimeline() {
+    }
+
+    /**
+     * Transitions after {@code from} and before {@code until}, in order
+     */
+    public static List<Transition> between(ScheduleSnapshot snapshot, ZoneId zone, Instant from, Instant until) {
+        int[] minutes = snapshot.getTransitions();
+        if (minutes.length == 0 || !until.isAfter(from)) {
+            return Collections.emptyList();
+        }
+
+        // State after each transition, read once rather than per week
+        boolean[] opens = new boolean[minutes.length];
+        for (int i = 0; i < minutes.length; i++) {
+            DayOfWeek day = DayOfWeek.of(minutes[i] / ScheduleSnapshot.MINUTES_PER_DAY + 1);
+            opens[i] = snapshot.isOpenAt(day, minutes[i] % ScheduleSnapshot.MINUTES_PER_DAY);
+        }
+
+        ZoneRules rules = zone.getRules();
+        LocalDateTime monday = from.atZone(zone).toLocalDate()
+            .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+        List<Transition> result = new ArrayList<>();
+        for (int week = 0; ; week++) {
+            LocalDateTime weekStart = monday.plusWeeks(week);
+            for (int i = 0; i < minutes.length; i++) {
+                LocalDateTime local = weekStart.plusMinutes(minutes[i]);
+                ZonedDateTime at = ZonedDateTime.ofLocal(local, zone, null);
+                Instant instant = at.toInstant();
+                if (!instant.isAfter(from)) {
+                    continue;
+                }
+                if (!instant.isBefore(until)) {
+                    return result;
+                }
+                result.add(new Transition(at, opens[i], rules.getValidOffsets(local).size()));
+            }
+        }
+    }
+
+    /**
+     * The zone's UTC offset changes after {@code from} and before {@code until}
+     */
+    public static List<ZoneOffsetTransition> clockChanges(ZoneId zone, Instant from, Instant until) {
+        List<ZoneOffsetTransition> changes = new ArrayList<>();
+        ZoneRules rules = zone.getRules();
+        ZoneOffsetTransition next = rules.nextTransition(from);
+        while (next != null && next.getInstant().isBefore(until)) {
+            changes.add(next);
+            next = rules.nextTransition(next.getInstant());
+        }
+        return changes;
+    }
+
+    /**
+     * One open or close at a point in real time
+     */
+    public static final class Transition {
+        private final ZonedDateTime time;
+        private final boolean opens;
+        private final int validOffsets;
+
+        private Transition(ZonedDateTime time, boolean opens, int validOffsets) {
+            this.time = time;
+            this.opens = opens;
+            this.validOffsets = validOffsets;
+        }
+
+        public ZonedDateTime getTime() {
+            return time;
+        }
+
+        public boolean opens() {
+            return opens;
+        }
+
+        /**
+         * The scheduled time did not exist that day, so the transition was moved past the gap
+         */
+        public boolean isShifted() {
+            return validOffsets == 0;
+        }
+
+        /**
+         * The scheduled time occurred twice that day; the transition happens the first time
+         */
+        public boolean isAmbiguous() {
+            return validOffsets > 1;
+        }
+    }
+}
@@ -2,148 +2,84 @@ package com.servertimes.model;
 
 import java.time.LocalTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import com.servertimes.utils.TimeParser;
 import com.servertimes.utils.TimezoneUtil;
 
-public class TimeSession {
-    private LocalTime startTime;
-    private LocalTime endTime;
-    
-    public TimeSession(LocalTime startTime, LocalTime endTime) {
-        if (startTime == null) {
-            throw new IllegalArgumentException("Start time cannot be null");
+/**
+ * An immutable opening session. Start and end are packed into one int as minutes of the
+ * day ({@code start << 16 | end}, the same layout {@link TimeParser#parseSession} returns),
+ * and the "HH:mm-HH:mm" form is rendered once on first use and then reused.
+ */
+public final class TimeSession {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int packed;
+    private String rendered;
+
+    private TimeSession(int startMinute, int endMinute) {
+        if (startMinute < 0 || startMinute >= MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Start minute out of range: " + startMinute);
         }
-        if (endTime == null) {
-            throw new IllegalArgumentException("End time cannot be null");
+        if (endMinute < 0 || endMinute >= MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("End minute out of range: " + endMinute);
         }
-        this.startTime = startTime;
-        this.endTime = endTime;
+        this.packed = startMinute << 16 | endMinute;
     }
-    
-    public TimeSession(String startTimeStr, String endTimeStr) throws DateTimeParseException {
-        try {
-            this.startTime = parseTime(startTimeStr);
-            this.endTime = parseTime(endTimeStr);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid time format in TimeSession: " + startTimeStr + " - " + endTimeStr, e);
+
+    public TimeSession(LocalTime startTime, LocalTime endTime) {
+        this(toMinute(startTime, "Start"), toMinute(endTime, "End"));
+    }
+
+    public TimeSession(String startTimeStr, String endTimeStr) {
+        this(parse(startTimeStr, startTimeStr, endTimeStr), parse(endTimeStr, startTimeStr, endTimeStr));
+    }
+
+    /**
+     * Create a session from minutes of the day, as returned by {@link TimeParser}
+     */
+    public static TimeSession ofMinutes(int startMinute, int endMinute) {
+        return new TimeSession(startMinute, endMinute);
+    }
+
+    private static int toMinute(LocalTime time, String label) {
+        if (time == null) {
+            throw new IllegalArgumentException(label + " time cannot be null");
         }
+        return time.getHour() * 60 + time.getMinute();
     }
-    
-    private LocalTime parseTime(String timeStr) throws DateTimeParseException {
-        try {
-            // Support multiple time formats: HH:mm, H:mm, HHam/pm, H:am/pm
-            if (timeStr == null || timeStr.trim().isEmpty()) {
-                throw new DateTimeParseException("Time string is empty", timeStr != null ? timeStr : "null", 0);
-            }
-            
-            timeStr = timeStr.toLowerCase().trim();
-            
-            // Additional validation for extremely long strings
-            if (timeStr.length() > 20) {
-                throw new DateTimeParseException("Time string too long", timeStr, 0);
-            }
-            
-            if (timeStr.contains("am") || timeStr.contains("pm")) {
-                boolean isPM = timeStr.contains("pm");
-                timeStr = timeStr.replace("am", "").replace("pm", "").trim();
-                
-                String[] parts = timeStr.split(":");
-                if (parts.length == 0 || parts.length > 2) {
-                    throw new DateTimeParseException("Invalid AM/PM time format", timeStr, 0);
-                }
-                
-                try {
-                    int hour = Integer.parseInt(parts[0]);
-                    int minute = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
-                    
-                    // Validate ranges
-                    if (hour < 1 || hour > 12 || minute < 0 || minute > 59) {
-                        throw new DateTimeParseException("Invalid time values for AM/PM format", timeStr, 0);
-                    }
-                    
-                    // Convert to 24-hour format
-                    if (isPM && hour != 12) {
-                        hour += 12;
-                    } else if (!isPM && hour == 12) {
-                        hour = 0;
-                    }
-                    
-                    return LocalTime.of(hour, minute);
-                } catch (NumberFormatException e) {
-                    throw new DateTimeParseException("Invalid number format in AM/PM time", timeStr, 0);
-                }
-            } else {
-                try {
-                    // Try parsing as H:mm format first
-                    return LocalTime.parse(timeStr, DateTimeFormatter.ofPattern("H:mm"));
-                } catch (Exception e) {
-                    try {
-                        // Try parsing as HH:mm format
-                        return LocalTime.parse(timeStr, DateTimeFormatter.ofPattern("HH:mm"));
-                    } catch (Exception e2) {
-                        throw new DateTimeParseException("Invalid 24-hour time format", timeStr, 0);
-                    }
-                }
-            }
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Invalid time format: " + timeStr, e);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Unexpected error parsing time: " + timeStr, e);
+
+    private static int parse(String time, String startTimeStr, String endTimeStr) {
+        int minute = TimeParser.parseMinuteOfDay(time);
+        if (minute == TimeParser.INVALID) {
+            throw new IllegalArgumentException("Invalid time format in TimeSession: " + startTimeStr + " - " + endTimeStr);
         }
+        return minute;
     }
-    
+
     public boolean isCurrentlyActive() {
-        try {
-            if (startTime == null || endTime == null) {
-                return false;
-            }
-            
-            LocalTime now = LocalTime.now();
-            if (now == null) {
-                return false;
-            }
-            
-            // Handle sessions that cross midnight
-            if (startTime.isAfter(endTime)) {
-                return now.isAfter(startTime) || now.isBefore(endTime) || now.equals(startTime);
-            } else {
-                return (now.isAfter(startTime) || now.equals(startTime)) && now.isBefore(endTime);
-            }
-        } catch (Exception e) {
-            return false;
-        }
+        LocalTime now = LocalTime.now();
+        return isActiveAt(now.getHour() * 60 + now.getMinute());
     }
-    
+
     /**
      * Check if session is currently active in a specific timezone
      */
     public boolean isCurrentlyActive(ZoneId timezone) {
         try {
-            if (startTime == null || endTime == null) {
-                return false;
-            }
-            
             if (timezone == null) {
                 timezone = ZoneId.systemDefault();
             }
-            
+
             LocalTime now = TimezoneUtil.getCurrentTimeInTimezone(timezone);
             if (now == null) {
                 return false;
             }
-            
-            // Handle sessions that cross midnight
-            if (startTime.isAfter(endTime)) {
-                return now.isAfter(startTime) || now.isBefore(endTime) || now.equals(startTime);
-            } else {
-                return (now.isAfter(startTime) || now.equals(startTime)) && now.isBefore(endTime);
-            }
+            return isActiveAt(now.getHour() * 60 + now.getMinute());
         } catch (Exception e) {
             return false;
         }
     }
-    
+
     /**
      * Check if session is currently active in a specific timezone by abbreviation
      */
@@ -152,66 +88,116 @@ public class TimeSession {
             if (timezoneAbbr == null || timezoneAbbr.trim().isEmpty()) {
                 return isCurrentlyActive();
             }
-            
+
             ZoneId zoneId = TimezoneUtil.getZoneId(timezoneAbbr);
             return isCurrentlyActive(zoneId);
         } catch (Exception e) {
             return false;
         }
     }
-    
+
+    /**
+     * Whether the session covers a minute of the day, counting the part after midnight
+     * of sessions that cross it
+     */
+    public boolean isActiveAt(int minuteOfDay) {
+        int start = getStartMinute();
+        int end = getEndMinute();
+        if (start == end) {
+            // Same start and end time is a 24-hour session
+            return true;
+        }
+        if (start > end) {
+            return minuteOfDay >= start || minuteOfDay < end;
+        }
+        return minuteOfDay >= start && minuteOfDay < end;
+    }
+
+    /**
+     * Minute of the day the session starts at
+     */
+    public int getStartMinute() {
+        return packed >>> 16;
+    }
+
+    /**
+     * Minute of the day the session ends at
+     */
+    public int getEndMinute() {
+        return packed & 0xFFFF;
+    }
+
+    /**
+     * Length of the session in minutes. Sessions ending at or before their start time
+     * run past midnight; equal start and end times mean a full 24 hours.
+     */
+    public int getLengthMinutes() {
+        int start = getStartMinute();
+        int end = getEndMinute();
+        return end > start ? end - start : end + MINUTES_PER_DAY - start;
+    }
+
+    /**
+     * Start and end packed as {@code start << 16 | end}
+     */
+    public int getPacked() {
+        return packed;
+    }
+
     public LocalTime getStartTime() {
-        return startTime;
+        return LocalTime.of(getStartMinute() / 60, getStartMinute() % 60);
     }
-    
+
     public LocalTime getEndTime() {
-        return endTime;
+        return LocalTime.of(getEndMinute() / 60, getEndMinute() % 60);
     }
-    
-    public void setStartTime(LocalTime startTime) {
-        if (startTime == null) {
-            throw new IllegalArgumentException("Start time cannot be null");
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
         }
-        this.startTime = startTime;
-    }
-    
-    public void setEndTime(LocalTime endTime) {
-        if (endTime == null) {
-            throw new IllegalArgumentException("End time cannot be null");
+        if (!(o instanceof TimeSession)) {
+            return false;
         }
-        this.endTime = endTime;
+        return packed == ((TimeSession) o).packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return packed;
     }
-    
+
     @Override
     public String toString() {
-        try {
-            if (startTime == null || endTime == null) {
-                return "Invalid TimeSession (null times)";
-            }
-            
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            return String.format("%s-%s", 
-                startTime.format(formatter), 
-                endTime.format(formatter)
-            );
-        } catch (Exception e) {
-            return "Invalid TimeSession";
+        // Racy but safe: every thread renders the same immutable string
+        String result = rendered;
+        if (result == null) {
+            result = render();
+            rendered = result;
         }
+        return result;
     }
-    
+
     public String toConfigString() {
-        try {
-            if (startTime == null || endTime == null) {
-                return "00:00-00:00";
-            }
-            
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            return String.format("%s-%s", 
-                startTime.format(formatter), 
-                endTime.format(formatter)
-            );
-        } catch (Exception e) {
-            return "00:00-00:00";
-        }
+        return toString();
+    }
+
+    private String render() {
+        char[] chars = new char[11];
+        writeTime(chars, 0, getStartMinute());
+        chars[5] = '-';
+        writeTime(chars, 6, getEndMinute());
+        return new String(chars);
+    }
+
+    private static void writeTime(char[] chars, int offset, int minuteOfDay) {
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        chars[offset] = (char) ('0' + hour / 10);
+        chars[offset + 1] = (char) ('0' + hour % 10);
+        chars[offset + 2] = ':';
+        chars[offset + 3] = (char) ('0' + minute / 10);
+        chars[offset + 4] = (char) ('0' + minute % 10);
     }
-}
\ No newline at end of file
+}
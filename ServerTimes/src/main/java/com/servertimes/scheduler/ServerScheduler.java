@@ -2,25 +2,39 @@ package com.servertimes.scheduler;
 
 import com.servertimes.ServerTimesPlugin;
 import com.servertimes.config.ConfigManager;
+import com.servertimes.data.GroupMembershipManager;
+import com.servertimes.metrics.PluginMetrics;
+import com.servertimes.model.ScheduleEvaluation;
+import com.servertimes.model.ScheduleSnapshot;
 import com.servertimes.model.TimeSession;
+import com.servertimes.utils.ResolvedZone;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 
 import java.time.DayOfWeek;
-import java.time.Duration;
-import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ServerScheduler {
+    // Players are warned this many minutes before the server closes
+    public static final int CLOSING_WARNING_MINUTES = 5;
+    
     private final ServerTimesPlugin plugin;
     private final ConfigManager configManager;
+    private final GroupMembershipManager groupMembership;
+    private final ZoneBroadcaster broadcaster;
     private volatile BukkitTask mainTask;
     private volatile BukkitTask warningTask;
+    private volatile WorldScheduler worldScheduler;
     
     // Thread-safe state variables
     private final AtomicBoolean serverCurrentlyOpen = new AtomicBoolean(true);
@@ -30,9 +44,12 @@ public class ServerScheduler {
     // Synchronization object
     private final Object schedulerLock = new Object();
     
-    public ServerScheduler(ServerTimesPlugin plugin, ConfigManager configManager) {
+    public ServerScheduler(ServerTimesPlugin plugin, ConfigManager configManager, GroupMembershipManager groupMembership,
+                           ZoneBroadcaster broadcaster) {
         this.plugin = plugin;
         this.configManager = configManager;
+        this.groupMembership = groupMembership;
+        this.broadcaster = broadcaster;
     }
     
     public void start() {
@@ -48,7 +65,9 @@ public class ServerScheduler {
                     @Override
                     public void run() {
                         try {
+                            long started = System.nanoTime();
                             checkServerState();
+                            plugin.getMetrics().recordTask(PluginMetrics.Task.STATE_CHECK, System.nanoTime() - started);
                         } catch (Exception e) {
                             plugin.getLogger().severe("Error in main scheduler task: " + e.getMessage());
                             e.printStackTrace();
@@ -66,7 +85,9 @@ public class ServerScheduler {
                     @Override
                     public void run() {
                         try {
+                            long started = System.nanoTime();
                             checkForWarnings();
+                            plugin.getMetrics().recordTask(PluginMetrics.Task.WARNING_CHECK, System.nanoTime() - started);
                         } catch (Exception e) {
                             plugin.getLogger().severe("Error in warning scheduler task: " + e.getMessage());
                             e.printStackTrace();
@@ -126,6 +147,23 @@ public class ServerScheduler {
         }
     }
     
+    /**
+     * Attach the scheduler for worlds with their own schedule, so reloads reach it too
+     */
+    public void setWorldScheduler(WorldScheduler worldScheduler) {
+        this.worldScheduler = worldScheduler;
+    }
+    
+    /**
+     * Re-evaluate the per-world schedules after they may have been reloaded. Main thread only.
+     */
+    public void refreshWorlds() {
+        WorldScheduler worlds = worldScheduler;
+        if (worlds != null) {
+            worlds.checkWorlds();
+        }
+    }
+    
     public void updateSchedule() {
         try {
             // Reset warning state when schedule is updated
@@ -133,12 +171,28 @@ public class ServerScheduler {
             
             // Immediately check the new state
             checkServerState();
+            refreshWorlds();
         } catch (Exception e) {
             plugin.getLogger().severe("Error updating schedule: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
+    /**
+     * React to a partial schedule change. Only edits that touch today (or yesterday,
+     * whose sessions can run past midnight) can affect the current open state.
+     */
+    public void onScheduleChanged(Set<DayOfWeek> changedDays) {
+        if (changedDays == null || changedDays.isEmpty()) {
+            return;
+        }
+        
+        DayOfWeek today = ZonedDateTime.now(configManager.getServerZone()).getDayOfWeek();
+        if (changedDays.contains(today) || changedDays.contains(today.minus(1))) {
+            updateSchedule();
+        }
+    }
+    
     private void checkServerState() {
         try {
             if (configManager == null) {
@@ -146,7 +200,7 @@ public class ServerScheduler {
                 return;
             }
             
-            boolean shouldBeOpen = configManager.isServerOpen();
+            boolean shouldBeOpen = configManager.evaluate(Instant.now()).isOpen();
             boolean currentlyOpen = serverCurrentlyOpen.get();
             
             if (shouldBeOpen && !currentlyOpen) {
@@ -155,6 +209,9 @@ public class ServerScheduler {
             } else if (!shouldBeOpen && currentlyOpen) {
                 // Server should close
                 closeServer();
+            } else if (!shouldBeOpen && groupMembership.hasGroups()) {
+                // Group windows that outlasted the global schedule end on their own
+                kickAllPlayers();
             }
         } catch (Exception e) {
             plugin.getLogger().severe("Error checking server state: " + e.getMessage());
@@ -168,15 +225,12 @@ public class ServerScheduler {
                 return;
             }
             
-            LocalTime now = LocalTime.now();
-            LocalTime nextCloseTime = getNextCloseTime();
-            
-            if (nextCloseTime != null) {
-                long minutesUntilClose = Duration.between(now, nextCloseTime).toMinutes();
+            ScheduleEvaluation evaluation = configManager.evaluate(Instant.now());
+            if (evaluation.isOpen()) {
+                long minutesUntilClose = evaluation.getMinutesUntilTransition();
                 
-                if (minutesUntilClose <= 5 && minutesUntilClose > 0) {
-                    String warningMessage = "§eServer will close in " + minutesUntilClose + " minute(s)!";
-                    Bukkit.broadcastMessage(warningMessage);
+                if (minutesUntilClose <= CLOSING_WARNING_MINUTES && minutesUntilClose > 0) {
+                    warnPlayers((int) minutesUntilClose, evaluation);
                     hasWarnedPlayers.set(true);
                 }
             }
@@ -191,32 +245,51 @@ public class ServerScheduler {
             serverCurrentlyOpen.set(true);
             hasWarnedPlayers.set(false);
             
-            // Kick all players with the server open message
-            String openMessage = configManager.getServerOpenMessage();
-            if (openMessage == null || openMessage.trim().isEmpty()) {
-                openMessage = "Server is now open!";
-            }
-            
-            Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
-            if (onlinePlayers != null) {
-                for (Player player : onlinePlayers) {
-                    if (player != null && player.isOnline()) {
-                        try {
-                            player.kickPlayer(openMessage);
-                        } catch (Exception e) {
-                            plugin.getLogger().warning("Error kicking player " + player.getName() + ": " + e.getMessage());
-                        }
-                    }
+            // Kick all players with the server open message, showing the closing time in their zone.
+            // Players whose schedule groups already had them in before the opening stay.
+            ScheduleEvaluation evaluation = configManager.evaluate(Instant.now());
+            ZonedDateTime closesAt = evaluation.isOpen() ? evaluation.getNextTransition() : null;
+            ZonedDateTime beforeOpening = getOpenedAt(evaluation).minusMinutes(1);
+            List<Player> players = new ArrayList<>();
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (!groupMembership.isOpenFor(player.getUniqueId(), beforeOpening)) {
+                    players.add(player);
                 }
             }
+            broadcaster.forEachZone(evaluation.getInstant(), players, zone -> {
+                String openMessage = closesAt != null
+                    ? configManager.getServerOpenMessage(zone.at(closesAt.toInstant()).formatTime(closesAt.toEpochSecond()))
+                    : configManager.getServerOpenMessage();
+                return openMessage == null || openMessage.trim().isEmpty() ? "Server is now open!" : openMessage;
+            }, (player, message) -> {
+                try {
+                    player.kick(message);
+                    plugin.getMetrics().kicked(PluginMetrics.Kick.OPENING, 1);
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Error kicking player " + player.getName() + ": " + e.getMessage());
+                }
+            });
             
-            plugin.getLogger().info("Server opened - all players kicked");
+            plugin.getLogger().info("Server opened - " + players.size() + " player(s) kicked");
         } catch (Exception e) {
             plugin.getLogger().severe("Error opening server: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
+    // Start of the session that opened the server, or now if none is active
+    private static ZonedDateTime getOpenedAt(ScheduleEvaluation evaluation) {
+        ZonedDateTime now = evaluation.getLocalTime().truncatedTo(ChronoUnit.MINUTES);
+        TimeSession session = evaluation.getActiveSession();
+        if (session == null) {
+            return now;
+        }
+        // Yesterday's session when it runs past midnight
+        int minutesSinceStart = Math.floorMod(evaluation.getMinuteOfDay() - session.getStartMinute(),
+            ScheduleSnapshot.MINUTES_PER_DAY);
+        return now.minusMinutes(minutesSinceStart);
+    }
+    
     private void closeServer() {
         try {
             serverCurrentlyOpen.set(false);
@@ -246,15 +319,13 @@ public class ServerScheduler {
         }
     }
     
-    private void warnPlayers(int minutes) {
+    private void warnPlayers(int minutes, ScheduleEvaluation evaluation) {
         try {
-            String warningMessage = configManager.getServerClosingWarning(minutes);
-            if (warningMessage == null || warningMessage.trim().isEmpty()) {
-                warningMessage = "§eServer will close in " + minutes + " minute(s)!";
-            }
-            Bukkit.broadcastMessage(warningMessage);
+            long closeAt = evaluation.getNextTransition().toEpochSecond();
+            int zones = broadcaster.broadcast(evaluation.getInstant(), zone ->
+                configManager.getServerClosingWarning(minutes, zone.at(Instant.ofEpochSecond(closeAt)).formatTime(closeAt)));
             
-            plugin.getLogger().info("Warned players: server closing in " + minutes + " minute(s)");
+            plugin.getLogger().info("Warned players: server closing in " + minutes + " minute(s) (" + zones + " timezone(s))");
         } catch (Exception e) {
             plugin.getLogger().severe("Error warning players: " + e.getMessage());
             e.printStackTrace();
@@ -272,19 +343,27 @@ public class ServerScheduler {
             Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
             if (onlinePlayers != null) {
                 Player[] players = onlinePlayers.toArray(new Player[0]);
+                int kicked = 0;
                 
                 for (Player player : players) {
                     if (player != null && player.isOnline()) {
+                        // Players whose schedule groups keep them in stay (no bypass permissions)
+                        if (groupMembership.isOpenFor(player.getUniqueId())) {
+                            continue;
+                        }
                         try {
-                            // Kick all players when server closes (no bypass permissions)
                             player.kickPlayer(kickMessage);
+                            kicked++;
                         } catch (Exception e) {
                             plugin.getLogger().warning("Error kicking player " + player.getName() + ": " + e.getMessage());
                         }
                     }
                 }
                 
-                plugin.getLogger().info("Kicked " + players.length + " players (server closed)");
+                plugin.getMetrics().kicked(PluginMetrics.Kick.CLOSED, kicked);
+                if (kicked > 0) {
+                    plugin.getLogger().info("Kicked " + kicked + " players (server closed)");
+                }
             }
         } catch (Exception e) {
             plugin.getLogger().severe("Error kicking all players: " + e.getMessage());
@@ -296,10 +375,12 @@ public class ServerScheduler {
         return serverCurrentlyOpen.get();
     }
     
-    public boolean shouldAllowJoin() {
+    public boolean shouldAllowJoin(UUID playerId) {
         try {
-            // Allow join if server is open OR if it should be open according to schedule
-            return serverCurrentlyOpen.get() || (configManager != null && configManager.isServerOpen());
+            // Allow join if server is open, if it should be open according to schedule,
+            // or if the player's schedule groups (resolved at pre-login) have it open
+            return serverCurrentlyOpen.get() || (configManager != null && configManager.isServerOpen())
+                || groupMembership.isOpenFor(playerId);
         } catch (Exception e) {
             plugin.getLogger().warning("Error checking if join should be allowed: " + e.getMessage());
             return false; // Default to not allowing join if there's an error
@@ -327,54 +408,7 @@ public class ServerScheduler {
             if (configManager == null) {
                 return "Configuration not available";
             }
-            
-            DayOfWeek today = DayOfWeek.from(LocalDate.now());
-            LocalTime now = LocalTime.now();
-            List<TimeSession> sessions = configManager.getSessionsForDay(today);
-            
-            if (sessions == null || sessions.isEmpty()) {
-                return "No scheduled changes";
-            }
-            
-            boolean currentlyOpen = serverCurrentlyOpen.get();
-            
-            if (currentlyOpen) {
-                // Find when server will close
-                for (TimeSession session : sessions) {
-                    if (session != null && session.isCurrentlyActive()) {
-                        LocalTime endTime = session.getEndTime();
-                        if (endTime != null) {
-                            return "Closes at " + endTime.toString();
-                        }
-                    }
-                }
-            } else {
-                // Find when server will open
-                for (TimeSession session : sessions) {
-                    if (session != null) {
-                        LocalTime startTime = session.getStartTime();
-                        if (startTime != null && now.isBefore(startTime)) {
-                            return "Opens at " + startTime.toString();
-                        }
-                    }
-                }
-                
-                // Check tomorrow if no more sessions today
-                try {
-                    DayOfWeek tomorrow = today.plus(1);
-                    List<TimeSession> tomorrowSessions = configManager.getSessionsForDay(tomorrow);
-                    if (tomorrowSessions != null && !tomorrowSessions.isEmpty()) {
-                        TimeSession firstSession = tomorrowSessions.get(0);
-                        if (firstSession != null && firstSession.getStartTime() != null) {
-                            return "Opens tomorrow at " + firstSession.getStartTime().toString();
-                        }
-                    }
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Error checking tomorrow's sessions: " + e.getMessage());
-                }
-            }
-            
-            return "No scheduled changes";
+            return describeNextChange(configManager.evaluate(Instant.now()));
         } catch (Exception e) {
             plugin.getLogger().severe("Error getting next state change: " + e.getMessage());
             e.printStackTrace();
@@ -382,30 +416,60 @@ public class ServerScheduler {
         }
     }
     
-    private LocalTime getNextCloseTime() {
+    /**
+     * Next opening/closing time in a player's own timezone
+     */
+    public String getNextStateChange(Player player) {
         try {
-            if (configManager == null) {
-                return null;
-            }
-            
-            DayOfWeek today = DayOfWeek.from(LocalDate.now());
-            LocalTime now = LocalTime.now();
-            List<TimeSession> sessions = configManager.getSessionsForDay(today);
-            
-            if (sessions == null || sessions.isEmpty()) {
-                return null;
-            }
-            
-            for (TimeSession session : sessions) {
-                if (session != null && session.isCurrentlyActive()) {
-                    return session.getEndTime();
-                }
-            }
-            
-            return null;
+            ScheduleEvaluation evaluation = configManager.evaluate(Instant.now());
+            return describeNextChange(evaluation, broadcaster.getZone(player, evaluation.getInstant()));
         } catch (Exception e) {
-            plugin.getLogger().warning("Error getting next close time: " + e.getMessage());
-            return null;
+            plugin.getLogger().severe("Error getting next state change: " + e.getMessage());
+            e.printStackTrace();
+            return "Error retrieving schedule";
+        }
+    }
+    
+    /**
+     * Describe when an evaluated schedule next opens or closes, e.g. "Closes at 23:00"
+     */
+    public static String describeNextChange(ScheduleEvaluation evaluation) {
+        ZonedDateTime next = evaluation.getNextTransition();
+        if (next == null) {
+            return "No scheduled changes";
+        }
+        
+        String action = evaluation.isOpen() ? "Closes" : "Opens";
+        long days = ChronoUnit.DAYS.between(evaluation.getLocalTime().toLocalDate(), next.toLocalDate());
+        String time = next.toLocalTime().toString();
+        if (days == 0) {
+            return action + " at " + time;
+        } else if (days == 1) {
+            return action + " tomorrow at " + time;
+        }
+        return action + " on " + next.getDayOfWeek().name().toLowerCase() + " at " + time;
+    }
+    
+    /**
+     * Describe when an evaluated schedule next opens or closes, in the local time of a zone
+     */
+    public static String describeNextChange(ScheduleEvaluation evaluation, ResolvedZone zone) {
+        ZonedDateTime next = evaluation.getNextTransition();
+        if (next == null) {
+            return "No scheduled changes";
+        }
+        
+        long nowSecond = evaluation.getInstant().getEpochSecond();
+        long nextSecond = next.toEpochSecond();
+        ResolvedZone atNext = zone.at(next.toInstant());
+        String action = evaluation.isOpen() ? "Closes" : "Opens";
+        long days = atNext.getLocalEpochDay(nextSecond) - zone.at(evaluation.getInstant()).getLocalEpochDay(nowSecond);
+        String time = atNext.formatTime(nextSecond);
+        if (days == 0) {
+            return action + " at " + time;
+        } else if (days == 1) {
+            return action + " tomorrow at " + time;
         }
+        return action + " on " + atNext.getDayOfWeek(nextSecond).name().toLowerCase() + " at " + time;
     }
-}
\ No newline at end of file
+}
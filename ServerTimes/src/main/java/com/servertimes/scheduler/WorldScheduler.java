@@ -0,0 +1,255 @@
+package com.servertimes.scheduler;
+
+import com.servertimes.ServerTimesPlugin;
+import com.servertimes.config.ConfigManager;
+import com.servertimes.metrics.PluginMetrics;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Opens and closes worlds that have their own schedule.
+ * <p>
+ * When a world closes, its players are queued and moved to the fallback world a few per
+ * tick, so a full event world does not cost one long tick. Closed worlds can optionally
+ * be unloaded once empty and are loaded again when they reopen. All methods run on the
+ * main thread.
+ */
+public class WorldScheduler {
+    private static final String BYPASS_PERMISSION = "servertimes.bypass";
+
+    private final ServerTimesPlugin plugin;
+    private final ConfigManager configManager;
+    private final Map<String, Boolean> worldOpen = new HashMap<>();
+    // How to load each world we unloaded again: its name, environment, generator and type
+    private final Map<String, WorldCreator> unloadedByUs = new HashMap<>();
+    private final ArrayDeque<UUID> pendingMoves = new ArrayDeque<>();
+    private final Set<UUID> queued = new HashSet<>();
+
+    private BukkitTask checkTask;
+    private BukkitTask moveTask;
+
+    public WorldScheduler(ServerTimesPlugin plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+    }
+
+    public void start() {
+        if (checkTask != null) {
+            plugin.getLogger().warning("WorldScheduler is already running");
+            return;
+        }
+
+        // Same cadence as the server-wide check
+        checkTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    long started = System.nanoTime();
+                    checkWorlds();
+                    plugin.getMetrics().recordTask(PluginMetrics.Task.WORLD_CHECK, System.nanoTime() - started);
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error in world scheduler task: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        }.runTaskTimer(plugin, 0L, 600L);
+    }
+
+    public void stop() {
+        if (checkTask != null) {
+            checkTask.cancel();
+            checkTask = null;
+        }
+        if (moveTask != null) {
+            moveTask.cancel();
+            moveTask = null;
+        }
+        pendingMoves.clear();
+        queued.clear();
+        plugin.getMetrics().setWorldMoveQueue(0);
+    }
+
+    /**
+     * Re-evaluate every scheduled world, e.g. after the schedule was reloaded
+     */
+    public void checkWorlds() {
+        Set<String> scheduled = configManager.getScheduledWorlds();
+        worldOpen.keySet().retainAll(scheduled);
+        unloadedByUs.keySet().retainAll(scheduled);
+
+        for (String worldName : scheduled) {
+            boolean open = configManager.isWorldOpen(worldName);
+            Boolean wasOpen = worldOpen.put(worldName, open);
+            if (wasOpen != null && wasOpen == open) {
+                if (!open) {
+                    unloadIfEmpty(worldName);
+                }
+                continue;
+            }
+
+            if (open) {
+                openWorld(worldName);
+            } else {
+                closeWorld(worldName);
+            }
+        }
+    }
+
+    public boolean isWorldOpen(World world) {
+        return world == null || configManager.isWorldOpen(world.getName());
+    }
+
+    public boolean canEnter(Player player, World world) {
+        return isWorldOpen(world) || player.hasPermission(BYPASS_PERMISSION);
+    }
+
+    /**
+     * Queue a player for a move to the fallback world, e.g. one who logged in inside a closed world
+     */
+    public void queueMove(Player player) {
+        if (player.hasPermission(BYPASS_PERMISSION) || !queued.add(player.getUniqueId())) {
+            return;
+        }
+        pendingMoves.add(player.getUniqueId());
+        plugin.getMetrics().setWorldMoveQueue(pendingMoves.size());
+        startMoving();
+    }
+
+    /**
+     * The world closed players are sent to: the configured fallback, or the main world
+     */
+    public World getFallbackWorld() {
+        String fallbackName = configManager.getFallbackWorld();
+        World fallback = fallbackName.isEmpty() ? null : Bukkit.getWorld(fallbackName);
+        if (fallback == null || !isWorldOpen(fallback)) {
+            fallback = Bukkit.getWorlds().get(0);
+        }
+        return fallback;
+    }
+
+    private void openWorld(String worldName) {
+        WorldCreator unloaded = unloadedByUs.remove(worldName);
+        if (unloaded != null && findWorld(worldName) == null) {
+            World loaded = unloaded.createWorld();
+            if (loaded == null) {
+                plugin.getLogger().warning("Could not load world " + worldName + " for its scheduled opening");
+                return;
+            }
+        }
+        plugin.getLogger().info("World " + worldName + " opened according to schedule");
+    }
+
+    private void closeWorld(String worldName) {
+        World world = findWorld(worldName);
+        if (world == null) {
+            return;
+        }
+
+        int count = 0;
+        for (Player player : world.getPlayers()) {
+            if (!player.hasPermission(BYPASS_PERMISSION) && queued.add(player.getUniqueId())) {
+                pendingMoves.add(player.getUniqueId());
+                count++;
+            }
+        }
+        plugin.getLogger().info("World " + worldName + " closed according to schedule, moving " + count + " player(s)");
+        plugin.getMetrics().setWorldMoveQueue(pendingMoves.size());
+        startMoving();
+        unloadIfEmpty(worldName);
+    }
+
+    private void startMoving() {
+        if (moveTask != null || pendingMoves.isEmpty()) {
+            return;
+        }
+
+        moveTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    long started = System.nanoTime();
+                    moveBatch();
+                    plugin.getMetrics().recordTask(PluginMetrics.Task.WORLD_MOVES, System.nanoTime() - started);
+                } catch (Exception e) {
+                    plugin.getLogger().severe("Error moving players out of closed worlds: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    // Moves at most moves_per_tick players, then yields the rest of the tick
+    private void moveBatch() {
+        World fallback = getFallbackWorld();
+        int budget = configManager.getWorldMovesPerTick();
+        while (budget > 0 && !pendingMoves.isEmpty()) {
+            UUID playerId = pendingMoves.poll();
+            queued.remove(playerId);
+            Player player = Bukkit.getPlayer(playerId);
+            if (player == null || !player.isOnline() || isWorldOpen(player.getWorld())) {
+                continue;
+            }
+
+            String worldName = player.getWorld().getName();
+            player.teleportAsync(fallback.getSpawnLocation());
+            player.sendMessage(configManager.getWorldClosedMessage(worldName, fallback.getName()));
+            budget--;
+        }
+        plugin.getMetrics().setWorldMoveQueue(pendingMoves.size());
+
+        if (pendingMoves.isEmpty()) {
+            moveTask.cancel();
+            moveTask = null;
+            for (String worldName : configManager.getScheduledWorlds()) {
+                if (Boolean.FALSE.equals(worldOpen.get(worldName))) {
+                    unloadIfEmpty(worldName);
+                }
+            }
+        }
+    }
+
+    private void unloadIfEmpty(String worldName) {
+        if (!configManager.isUnloadClosedWorlds()) {
+            return;
+        }
+
+        World world = findWorld(worldName);
+        if (world == null || !world.getPlayers().isEmpty() || world.equals(Bukkit.getWorlds().get(0))) {
+            return;
+        }
+
+        WorldCreator creator = WorldCreator.copy(world);
+        if (Bukkit.unloadWorld(world, true)) {
+            unloadedByUs.put(worldName, creator);
+            plugin.getLogger().info("Unloaded closed world " + world.getName());
+        } else {
+            plugin.getLogger().warning("Could not unload closed world " + world.getName());
+        }
+    }
+
+    // Scheduled world names are stored in lower case
+    private World findWorld(String worldName) {
+        World world = Bukkit.getWorld(worldName);
+        if (world != null) {
+            return world;
+        }
+        for (World candidate : Bukkit.getWorlds()) {
+            if (candidate.getName().toLowerCase(Locale.ROOT).equals(worldName)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
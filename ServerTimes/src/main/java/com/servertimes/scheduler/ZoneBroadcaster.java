@@ -0,0 +1,89 @@
+package com.servertimes.scheduler;
+
+import com.servertimes.config.ConfigManager;
+import com.servertimes.data.PlayerDataManager;
+import com.servertimes.utils.ResolvedZone;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Sends messages containing times to players in their own timezone.
+ * <p>
+ * Online players are grouped by resolved zone; each message is rendered and turned into a
+ * Component once per distinct zone and that Component goes to the whole group, so the work
+ * grows with the number of zones rather than players. Players without a timezone of their
+ * own share the server's zone.
+ */
+public class ZoneBroadcaster {
+    private final ConfigManager configManager;
+    private final PlayerDataManager playerDataManager;
+
+    public ZoneBroadcaster(ConfigManager configManager, PlayerDataManager playerDataManager) {
+        this.configManager = configManager;
+        this.playerDataManager = playerDataManager;
+    }
+
+    /**
+     * The zone a player sees times in: their own, or the server's
+     */
+    public ResolvedZone getZone(Player player, Instant now) {
+        ResolvedZone zone = playerDataManager.getResolvedZone(player.getUniqueId(), now);
+        return zone != null ? zone : configManager.getServerResolvedZone(now);
+    }
+
+    /**
+     * Send every online player a message rendered for their zone. Returns the number of
+     * distinct renders.
+     */
+    public int broadcast(Instant now, Function<ResolvedZone, String> renderer) {
+        return forEachZone(now, Bukkit.getOnlinePlayers(), renderer, Player::sendMessage);
+    }
+
+    /**
+     * Group players by zone, render once per group and hand each player the group's Component
+     */
+    public int forEachZone(Instant now, Collection<? extends Player> players, Function<ResolvedZone, String> renderer,
+                           BiConsumer<Player, Component> action) {
+        Map<ZoneId, ZoneGroup> groups = new HashMap<>();
+        for (Player player : players) {
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            ResolvedZone zone = getZone(player, now);
+            groups.computeIfAbsent(zone.getZone(), id -> new ZoneGroup(zone)).players.add(player);
+        }
+
+        for (ZoneGroup group : groups.values()) {
+            String text = renderer.apply(group.zone);
+            if (text == null || text.isEmpty()) {
+                continue;
+            }
+            Component message = LegacyComponentSerializer.legacySection().deserialize(text);
+            for (Player player : group.players) {
+                action.accept(player, message);
+            }
+        }
+        return groups.size();
+    }
+
+    private static final class ZoneGroup {
+        private final ResolvedZone zone;
+        private final List<Player> players = new ArrayList<>();
+
+        private ZoneGroup(ResolvedZone zone) {
+            this.zone = zone;
+        }
+    }
+}
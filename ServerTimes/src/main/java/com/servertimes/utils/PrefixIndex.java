@@ -0,0 +1,160 @@
+package com.servertimes.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable case-insensitive prefix trie over a fixed set of names, built once.
+ * <p>
+ * Each node knows the slice of the sorted name list that starts with its prefix, so
+ * completing a prefix is a walk down the trie that returns a pre-built, read-only list.
+ * Exact lookups walk the same path. Neither allocates.
+ */
+public final class PrefixIndex<V> {
+    private final Node<V> root;
+    private final List<String> names;
+
+    private PrefixIndex(Node<V> root, List<String> names) {
+        this.root = root;
+        this.names = names;
+    }
+
+    /**
+     * Build an index over the given names. Names that only differ in case are kept once,
+     * under the spelling that sorts first.
+     */
+    public static <V> PrefixIndex<V> build(Map<String, V> entries) {
+        TreeMap<String, V> sorted = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, V> entry : entries.entrySet()) {
+            if (entry.getKey() != null && !entry.getKey().isEmpty()) {
+                sorted.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+
+        String[] keys = sorted.keySet().toArray(new String[0]);
+        List<String> names = Collections.unmodifiableList(Arrays.asList(keys));
+        List<V> values = new ArrayList<>(sorted.values());
+        Node<V> root = buildNode(keys, values, names, 0, keys.length, 0, names);
+        return new PrefixIndex<>(root, names);
+    }
+
+    // Sorting is case-insensitive, so the names below one folded character are contiguous
+    private static <V> Node<V> buildNode(String[] keys, List<V> values, List<String> names,
+                                         int from, int to, int depth, List<String> slice) {
+        String name = null;
+        V value = null;
+        int childFrom = from;
+        if (from < to && keys[from].length() == depth) {
+            name = keys[from];
+            value = values.get(from);
+            childFrom++;
+        }
+
+        List<Character> childKeys = new ArrayList<>();
+        List<Node<V>> children = new ArrayList<>();
+        int start = childFrom;
+        while (start < to) {
+            char folded = fold(keys[start].charAt(depth));
+            int end = start + 1;
+            while (end < to && fold(keys[end].charAt(depth)) == folded) {
+                end++;
+            }
+            // A node covering the same names as its parent shares the parent's slice
+            List<String> childSlice = (start == from && end == to) ? slice : names.subList(start, end);
+            childKeys.add(folded);
+            children.add(buildNode(keys, values, names, start, end, depth + 1, childSlice));
+            start = end;
+        }
+
+        // Order children by their folded character so lookups can binary search
+        Integer[] order = new Integer[childKeys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Character.compare(childKeys.get(a), childKeys.get(b)));
+        char[] sortedKeys = new char[order.length];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<V>[] sortedChildren = new Node[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = childKeys.get(order[i]);
+            sortedChildren[i] = children.get(order[i]);
+        }
+        return new Node<>(sortedKeys, sortedChildren, slice, name, value);
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Names starting with a prefix, case-insensitively, in sorted order. The list is read-only.
+     */
+    public List<String> complete(CharSequence prefix) {
+        Node<V> node = find(prefix);
+        return node != null ? node.slice : Collections.emptyList();
+    }
+
+    /**
+     * Value stored under a name, matched case-insensitively, or null
+     */
+    public V get(CharSequence name) {
+        Node<V> node = find(name);
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * The indexed spelling of a name, matched case-insensitively, or null if it is not indexed
+     */
+    public String getName(CharSequence name) {
+        Node<V> node = find(name);
+        return node != null ? node.name : null;
+    }
+
+    public boolean contains(CharSequence name) {
+        return getName(name) != null;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private Node<V> find(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        Node<V> node = root;
+        for (int i = 0; i < text.length() && node != null; i++) {
+            node = node.child(fold(text.charAt(i)));
+        }
+        return node;
+    }
+
+    private static final class Node<V> {
+        private final char[] keys;
+        private final Node<V>[] children;
+        private final List<String> slice;
+        private final String name;
+        private final V value;
+
+        private Node(char[] keys, Node<V>[] children, List<String> slice, String name, V value) {
+            this.keys = keys;
+            this.children = children;
+            this.slice = slice;
+            this.name = name;
+            this.value = value;
+        }
+
+        private Node<V> child(char folded) {
+            int index = Arrays.binarySearch(keys, folded);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+}
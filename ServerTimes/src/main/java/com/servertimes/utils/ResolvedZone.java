@@ -0,0 +1,123 @@
+package com.servertimes.utils;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * A timezone resolved for the stretch of time in which its UTC offset is fixed.
+ * <p>
+ * Between the previous and the next DST transition, converting an instant to local time
+ * is one addition of the cached offset. {@link #at(Instant)} hands out a freshly resolved
+ * zone once that window has passed.
+ */
+public final class ResolvedZone {
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final String name;
+    private final ZoneId zone;
+    private final ZoneOffset offset;
+    private final int offsetSeconds;
+    private final long validFrom;
+    private final long validUntil;
+
+    private ResolvedZone(String name, ZoneId zone, ZoneOffset offset, long validFrom, long validUntil) {
+        this.name = name;
+        this.zone = zone;
+        this.offset = offset;
+        this.offsetSeconds = offset.getTotalSeconds();
+        this.validFrom = validFrom;
+        this.validUntil = validUntil;
+    }
+
+    /**
+     * Resolve a zone for the offset window around an instant
+     */
+    public static ResolvedZone resolve(String name, ZoneId zone, Instant now) {
+        ZoneRules rules = zone.getRules();
+        ZoneOffset offset = rules.getOffset(now);
+        if (rules.isFixedOffset()) {
+            return new ResolvedZone(name, zone, offset, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        // previousTransition is strictly before now; exactly at a transition the window starts now
+        ZoneOffsetTransition previous = rules.previousTransition(now);
+        ZoneOffsetTransition next = rules.nextTransition(now);
+        long validFrom = previous == null ? Long.MIN_VALUE
+            : previous.getOffsetAfter().equals(offset) ? previous.getInstant().getEpochSecond() : now.getEpochSecond();
+        return new ResolvedZone(name, zone, offset, validFrom,
+            next != null ? next.getInstant().getEpochSecond() : Long.MAX_VALUE);
+    }
+
+    /**
+     * This zone if its offset still applies at an instant, otherwise the zone resolved again
+     */
+    public ResolvedZone at(Instant now) {
+        return isValidAt(now.getEpochSecond()) ? this : resolve(name, zone, now);
+    }
+
+    public boolean isValidAt(long epochSecond) {
+        return epochSecond >= validFrom && epochSecond < validUntil;
+    }
+
+    /**
+     * Minute of the local day at an instant inside this zone's offset window
+     */
+    public int getMinuteOfDay(long epochSecond) {
+        return Math.floorMod(epochSecond + offsetSeconds, SECONDS_PER_DAY) / 60;
+    }
+
+    /**
+     * Local date at an instant inside this zone's offset window, as days since 1970-01-01
+     */
+    public long getLocalEpochDay(long epochSecond) {
+        return Math.floorDiv(epochSecond + offsetSeconds, SECONDS_PER_DAY);
+    }
+
+    /**
+     * Local day of the week at an instant inside this zone's offset window
+     */
+    public DayOfWeek getDayOfWeek(long epochSecond) {
+        long epochDay = getLocalEpochDay(epochSecond);
+        // 1970-01-01 was a Thursday
+        return DayOfWeek.of((int) Math.floorMod(epochDay + 3, 7L) + 1);
+    }
+
+    /**
+     * Local time at an instant as "HH:mm"
+     */
+    public String formatTime(long epochSecond) {
+        int minuteOfDay = getMinuteOfDay(epochSecond);
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        return new String(new char[] {
+            (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+            (char) ('0' + minute / 10), (char) ('0' + minute % 10)
+        });
+    }
+
+    /**
+     * The name the player chose, e.g. "EST" or "Europe/Berlin"
+     */
+    public String getName() {
+        return name;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public ZoneOffset getOffset() {
+        return offset;
+    }
+
+    /**
+     * Epoch second at which the cached offset stops applying (the next DST transition)
+     */
+    public long getValidUntil() {
+        return validUntil;
+    }
+}
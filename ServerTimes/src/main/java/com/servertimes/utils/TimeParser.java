@@ -0,0 +1,150 @@
+package com.servertimes.utils;
+
+/**
+ * The one time-of-day parser used by config loading, imports, commands and tab completion.
+ * <p>
+ * Accepted formats, case-insensitive and with surrounding whitespace ignored:
+ * <ul>
+ *   <li>24-hour: {@code 21:00}, {@code 9:30}</li>
+ *   <li>12-hour: {@code 9pm}, {@code 9:30pm}, {@code 12 am}</li>
+ *   <li>Compact: {@code 2130}, {@code 930}</li>
+ * </ul>
+ * Parsing scans the characters once and returns the minute of the day, or {@link #INVALID}.
+ * It allocates nothing and never throws for malformed input.
+ */
+public final class TimeParser {
+    public static final int INVALID = -1;
+
+    private TimeParser() {
+    }
+
+    /**
+     * Parse a time of day. Returns the minute of the day (0-1439) or {@link #INVALID}.
+     */
+    public static int parseMinuteOfDay(CharSequence text) {
+        return text == null ? INVALID : parseMinuteOfDay(text, 0, text.length());
+    }
+
+    /**
+     * Parse the time of day in {@code text[from, to)} without copying it
+     */
+    public static int parseMinuteOfDay(CharSequence text, int from, int to) {
+        // Trim
+        while (from < to && text.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && text.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (from == to || to - from > 8) {
+            return INVALID;
+        }
+
+        // am/pm suffix, optionally separated by spaces
+        int meridiem = 0; // 0 none, 1 am, 2 pm
+        if (to - from >= 3 && (text.charAt(to - 1) | 0x20) == 'm') {
+            char marker = (char) (text.charAt(to - 2) | 0x20);
+            if (marker == 'a') {
+                meridiem = 1;
+            } else if (marker == 'p') {
+                meridiem = 2;
+            } else {
+                return INVALID;
+            }
+            to -= 2;
+            while (to > from && text.charAt(to - 1) == ' ') {
+                to--;
+            }
+        }
+
+        // Digits, with at most one colon
+        int hour = 0;
+        int hourDigits = 0;
+        int minute = 0;
+        int minuteDigits = 0;
+        boolean colon = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (colon) {
+                    minute = minute * 10 + (c - '0');
+                    minuteDigits++;
+                } else {
+                    hour = hour * 10 + (c - '0');
+                    hourDigits++;
+                }
+            } else if (c == ':' && !colon) {
+                colon = true;
+            } else {
+                return INVALID;
+            }
+        }
+
+        if (colon) {
+            if (hourDigits < 1 || hourDigits > 2 || minuteDigits != 2) {
+                return INVALID;
+            }
+        } else if (meridiem != 0 && hourDigits <= 2) {
+            if (hourDigits == 0) {
+                return INVALID;
+            }
+        } else if (hourDigits == 3 || hourDigits == 4) {
+            // Compact: HMM or HHMM, already accumulated as one number
+            minute = hour % 100;
+            hour = hour / 100;
+        } else {
+            return INVALID;
+        }
+
+        if (minute > 59) {
+            return INVALID;
+        }
+        if (meridiem != 0) {
+            if (hour < 1 || hour > 12) {
+                return INVALID;
+            }
+            hour = hour % 12 + (meridiem == 2 ? 12 : 0);
+        } else if (hour > 23) {
+            return INVALID;
+        }
+        return hour * 60 + minute;
+    }
+
+    /**
+     * Parse a "start-end" session. Returns {@code start << 16 | end} (see {@link #sessionStart}
+     * and {@link #sessionEnd}) or {@link #INVALID}.
+     */
+    public static int parseSession(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+
+        int dash = -1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '-') {
+                if (dash >= 0) {
+                    return INVALID;
+                }
+                dash = i;
+            }
+        }
+        if (dash < 0) {
+            return INVALID;
+        }
+
+        int start = parseMinuteOfDay(text, 0, dash);
+        int end = parseMinuteOfDay(text, dash + 1, text.length());
+        if (start < 0 || end < 0) {
+            return INVALID;
+        }
+        return start << 16 | end;
+    }
+
+    public static int sessionStart(int packedSession) {
+        return packedSession >>> 16;
+    }
+
+    public static int sessionEnd(int packedSession) {
+        return packedSession & 0xFFFF;
+    }
+}
@@ -1,17 +1,22 @@
 package com.servertimes.utils;
 
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.LocalTime;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class TimezoneUtil {
     
-    // Common timezone abbreviations mapped to ZoneId - using ConcurrentHashMap for thread safety
-    private static final Map<String, ZoneId> TIMEZONE_MAP = new ConcurrentHashMap<>();
+    // Common timezone abbreviations mapped to ZoneId, filled once by the static block
+    private static final Map<String, ZoneId> TIMEZONE_MAP = new HashMap<>();
+    
+    // Abbreviations plus every IANA region id, for lookups and tab completion
+    private static final PrefixIndex<ZoneId> ZONE_INDEX;
     
     static {
         // North American timezones
@@ -39,10 +44,18 @@ public class TimezoneUtil {
         TIMEZONE_MAP.put("AEST", ZoneId.of("Australia/Sydney"));
         TIMEZONE_MAP.put("AWST", ZoneId.of("Australia/Perth"));
         TIMEZONE_MAP.put("ACST", ZoneId.of("Australia/Adelaide"));
+        
+        Map<String, ZoneId> zones = new HashMap<>();
+        for (String region : ZoneId.getAvailableZoneIds()) {
+            zones.put(region, ZoneId.of(region));
+        }
+        // Abbreviations win over legacy ids of the same name (e.g. CET, EST)
+        zones.putAll(TIMEZONE_MAP);
+        ZONE_INDEX = PrefixIndex.build(zones);
     }
     
     /**
-     * Get ZoneId from timezone abbreviation
+     * Get ZoneId from a timezone abbreviation or IANA region id, case-insensitively
      */
     public static ZoneId getZoneId(String timezoneAbbr) {
         try {
@@ -50,27 +63,49 @@ public class TimezoneUtil {
                 return ZoneId.systemDefault();
             }
             
-            String upperAbbr = timezoneAbbr.trim().toUpperCase();
-            return TIMEZONE_MAP.getOrDefault(upperAbbr, ZoneId.systemDefault());
+            ZoneId zoneId = ZONE_INDEX.get(timezoneAbbr.trim());
+            return zoneId != null ? zoneId : ZoneId.systemDefault();
         } catch (Exception e) {
             return ZoneId.systemDefault();
         }
     }
     
     /**
-     * Check if timezone abbreviation is valid
+     * Check if a timezone abbreviation or region id is known
      */
     public static boolean isValidTimezone(String timezoneAbbr) {
         try {
             if (timezoneAbbr == null || timezoneAbbr.trim().isEmpty()) {
                 return false;
             }
-            return TIMEZONE_MAP.containsKey(timezoneAbbr.trim().toUpperCase());
+            return ZONE_INDEX.contains(timezoneAbbr.trim());
         } catch (Exception e) {
             return false;
         }
     }
     
+    /**
+     * The spelling a timezone is stored and shown under (e.g. "europe/berlin" becomes
+     * "Europe/Berlin"), or null if it is not known
+     */
+    public static String getCanonicalName(String timezone) {
+        return timezone != null ? ZONE_INDEX.getName(timezone.trim()) : null;
+    }
+    
+    /**
+     * Every supported abbreviation and region id, sorted case-insensitively
+     */
+    public static List<String> getTimezoneNames() {
+        return ZONE_INDEX.getNames();
+    }
+    
+    /**
+     * Supported names starting with a prefix, case-insensitively, as a read-only sorted list
+     */
+    public static List<String> completeTimezone(CharSequence prefix) {
+        return ZONE_INDEX.complete(prefix);
+    }
+    
     /**
      * Get all supported timezone abbreviations
      */
@@ -126,7 +161,7 @@ public class TimezoneUtil {
             }
             
             return String.format("%s (%s - Current: %02d:%02d)", 
-                timezoneAbbr.trim().toUpperCase(), 
+                getCanonicalName(timezoneAbbr), 
                 zoneId.getId(),
                 currentTime.getHour(),
                 currentTime.getMinute()
@@ -136,6 +171,15 @@ public class TimezoneUtil {
         }
     }
     
+    /**
+     * Format an already resolved timezone for display, without another zone lookup
+     */
+    public static String formatTimezoneDisplay(ResolvedZone zone, Instant now) {
+        String name = getCanonicalName(zone.getName());
+        return (name != null ? name : zone.getName()) + " (" + zone.getZone().getId()
+            + " - Current: " + zone.formatTime(now.getEpochSecond()) + ")";
+    }
+    
     /**
      * Get timezone error message for invalid input
      */
@@ -146,7 +190,8 @@ public class TimezoneUtil {
             sb.append("§eNorth America: §fEST, CST, MST, PST, AST, HST\n");
             sb.append("§eEurope: §fGMT, UTC, CET, EET, BST\n");
             sb.append("§eAsia: §fJST, KST, IST, CST_CHINA\n");
-            sb.append("§eAustralia: §fAEST, AWST, ACST");
+            sb.append("§eAustralia: §fAEST, AWST, ACST\n");
+            sb.append("§eOr any region, e.g. §fEurope/Berlin§e, §fAmerica/New_York");
             return sb.toString();
         } catch (Exception e) {
             return "§cInvalid timezone! Please use a supported timezone abbreviation.";
@@ -2,8 +2,6 @@ package com.servertimes.utils;
 
 import java.time.DayOfWeek;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -81,152 +79,33 @@ public class ValidationUtil {
      * Parse and validate a time string
      */
     public static LocalTime parseTime(String timeStr) {
-        try {
-            if (timeStr == null || timeStr.trim().isEmpty()) {
-                throw new IllegalArgumentException("Time cannot be null or empty");
-            }
-            
-            timeStr = timeStr.trim().toLowerCase();
-            
-            // Additional validation for extremely long strings
-            if (timeStr.length() > 20) {
-                throw new IllegalArgumentException("Time string too long: " + timeStr);
-            }
-            
-            // Handle AM/PM format
-            if (timeStr.contains("am") || timeStr.contains("pm")) {
-                return parseAmPmTime(timeStr);
-            }
-            
-            // Handle 24-hour format
-            if (timeStr.contains(":")) {
-                return parse24HourTime(timeStr);
-            }
-            
-            // Handle compact format (e.g., "1430" for 14:30)
-            if (timeStr.matches("\\d{3,4}")) {
-                return parseCompactTime(timeStr);
-            }
-            
+        int minute = TimeParser.parseMinuteOfDay(timeStr);
+        if (minute == TimeParser.INVALID) {
             throw new IllegalArgumentException("Invalid time format: " + timeStr);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid time format: " + timeStr, e);
-        }
-    }
-    
-    /**
-     * Parse AM/PM time format
-     */
-    private static LocalTime parseAmPmTime(String timeStr) {
-        try {
-            boolean isPM = timeStr.contains("pm");
-            timeStr = timeStr.replace("am", "").replace("pm", "").trim();
-            
-            String[] parts = timeStr.split(":");
-            if (parts.length == 0 || parts.length > 2) {
-                throw new IllegalArgumentException("Invalid AM/PM time format");
-            }
-            
-            int hour = Integer.parseInt(parts[0]);
-            int minute = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
-            
-            // Validate ranges
-            if (hour < 1 || hour > 12 || minute < 0 || minute > 59) {
-                throw new IllegalArgumentException("Invalid time values for AM/PM format");
-            }
-            
-            // Convert to 24-hour format
-            if (isPM && hour != 12) {
-                hour += 12;
-            } else if (!isPM && hour == 12) {
-                hour = 0;
-            }
-            
-            return LocalTime.of(hour, minute);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid number format in AM/PM time");
-        }
-    }
-    
-    /**
-     * Parse 24-hour time format
-     */
-    private static LocalTime parse24HourTime(String timeStr) {
-        try {
-            String[] parts = timeStr.split(":");
-            if (parts.length != 2) {
-                throw new IllegalArgumentException("Invalid 24-hour time format");
-            }
-            
-            int hour = Integer.parseInt(parts[0]);
-            int minute = Integer.parseInt(parts[1]);
-            
-            if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
-                throw new IllegalArgumentException("Invalid time values for 24-hour format");
-            }
-            
-            return LocalTime.of(hour, minute);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid number format in 24-hour time");
-        }
-    }
-    
-    /**
-     * Parse compact time format (e.g., "1430" for 14:30)
-     */
-    private static LocalTime parseCompactTime(String timeStr) {
-        try {
-            int hour, minute;
-            if (timeStr.length() == 3) {
-                // Format: HMM (e.g., 930 for 9:30)
-                hour = Integer.parseInt(timeStr.substring(0, 1));
-                minute = Integer.parseInt(timeStr.substring(1, 3));
-            } else {
-                // Format: HHMM (e.g., 1430 for 14:30)
-                hour = Integer.parseInt(timeStr.substring(0, 2));
-                minute = Integer.parseInt(timeStr.substring(2, 4));
-            }
-            
-            if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
-                throw new IllegalArgumentException("Invalid time values for compact format");
-            }
-            
-            return LocalTime.of(hour, minute);
-        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
-            throw new IllegalArgumentException("Invalid compact time format");
         }
+        return LocalTime.of(minute / 60, minute % 60);
     }
 
     /**
      * Validate if a time string is in correct format
      */
     public static boolean isValidTimeFormat(String timeStr) {
-        try {
-            parseTime(timeStr);
-            return true;
-        } catch (DateTimeParseException e) {
-            return false;
-        }
+        return TimeParser.parseMinuteOfDay(timeStr) != TimeParser.INVALID;
     }
     
     /**
      * Validate if a time string is valid
      */
     public static boolean isValidTime(String timeStr) {
-        try {
-            parseTime(timeStr);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return TimeParser.parseMinuteOfDay(timeStr) != TimeParser.INVALID;
     }
     
     /**
-     * Validate if start time is before end time (considering midnight crossover)
+     * Validate a session's time range. Sessions may cross midnight, and equal start and
+     * end times describe a full 24-hour session.
      */
     public static boolean isValidTimeRange(LocalTime startTime, LocalTime endTime) {
-        // Allow sessions that cross midnight
-        return !startTime.equals(endTime);
+        return startTime != null && endTime != null;
     }
     
     /**